@@ -24,29 +24,35 @@ import org.bds.compile.CompileErrorStrategy;
 import org.bds.compile.CompilerErrorListener;
 import org.bds.compile.CompilerMessage.MessageType;
 import org.bds.compile.CompilerMessages;
+import org.bds.compile.IncludeParser;
+import org.bds.compile.ProgramCache;
 import org.bds.compile.TypeCheckedNodes;
 import org.bds.data.Data;
+import org.bds.data.DataWriters;
 import org.bds.executioner.Executioner;
 import org.bds.executioner.Executioners;
 import org.bds.executioner.Executioners.ExecutionerType;
 import org.bds.lang.BdsNodeFactory;
+import org.bds.lang.ConstantFolding;
 import org.bds.lang.ExpressionTask;
 import org.bds.lang.FunctionDeclaration;
+import org.bds.lang.NativeLibrary;
 import org.bds.lang.ProgramUnit;
 import org.bds.lang.Statement;
 import org.bds.lang.StatementInclude;
 import org.bds.lang.Type;
 import org.bds.lang.TypeList;
 import org.bds.lang.VarDeclaration;
-import org.bds.lang.nativeFunctions.NativeLibraryFunctions;
-import org.bds.lang.nativeMethods.string.NativeLibraryString;
 import org.bds.run.BdsThread;
 import org.bds.run.HelpCreator;
+import org.bds.run.Profiler;
 import org.bds.run.RunState;
 import org.bds.scope.Scope;
 import org.bds.scope.ScopeSymbol;
 import org.bds.serialize.BdsSerializer;
+import org.bds.serialize.CheckpointWriter;
 import org.bds.task.TaskDependecies;
+import org.bds.task.TaskJournal;
 import org.bds.util.Gpr;
 import org.bds.util.Timer;
 
@@ -70,10 +76,14 @@ public class Bds {
 	public static final String VERSION = SOFTWARE_NAME + " " + VERSION_SHORT + " (build " + BUILD + "), by " + Pcingola.BY;
 
 	boolean checkPidRegex; // Check PID regex (do not run program)
+	Boolean checkpointText; // Create checkpoint files in text format
+	Double checkpointInterval; // Minutes between automatic checkpoints
+	Integer checkpointTasks; // Finished tasks between automatic checkpoints
 	boolean debug; // debug mode
 	boolean dryRun; // Dry run (do not run tasks)
 	boolean extractSource; // Extract source code form checkpoint (nly valid on recovery mode)
 	boolean log; // Log everything (keep STDOUT, SDTERR and ExitCode files)
+	boolean profile; // Run sampling profiler
 	Boolean noCheckpoint; // Do not create checkpoint files
 	Boolean noRmOnExit; // Do not remove temp files on exit
 	boolean quiet; // Quiet mode
@@ -81,17 +91,20 @@ public class Bds {
 	boolean verbose; // Verbose mode
 	boolean reportHtml; // Use HTML report style
 	boolean reportYaml; // Use YAML report style
+	Boolean taskJournal; // Log task state changes, do not re-execute finished tasks after a crash
 	int taskFailCount = -1;
 	String configFile = Config.DEFAULT_CONFIG_FILE; // Configuration file
 	String chekcpointRestoreFile; // Restore file
 	String programFileName; // Program file name
 	String pidFile; // File to store PIDs
+	String programCacheDir; // Directory used to cache compiled programs
 	String reportFileName;
 	String system; // System type
 	String queue; // Queue name
 	BdsAction bdsAction;
 	Config config;
 	ProgramUnit programUnit; // Program (parsed nodes)
+	ProgramCache programCache; // Compiled programs cache
 	BdsThread bdsThread;
 	ArrayList<String> programArgs; // Command line arguments for BigDataScript program
 
@@ -101,7 +114,54 @@ public class Bds {
 	 * Use 'alreadyIncluded' to keep track of from 'include' statements
 	 */
 	public static ParseTree createAst(File file, boolean debug, Set<String> alreadyIncluded) {
+		return createAst(file, debug, alreadyIncluded, null);
+	}
+
+	/**
+	 * Create an AST from a program, including all 'include' files
+	 * @param includeParser : Parse included files in parallel (can be null)
+	 */
+	static ParseTree createAst(File file, boolean debug, Set<String> alreadyIncluded, IncludeParser includeParser) {
 		alreadyIncluded.add(Gpr.getCanonicalFileName(file));
+
+		// Already parsed (in parallel)?
+		ParseTree tree = (includeParser != null ? includeParser.get(file) : null);
+		if (tree == null) tree = parse(file, debug);
+		if (tree == null) return null;
+
+		// Parse included files in parallel
+		if (includeParser != null) includeParser.submitIncludes(tree);
+
+		// Included files
+		try {
+			boolean resolveIncludePending = true;
+			while (resolveIncludePending)
+				resolveIncludePending = resolveIncludes(tree, debug, alreadyIncluded, includeParser);
+		} catch (Exception e) {
+			String msg = e.getMessage();
+			CompilerMessages.get().addError("Could not compile " + Gpr.getCanonicalFileName(file) //
+					+ (msg != null ? " :" + e.getMessage() : "") //
+			);
+			return null;
+		}
+
+		return tree;
+	}
+
+	/**
+	 * Parse a file (using ANTLR lexer & parser), 'include' statements are not resolved
+	 * Returns null if error
+	 */
+	public static ParseTree parse(File file, boolean debug) {
+		return parse(file, debug, true);
+	}
+
+	/**
+	 * Parse a file (using ANTLR lexer & parser), 'include' statements are not resolved
+	 * Returns null if error
+	 * @param consoleErrors : If false, ANTLR does not print syntax errors to the console (they are still added to CompilerMessages)
+	 */
+	public static ParseTree parse(File file, boolean debug, boolean consoleErrors) {
 		String fileName = file.toString();
 		String filePath = fileName;
 
@@ -129,6 +189,7 @@ public class Bds {
 					throw new RuntimeException(e); // Bail out
 				}
 			};
+			if (!consoleErrors) lexer.removeErrorListeners();
 
 			//---
 			// Parser
@@ -137,6 +198,7 @@ public class Bds {
 			parser = new BigDataScriptParser(tokens);
 
 			// Parser error handling
+			if (!consoleErrors) parser.removeErrorListeners();
 			parser.setErrorHandler(new CompileErrorStrategy()); // Bail out with exception if errors in parser
 			parser.addErrorListener(new CompilerErrorListener()); // Catch some other error messages that 'CompileErrorStrategy' fails to catch
 
@@ -158,11 +220,6 @@ public class Bds {
 				}
 			}
 
-			// Included files
-			boolean resolveIncludePending = true;
-			while (resolveIncludePending)
-				resolveIncludePending = resolveIncludes(tree, debug, alreadyIncluded);
-
 			return tree;
 		} catch (Exception e) {
 			String msg = e.getMessage();
@@ -186,7 +243,7 @@ public class Bds {
 	/**
 	 * Resolve include statements
 	 */
-	private static boolean resolveIncludes(ParseTree tree, boolean debug, Set<String> alreadyIncluded) {
+	private static boolean resolveIncludes(ParseTree tree, boolean debug, Set<String> alreadyIncluded, IncludeParser includeParser) {
 		boolean changed = false;
 		if (tree instanceof IncludeFileContext) {
 			// Parent file: The one that is including the other file
@@ -216,7 +273,7 @@ public class Bds {
 			}
 
 			// Parse
-			ParseTree treeinc = createAst(includedFile, debug, alreadyIncluded);
+			ParseTree treeinc = createAst(includedFile, debug, alreadyIncluded, includeParser);
 			if (treeinc == null) {
 				CompilerMessages.get().add(tree, parentFile, "\n\tFatal error including file '" + includedFilename + "'", MessageType.ERROR);
 				return false;
@@ -228,7 +285,7 @@ public class Bds {
 			}
 		} else {
 			for (int i = 0; i < tree.getChildCount(); i++)
-				changed |= resolveIncludes(tree.getChild(i), debug, alreadyIncluded);
+				changed |= resolveIncludes(tree.getChild(i), debug, alreadyIncluded, includeParser);
 		}
 
 		return changed;
@@ -276,6 +333,22 @@ public class Bds {
 	 * Compile program
 	 */
 	public boolean compile() {
+		// Compiled program in cache?
+		programCache = null;
+		if (!config.getProgramCache().isEmpty()) {
+			programCache = new ProgramCache(programFileName, config);
+			programUnit = programCache.load();
+			if (programUnit != null) {
+				// Function symbols are added to program's scope when type-checking, which is skipped for cached programs
+				Scope programScope = new Scope(new Scope(), programUnit);
+				programUnit.addFunctionSymbols(programScope);
+				programUnit.setScope(programScope);
+
+				CompilerMessages.reset();
+				return true;
+			}
+		}
+
 		if (debug) log("Loading file: '" + programFileName + "'");
 
 		//---
@@ -311,6 +384,7 @@ public class Bds {
 		programUnit = (ProgramUnit) BdsNodeFactory.get().factory(null, tree); // Transform AST to BigDataScript tree
 		if (debug) log("AST:\n" + programUnit.toString());
 		// Any error messages?
+		boolean cacheable = CompilerMessages.get().isEmpty(); // Do not cache programs with warnings (they would not be shown)
 		if (!CompilerMessages.get().isEmpty()) System.err.println("Compiler messages:\n" + CompilerMessages.get());
 		if (CompilerMessages.get().hasErrors()) return false;
 
@@ -324,12 +398,23 @@ public class Bds {
 		programUnit.typeChecking(programScope, CompilerMessages.get());
 
 		// Any error messages?
+		cacheable &= CompilerMessages.get().isEmpty();
 		if (!CompilerMessages.get().isEmpty()) System.err.println("Compiler messages:\n" + CompilerMessages.get());
 		if (CompilerMessages.get().hasErrors()) return false;
 
 		// Free some memory by reseting structure we won't use any more
 		TypeCheckedNodes.get().reset();
 
+		//---
+		// Optimize: Constant folding and dead branch elimination
+		//---
+		if (debug) log("Optimizing.");
+		ConstantFolding constantFolding = new ConstantFolding(programUnit, config);
+		constantFolding.optimize();
+
+		// Save to cache
+		if (programCache != null && cacheable) programCache.save(programUnit);
+
 		// OK
 		return true;
 	}
@@ -359,6 +444,12 @@ public class Bds {
 
 		if (noCheckpoint != null) config.setNoCheckpoint(noCheckpoint);
 
+		if (checkpointText != null) config.setCheckpointText(checkpointText);
+		if (checkpointInterval != null) config.setCheckpointInterval(checkpointInterval);
+		if (checkpointTasks != null) config.setCheckpointTasks(checkpointTasks);
+		if (taskJournal != null) config.setTaskJournal(taskJournal);
+		if (programCacheDir != null) config.setProgramCache(programCacheDir);
+
 		if (pidFile == null) {
 			if (programFileName != null) pidFile = programFileName + ".pid";
 			else pidFile = chekcpointRestoreFile + ".pid";
@@ -373,7 +464,12 @@ public class Bds {
 	 */
 	ParseTree createAst() {
 		File file = new File(programFileName);
-		return createAst(file, debug, new HashSet<String>());
+		IncludeParser includeParser = new IncludeParser(debug);
+		try {
+			return createAst(file, debug, new HashSet<String>(), includeParser);
+		} finally {
+			includeParser.shutdown();
+		}
 	}
 
 	/**
@@ -419,6 +515,10 @@ public class Bds {
 		return programArgs;
 	}
 
+	public ProgramCache getProgramCache() {
+		return programCache;
+	}
+
 	public ProgramUnit getProgramUnit() {
 		return programUnit;
 	}
@@ -573,13 +673,9 @@ public class Bds {
 	void initilaizeLibraries() {
 		if (debug) log("Initialize standard libraries.");
 
-		// Native functions
-		NativeLibraryFunctions nativeLibraryFunctions = new NativeLibraryFunctions();
-		if (debug) log("Native library:\n" + nativeLibraryFunctions);
-
-		// Native library: String
-		NativeLibraryString nativeLibraryString = new NativeLibraryString();
-		if (debug) log("Native library:\n" + nativeLibraryString);
+		// Native functions and methods (they are created when first used)
+		NativeLibrary nativeLibrary = NativeLibrary.reset();
+		if (debug) log("Native library:\n" + nativeLibrary);
 	}
 
 	/**
@@ -629,6 +725,20 @@ public class Bds {
 					debug = verbose = true; // Debug implies verbose
 					break;
 
+				case "-chpinterval":
+					if ((i + 1) < args.length) checkpointInterval = Gpr.parseDoubleSafe(args[++i]);
+					else usage("Option '-chpInterval' without number of minutes");
+					break;
+
+				case "-chptasks":
+					if ((i + 1) < args.length) checkpointTasks = Gpr.parseIntSafe(args[++i]);
+					else usage("Option '-chpTasks' without number of tasks");
+					break;
+
+				case "-chptext":
+					checkpointText = true;
+					break;
+
 				case "-download":
 					if ((i + 2) < args.length) {
 						config();
@@ -661,6 +771,10 @@ public class Bds {
 					bdsAction = BdsAction.INFO_CHECKPOINT;
 					break;
 
+				case "-journal":
+					taskJournal = true;
+					break;
+
 				case "-l":
 				case "-log":
 					log = true;
@@ -699,6 +813,15 @@ public class Bds {
 					else usage("Option '-queue' without file argument");
 					break;
 
+				case "-programcache":
+					if ((i + 1) < args.length) programCacheDir = args[++i];
+					else usage("Option '-programCache' without directory argument");
+					break;
+
+				case "-profile":
+					profile = true;
+					break;
+
 				case "-quiet":
 					verbose = false;
 					debug = false;
@@ -794,6 +917,13 @@ public class Bds {
 			return 0;
 		}
 
+		// Start profiler
+		Profiler profiler = null;
+		if (profile) {
+			profiler = new Profiler();
+			profiler.start();
+		}
+
 		//---
 		// Run
 		//---
@@ -816,6 +946,23 @@ public class Bds {
 		}
 		if (verbose) Timer.showStdErr("Finished. Exit code: " + exitValue);
 
+		// Close files still open for 'append'
+		DataWriters.getInstance().closeAll(null);
+
+		// Make sure all checkpoint files have been written
+		try {
+			CheckpointWriter.waitFinished();
+		} catch (RuntimeException e) {
+			Timer.showStdErr("Fatal error: " + e.getMessage());
+			exitValue = 1;
+		}
+
+		// Stop profiler and save results
+		if (profiler != null) {
+			profiler.kill();
+			profiler.save((programFileName != null ? programFileName : chekcpointRestoreFile) + ".profile");
+		}
+
 		//---
 		// Kill all executioners
 		//---
@@ -884,7 +1031,9 @@ public class Bds {
 		}
 
 		if (verbose) Timer.showStdErr("Running");
+		if (config.isTaskJournal()) TaskJournal.start(programFileName + TaskJournal.JOURNAL_EXT);
 		int exitCode = runThread(bdsThread);
+		TaskJournal.finish(exitCode == 0); // Keep journal if the program failed
 
 		// Check stack
 		if (stackCheck) bdsThread.sanityCheckStack();
@@ -1052,18 +1201,24 @@ public class Bds {
 		System.err.println("\nAvailable options: ");
 		System.err.println("  [-c | -config ] bds.config     : Config file. Default : " + configFile);
 		System.err.println("  [-checkPidRegex]               : Check configuration's 'pidRegex' by matching stdin.");
+		System.err.println("  -chpInterval minutes           : Create a checkpoint automatically every 'minutes' (adapted so that checkpoints do not take more than 'checkpointMaxOverhead' percent of the time).");
+		System.err.println("  -chpTasks num                  : Create a checkpoint automatically every 'num' finished tasks.");
+		System.err.println("  -chpText                       : Create checkpoint files in text format (default is binary).");
 		System.err.println("  [-d | -debug  ]                : Debug mode.");
 		System.err.println("  -download url file             : Download 'url' to local 'file'. Note: Used by 'taks'");
 		//		System.err.println("  -done                          : Use 'done' files: Default: " + useDoneFile);
 		System.err.println("  -dryRun                        : Do not run any task, just show what would be run. Default: " + dryRun);
 		System.err.println("  [-extractSource]               : Extract source code files from checkpoint (only valid combined with '-info').");
 		System.err.println("  [-i | -info   ] checkpoint.chp : Show state information in checkpoint file.");
+		System.err.println("  -journal                       : Log task states to 'file.bds.journal'. After a crash, finished tasks are not executed again.");
 		System.err.println("  [-l | -log    ]                : Log all tasks (do not delete tmp files). Default: " + log);
 		System.err.println("  -noChp                         : Do not create any checkpoint files.");
 		System.err.println("  -noReport                      : Do not create any report (neither HTML nor YAML).");
 		System.err.println("  -noReportHtml                  : Do not create HTML report.");
 		System.err.println("  -noRmOnExit                    : Do not remove files marked for deletion on exit (rmOnExit). Default: " + noRmOnExit);
 		System.err.println("  [-q | -queue  ] queueName      : Set default queue name.");
+		System.err.println("  -programCache dir              : Cache compiled programs in 'dir' (programs that did not change are not parsed and type-checked again).");
+		System.err.println("  -profile                       : Sampling profiler, create 'file.bds.profile.collapsed' (flame-graph stacks) and 'file.bds.profile.txt'.");
 		System.err.println("  -quiet                         : Do not show any messages or tasks outputs on STDOUT. Default: " + quiet);
 		System.err.println("  -reportHtml                    : Create HTML report. Default: " + reportHtml);
 		System.err.println("  -reportName <name>             : Set base-name for report files.");
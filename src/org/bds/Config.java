@@ -12,6 +12,7 @@ import java.util.Properties;
 
 import org.bds.executioner.MonitorTask;
 import org.bds.executioner.TaskLogger;
+import org.bds.run.AutoCheckpoint;
 import org.bds.task.Tail;
 import org.bds.task.TailFile;
 import org.bds.task.Task;
@@ -53,6 +54,12 @@ public class Config {
 	// Disable checkpoint creation
 	public static final String DISABLE_CHECKPOINT_CREATE = "disableCheckpoint";
 	public static final String DISABLE_RM_ON_EXIT = "disableRmOnExit";
+	public static final String CHECKPOINT_TEXT = "checkpointText"; // Create checkpoint files in text format (default is binary)
+	public static final String CHECKPOINT_INTERVAL = "checkpointInterval"; // Create a checkpoint automatically every N minutes
+	public static final String CHECKPOINT_TASKS = "checkpointTasks"; // Create a checkpoint automatically every N finished tasks
+	public static final String CHECKPOINT_MAX_OVERHEAD = "checkpointMaxOverhead"; // Automatic checkpoints: Maximum percentage of wall time used creating checkpoints
+	public static final String PROGRAM_CACHE = "programCache"; // Directory used to cache compiled programs (no cache if empty)
+	public static final String TASK_JOURNAL = "taskJournal"; // Log task state changes, tasks finished in a crashed run are not executed again
 	public static final String TAIL_LINES = "tailLines"; // Number of lie to use in 'tail'
 	public static final String FILTER_OUT_TASK_HINT = "filterOutTaskHint"; // Lines to filter out from task hint
 	public static final String SHOW_TASK_CODE = "showTaskCode"; // Always show task's code (sys commands)
@@ -97,11 +104,16 @@ public class Config {
 	boolean log = false; // Log all commands?
 	boolean dryRun = false; // Is this a dry run? (i.e. don't run commands, just show what they do).
 	boolean noCheckpoint; // Do not create checkpoint files
+	boolean checkpointText; // Create checkpoint files in text format
+	boolean taskJournal; // Log task state changes (see TaskJournal)
 	boolean noRmOnExit; // Avoid removing files on exit
 	boolean extractSource = false; // Extract source code from checkpoint file
 	boolean reportYaml = false; // Use YAML report format
 	boolean reportHtml = true; // Use HTML report format
 	boolean showTaskCode; // Always show task's code (sys statements)
+	double checkpointInterval; // Minutes between automatic checkpoints (zero means disabled)
+	double checkpointMaxOverhead; // Maximum percentage of wall time used for automatic checkpoints
+	int checkpointTasks; // Finished tasks between automatic checkpoints (zero means disabled)
 	int taskFailCount = 0; // Number of times a task is allowed to fail (i.e. number of re-tries)
 	int maxThreads = -1; // Maximum number of simultaneous threads (e.g. when running 'qsub' commands)
 	int waitAfterTaskRun = -1; // Wait some milisec after task run
@@ -111,6 +123,7 @@ public class Config {
 	String configFileName;
 	String configDirName;
 	String pidFile = "pidFile" + (new Date()).getTime() + ".txt"; // Default PID file
+	String programCache; // Directory used to cache compiled programs
 	String reportFileName; // Preferred file name to use for progress and final report
 	Properties properties;
 	ArrayList<String> includePath;
@@ -156,6 +169,18 @@ public class Config {
 		return Gpr.parseBoolSafe(val.trim());
 	}
 
+	public double getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	public double getCheckpointMaxOverhead() {
+		return checkpointMaxOverhead;
+	}
+
+	public int getCheckpointTasks() {
+		return checkpointTasks;
+	}
+
 	public String getConfigDirName() {
 		return configDirName;
 	}
@@ -269,6 +294,10 @@ public class Config {
 		return pidRegex;
 	}
 
+	public String getProgramCache() {
+		return programCache;
+	}
+
 	public String getReportFileName() {
 		return reportFileName;
 	}
@@ -393,6 +422,10 @@ public class Config {
 		return waitTextFileBusy;
 	}
 
+	public boolean isCheckpointText() {
+		return checkpointText;
+	}
+
 	public boolean isDebug() {
 		return debug;
 	}
@@ -433,6 +466,10 @@ public class Config {
 		return showTaskCode;
 	}
 
+	public boolean isTaskJournal() {
+		return taskJournal;
+	}
+
 	public boolean isVerbose() {
 		return verbose;
 	}
@@ -454,6 +491,12 @@ public class Config {
 	 */
 	void parse() {
 		noCheckpoint = getBool(DISABLE_CHECKPOINT_CREATE, false);
+		checkpointText = getBool(CHECKPOINT_TEXT, false);
+		taskJournal = getBool(TASK_JOURNAL, false);
+		programCache = getString(PROGRAM_CACHE, "");
+		checkpointInterval = getDouble(CHECKPOINT_INTERVAL, 0);
+		checkpointTasks = (int) getLong(CHECKPOINT_TASKS, 0);
+		checkpointMaxOverhead = getDouble(CHECKPOINT_MAX_OVERHEAD, AutoCheckpoint.MAX_OVERHEAD_DEFAULT);
 		noRmOnExit = getBool(DISABLE_RM_ON_EXIT, false);
 		showTaskCode = getBool(SHOW_TASK_CODE, false);
 		tailLines = (int) getLong(TAIL_LINES, TailFile.DEFAULT_TAIL);
@@ -507,6 +550,18 @@ public class Config {
 		properties.setProperty(propertyName, value);
 	}
 
+	public void setCheckpointInterval(double checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	public void setCheckpointTasks(int checkpointTasks) {
+		this.checkpointTasks = checkpointTasks;
+	}
+
+	public void setCheckpointText(boolean checkpointText) {
+		this.checkpointText = checkpointText;
+	}
+
 	public void setDebug(boolean debug) {
 		this.debug = debug;
 	}
@@ -535,6 +590,10 @@ public class Config {
 		this.pidFile = pidFile;
 	}
 
+	public void setProgramCache(String programCache) {
+		this.programCache = programCache;
+	}
+
 	public void setQuiet(boolean quiet) {
 		this.quiet = quiet;
 	}
@@ -559,6 +618,10 @@ public class Config {
 		this.tailLines = tailLines;
 	}
 
+	public void setTaskJournal(boolean taskJournal) {
+		this.taskJournal = taskJournal;
+	}
+
 	public void setTaskFailCount(int taskFailCount) {
 		this.taskFailCount = taskFailCount;
 	}
@@ -147,8 +147,12 @@ public class HostResources implements Comparable<HostResources>, BdsSerialize, C
 	}
 
 	@Override
-	public String serializeSave(BdsSerializer serializer) {
-		return cpus + "\t" + mem + "\t" + timeout + "\t" + wallTimeout;
+	public void serializeSave(BdsSerializer serializer) {
+		// Note: Resources are written as part of the 'Task' record
+		serializer.writeInt(cpus);
+		serializer.writeInt(mem);
+		serializer.writeInt(timeout);
+		serializer.writeInt(wallTimeout);
 	}
 
 	public void set(HostResources hr) {
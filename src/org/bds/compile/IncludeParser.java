@@ -0,0 +1,136 @@
+package org.bds.compile;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.bds.Bds;
+import org.bds.Config;
+import org.bds.antlr.BigDataScriptParser.IncludeFileContext;
+import org.bds.lang.StatementInclude;
+import org.bds.util.Gpr;
+
+/**
+ * Parse included files in parallel
+ *
+ * As soon as a file is parsed, all files it includes are submitted
+ * to a thread pool (each file is parsed only once). Included files are
+ * then merged into the program's tree in the same order as if they were
+ * parsed sequentially (see Bds.resolveIncludes), so parsing in parallel
+ * does not change which 'include' statement includes each file.
+ *
+ * Files that cannot be parsed (e.g. syntax errors) are ignored here
+ * (syntax errors are not printed to the console): they are parsed again
+ * sequentially, so compiler messages are exactly the same as in
+ * sequential parsing.
+ *
+ * @author pcingola
+ */
+public class IncludeParser {
+
+	boolean debug;
+	boolean shutdown;
+	ExecutorService executor;
+	ConcurrentHashMap<String, Future<ParseTree>> treeByFile; // Canonical file name => Parse tree
+
+	public IncludeParser(boolean debug) {
+		this.debug = debug;
+		treeByFile = new ConcurrentHashMap<String, Future<ParseTree>>();
+		Config.get().getIncludePath(); // Initialize include path before using it from other threads
+	}
+
+	/**
+	 * Get a parse tree for a file
+	 * @return A parse tree or null if the file was not parsed
+	 */
+	public ParseTree get(File file) {
+		Future<ParseTree> future = treeByFile.get(Gpr.getCanonicalFileName(file));
+		if (future == null) return null;
+
+		try {
+			return future.get();
+		} catch (InterruptedException | ExecutionException e) {
+			return null; // Parse sequentially
+		}
+	}
+
+	synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(Gpr.NUM_CORES, new ThreadFactory() {
+
+				AtomicInteger threadNum = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "IncludeParser-" + threadNum.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * Parse a file (invoked from a thread pool)
+	 */
+	ParseTree parse(File file) {
+		CompilerMessages.reset();
+		ParseTree tree = Bds.parse(file, debug, false); // Do not show errors: They are shown when the file is parsed again
+
+		// Any error? Ignore, the file will be parsed again sequentially
+		boolean ok = (tree != null) && CompilerMessages.get().isEmpty();
+		CompilerMessages.reset();
+		if (!ok) return null;
+
+		submitIncludes(tree);
+		return tree;
+	}
+
+	/**
+	 * Stop threads
+	 */
+	public synchronized void shutdown() {
+		shutdown = true;
+		if (executor != null) executor.shutdownNow();
+		executor = null;
+		treeByFile.clear();
+	}
+
+	/**
+	 * Parse (in parallel) all files included in 'tree'
+	 */
+	public void submitIncludes(ParseTree tree) {
+		if (tree instanceof IncludeFileContext) {
+			File parentFile = new File(((IncludeFileContext) tree).getStart().getInputStream().getSourceName());
+			String includedFilename = StatementInclude.includeFileName(tree.getChild(1).getText());
+			final File includedFile = StatementInclude.includeFile(includedFilename, parentFile);
+			if (includedFile == null || !includedFile.canRead()) return; // Error messages are created when parsing sequentially
+
+			String canonicalFileName = Gpr.getCanonicalFileName(includedFile);
+			if (treeByFile.containsKey(canonicalFileName)) return; // Already submitted
+
+			synchronized (this) {
+				if (shutdown || treeByFile.containsKey(canonicalFileName)) return;
+				Future<ParseTree> future = getExecutor().submit(new Callable<ParseTree>() {
+					@Override
+					public ParseTree call() throws Exception {
+						return parse(includedFile);
+					}
+				});
+				treeByFile.put(canonicalFileName, future);
+			}
+		} else {
+			for (int i = 0; i < tree.getChildCount(); i++)
+				submitIncludes(tree.getChild(i));
+		}
+	}
+
+}
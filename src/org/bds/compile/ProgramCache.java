@@ -0,0 +1,189 @@
+package org.bds.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import org.bds.Bds;
+import org.bds.Config;
+import org.bds.lang.BdsNode;
+import org.bds.lang.ProgramUnit;
+import org.bds.lang.StatementInclude;
+import org.bds.osCmd.Exec;
+import org.bds.serialize.BdsSerializer;
+import org.bds.util.Gpr;
+import org.bds.util.Timer;
+
+/**
+ * Cache of compiled programs
+ *
+ * Parsing, type-checking and optimizing large programs takes time. Compiled
+ * program trees are saved to a cache directory and loaded (instead of
+ * compiled) the next time the same program is run.
+ *
+ * Cache entries are keyed by a hash of bds version, program file name,
+ * current directory, include path and program's source code. Each entry
+ * has a list of dependencies (program and included files) with hashes of
+ * their contents: The entry is used only if none of the files changed.
+ *
+ * Files in cache directory:
+ *     key.chp  : Program tree (same format as checkpoint files)
+ *     key.deps : Dependencies, one per line: 'fileName \t hash'
+ *
+ * @author pcingola
+ */
+public class ProgramCache {
+
+	public static final String CACHE_EXT = ".chp";
+	public static final String DEPS_EXT = ".deps";
+
+	String cacheDir;
+	String programFileName;
+	String key;
+	boolean hit; // Was the program loaded from cache?
+	boolean verbose;
+
+	/**
+	 * SHA-256 hash as a hex string
+	 */
+	public static String hash(String str) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			byte digest[] = md.digest(str.getBytes(StandardCharsets.UTF_8));
+
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest)
+				sb.append(String.format("%02x", b & 0xff));
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public ProgramCache(String programFileName, Config config) {
+		this.programFileName = programFileName;
+		cacheDir = config.getProgramCache();
+		verbose = config.isVerbose();
+	}
+
+	String cacheFile() {
+		return cacheDir + "/" + key() + CACHE_EXT;
+	}
+
+	String depsFile() {
+		return cacheDir + "/" + key() + DEPS_EXT;
+	}
+
+	/**
+	 * Dependencies: Program and included files (one per line, file name and hash)
+	 */
+	String deps(ProgramUnit programUnit) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(programUnit.getFileName() + "\t" + hash(programUnit.getFileText()) + "\n");
+
+		List<BdsNode> includes = programUnit.findNodes(StatementInclude.class, true);
+		for (BdsNode node : includes) {
+			StatementInclude inc = (StatementInclude) node;
+			sb.append(inc.getFileName() + "\t" + hash(inc.getFileText()) + "\n");
+		}
+
+		return sb.toString();
+	}
+
+	public boolean isHit() {
+		return hit;
+	}
+
+	/**
+	 * Have any of the dependencies changed?
+	 */
+	boolean isValid(String deps) {
+		for (String line : deps.split("\n")) {
+			String fields[] = line.split("\t");
+			if (fields.length != 2) return false;
+			if (!Gpr.exists(fields[0])) return false;
+			if (!hash(Gpr.readFile(fields[0])).equals(fields[1])) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Cache key
+	 */
+	String key() {
+		if (key != null) return key;
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(Bds.VERSION + "\n");
+		sb.append(programFileName + "\n");
+		sb.append(System.getProperty(Exec.USER_DIR) + "\n");
+		sb.append(Config.get().getIncludePath() + "\n");
+		sb.append(Gpr.readFile(programFileName));
+
+		key = hash(sb.toString());
+		return key;
+	}
+
+	/**
+	 * Load program from cache
+	 * @return A program or null if there is no (valid) cache entry
+	 */
+	public ProgramUnit load() {
+		if (!Gpr.exists(depsFile()) || !Gpr.exists(cacheFile())) return null;
+
+		// Any file changed?
+		if (!isValid(Gpr.readFile(depsFile()))) {
+			if (verbose) Timer.showStdErr("Program cache: Program or included files changed, cache entry '" + depsFile() + "' is not valid");
+			return null;
+		}
+
+		try {
+			BdsSerializer bdsSerializer = new BdsSerializer(cacheFile(), null);
+			ProgramUnit programUnit = bdsSerializer.loadProgram();
+			hit = (programUnit != null);
+			if (verbose && hit) Timer.showStdErr("Program cache: Loaded program from '" + cacheFile() + "'");
+			return programUnit;
+		} catch (RuntimeException e) {
+			// Corrupted cache file? Compile program
+			if (verbose) Timer.showStdErr("Program cache: Error loading '" + cacheFile() + "': " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Save a compiled program to cache
+	 * Files are written to temporary files and renamed, so that other
+	 * processes never read partially written entries
+	 */
+	public void save(ProgramUnit programUnit) {
+		try {
+			File dir = new File(cacheDir);
+			dir.mkdirs();
+
+			// Program tree
+			File cacheFileTmp = File.createTempFile(key(), CACHE_EXT, dir);
+			BdsSerializer bdsSerializer = new BdsSerializer(cacheFileTmp.getPath(), null);
+			bdsSerializer.saveProgram(programUnit);
+
+			// Dependencies are written last: An entry is used only if '.deps' file exists
+			File depsFileTmp = File.createTempFile(key(), DEPS_EXT, dir);
+			Gpr.toFile(depsFileTmp.getPath(), deps(programUnit));
+
+			new File(depsFile()).delete();
+			if (!cacheFileTmp.renameTo(new File(cacheFile())) || !depsFileTmp.renameTo(new File(depsFile()))) {
+				cacheFileTmp.delete();
+				depsFileTmp.delete();
+				return;
+			}
+
+			if (verbose) Timer.showStdErr("Program cache: Saved program to '" + cacheFile() + "'");
+		} catch (IOException | RuntimeException e) {
+			// Cache is an optimization, errors are not fatal
+			Timer.showStdErr("Program cache: Error saving '" + cacheFile() + "': " + e.getMessage());
+		}
+	}
+
+}
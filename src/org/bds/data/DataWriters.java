@@ -0,0 +1,240 @@
+package org.bds.data;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.bds.lang.BdsNode;
+import org.bds.run.BdsThread;
+import org.bds.util.Timer;
+
+/**
+ * A pool of buffered writers used to append to files
+ * (e.g. 'file.append(line)'), so that writing a file line
+ * by line does not re-write the whole file every time.
+ *
+ * Writers are indexed by the data's local path. They are flushed
+ * when the file is accessed again (see BdsThread.data()) or before
+ * running tasks / sys commands, and closed either explicitly
+ * ('file.close()'), when the file is deleted, when the thread (or
+ * parallel function worker) that opened them finishes, or when the
+ * program finishes.
+ *
+ * Remote data is staged in a local file and uploaded once, when
+ * the writer is closed.
+ *
+ * Note: At most MAX_OPEN files are kept open, the least recently used
+ * files are closed (and re-opened in 'append' mode when needed).
+ *
+ * @author pcingola
+ */
+public class DataWriters {
+
+	public static final int MAX_OPEN = 64;
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * A file opened for 'append'
+	 */
+	class DataWriter {
+		Data data;
+		Object owner; // Writer is closed when this thread finishes
+		BufferedWriter writer; // Null if the file is not currently open
+
+		DataWriter(Data data, Object owner) {
+			this.data = data;
+			this.owner = owner;
+		}
+
+		void append(String str) throws IOException {
+			if (writer == null) open();
+			writer.write(str);
+		}
+
+		/**
+		 * Close the file and upload remote data
+		 * @return false on error
+		 */
+		boolean close() {
+			try {
+				closeFile();
+			} catch (IOException e) {
+				Timer.showStdErr("Error closing file '" + data.getLocalPath() + "': " + e.getMessage());
+				return false;
+			}
+			if (data.isRemote()) return data.upload(data.getLocalPath());
+			return true;
+		}
+
+		void closeFile() throws IOException {
+			if (writer == null) return;
+			writer.close();
+			writer = null;
+			countOpen--;
+		}
+
+		void flush() throws IOException {
+			if (writer != null) writer.flush();
+		}
+
+		void open() throws IOException {
+			// Too many open files? Close the least recently used one
+			if (countOpen >= MAX_OPEN) {
+				for (DataWriter dw : writers.values())
+					if (dw.writer != null) {
+						dw.closeFile();
+						break;
+					}
+			}
+
+			writer = new BufferedWriter(new FileWriter(data.getLocalPath(), true), BUFFER_SIZE);
+			countOpen++;
+		}
+	}
+
+	private static DataWriters dataWriters = new DataWriters();
+
+	LinkedHashMap<String, DataWriter> writers = new LinkedHashMap<String, DataWriter>(16, 0.75f, true); // Access order (for LRU)
+	int countOpen;
+
+	/**
+	 * Get singleton
+	 */
+	public static DataWriters getInstance() {
+		return dataWriters;
+	}
+
+	/**
+	 * Append 'str' to data
+	 * @param bdsThread : The writer is closed when 'bdsThread' finishes (see 'closeAll')
+	 * @param bdsNode : Node reporting errors
+	 * @return false on error
+	 */
+	public synchronized boolean append(Data data, String str, BdsThread bdsThread, BdsNode bdsNode) {
+		String localPath = data.getLocalPath();
+		DataWriter dw = writers.get(localPath);
+		try {
+			if (dw == null) {
+				// Only checked when the file is opened (remote data requires a lookup)
+				if (data.isRemote() && !data.isFile() && data.exists()) {
+					bdsThread.fatalError(bdsNode, "Cannot write to non-file: " + data.getAbsolutePath());
+					return false;
+				}
+
+				dw = new DataWriter(data, bdsThread);
+				if (!stage(data)) return false;
+				writers.put(localPath, dw);
+			}
+
+			dw.append(str);
+			return true;
+		} catch (IOException e) {
+			Timer.showStdErr("Error appending to file '" + localPath + "': " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Close writer for 'data'
+	 * @return false on error or if the data was not open
+	 */
+	public synchronized boolean close(Data data) {
+		DataWriter dw = writers.remove(data.getLocalPath());
+		if (dw == null) return false;
+		return dw.close();
+	}
+
+	/**
+	 * Close all writers opened by 'owner' (or all writers if 'owner' is null)
+	 */
+	public synchronized void closeAll(Object owner) {
+		if (writers.isEmpty()) return;
+
+		ArrayList<DataWriter> toClose = new ArrayList<DataWriter>();
+		for (Iterator<DataWriter> it = writers.values().iterator(); it.hasNext();) {
+			DataWriter dw = it.next();
+			if (owner == null || dw.owner == owner) {
+				toClose.add(dw);
+				it.remove();
+			}
+		}
+
+		for (DataWriter dw : toClose)
+			dw.close();
+	}
+
+	/**
+	 * Close writer for 'data' without uploading it (e.g. the file is being deleted)
+	 */
+	public synchronized void discard(Data data) {
+		if (writers.isEmpty()) return;
+
+		DataWriter dw = writers.remove(data.getLocalPath());
+		if (dw == null) return;
+		try {
+			dw.closeFile();
+		} catch (IOException e) {
+			Timer.showStdErr("Error closing file '" + data.getLocalPath() + "': " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Flush writer for 'localPath' (if any)
+	 */
+	public synchronized void flush(String localPath) {
+		if (writers.isEmpty()) return;
+
+		DataWriter dw = writers.get(localPath);
+		if (dw == null) return;
+		try {
+			dw.flush();
+		} catch (IOException e) {
+			throw new RuntimeException("Error flushing file '" + localPath + "'", e);
+		}
+	}
+
+	/**
+	 * Flush all writers (e.g. before running an external process)
+	 */
+	public synchronized void flushAll() {
+		for (DataWriter dw : writers.values()) {
+			try {
+				dw.flush();
+			} catch (IOException e) {
+				throw new RuntimeException("Error flushing file '" + dw.data.getLocalPath() + "'", e);
+			}
+		}
+	}
+
+	public synchronized boolean isEmpty() {
+		return writers.isEmpty();
+	}
+
+	/**
+	 * Prepare local file before appending for the first time
+	 */
+	boolean stage(Data data) {
+		if (!data.isRemote()) return true;
+
+		// Remote data: Append to a local copy
+		if (data.exists()) return data.isDownloaded() || data.download();
+
+		// New remote file: Start with an empty local file
+		File localFile = new File(data.getLocalPath());
+		localFile.getParentFile().mkdirs();
+		localFile.delete();
+		return true;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (DataWriter dw : writers.values())
+			sb.append((dw.writer != null ? "open" : "closed") + "\t" + dw.data.getLocalPath() + "\n");
+		return sb.toString();
+	}
+}
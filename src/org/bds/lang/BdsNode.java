@@ -2,12 +2,8 @@ package org.bds.lang;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Array;
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -153,31 +149,34 @@ public abstract class BdsNode implements BdsSerialize {
 	@SuppressWarnings("rawtypes")
 	List<BdsNode> findNodes(Class clazz, boolean recurse, Set<Object> visited) {
 		List<BdsNode> list = new ArrayList<BdsNode>();
+		findNodes(clazz, recurse, visited, list);
+		return list;
+	}
 
-		// Iterate over fields
-		for (Field field : getAllClassFields()) {
+	/**
+	 * Find all nodes of a given type, add them to 'list'
+	 */
+	@SuppressWarnings("rawtypes")
+	void findNodes(Class clazz, boolean recurse, Set<Object> visited, List<BdsNode> list) {
+		// Iterate over fields that can reference other nodes
+		for (Field field : BdsNodeFields.get(getClass()).getChildren()) {
 			try {
 				Object fieldObj = field.get(this);
 
 				// Does the field have a value?
-				if (fieldObj != null && !visited.contains(fieldObj)) {
-					visited.add(fieldObj);
-
+				if (fieldObj != null && visited.add(fieldObj)) {
 					// If it's an array, iterate on all objects
 					if (fieldObj.getClass().isArray()) {
 						for (Object fieldObjSingle : (Object[]) fieldObj)
-							list.addAll(findNodes(clazz, fieldObjSingle, recurse, visited));
+							findNodes(clazz, fieldObjSingle, recurse, visited, list);
 					} else {
-						list.addAll(findNodes(clazz, fieldObj, recurse, visited));
+						findNodes(clazz, fieldObj, recurse, visited, list);
 					}
-
 				}
 			} catch (Exception e) {
 				throw new RuntimeException("Error getting field '" + field.getName() + "' from class '" + this.getClass().getCanonicalName() + "'", e);
 			}
 		}
-
-		return list;
 	}
 
 	/**
@@ -186,22 +185,15 @@ public abstract class BdsNode implements BdsSerialize {
 	 * @param fieldObj
 	 */
 	@SuppressWarnings("rawtypes")
-	List<BdsNode> findNodes(Class clazz, Object fieldObj, boolean recurse, Set<Object> visited) {
-		List<BdsNode> list = new ArrayList<BdsNode>();
-
+	void findNodes(Class clazz, Object fieldObj, boolean recurse, Set<Object> visited, List<BdsNode> list) {
 		// If it is a BigDataScriptNode then we can recurse into it
 		if ((fieldObj != null) && (fieldObj instanceof BdsNode)) {
 			// Found the requested type?
 			if ((clazz == null) || (fieldObj.getClass() == clazz)) list.add((BdsNode) fieldObj);
 
 			// We can recurse into this field
-			if (recurse) {
-				BdsNode csnode = ((BdsNode) fieldObj);
-				list.addAll(csnode.findNodes(clazz, recurse, visited));
-			}
+			if (recurse) ((BdsNode) fieldObj).findNodes(clazz, recurse, visited, list);
 		}
-
-		return list;
 	}
 
 	/**
@@ -237,45 +229,18 @@ public abstract class BdsNode implements BdsSerialize {
 	 * Get all fields from this class
 	 *
 	 * IMPORTANT: Nodes are returned ALPHABETICALLY sorted
+	 * Note: Fields are calculated once per class (see BdsNodeFields), the list must not be modified
 	 */
-	@SuppressWarnings("rawtypes")
 	List<Field> getAllClassFields(boolean addParent, boolean addNode, boolean addPrimitive, boolean addClass, boolean addArray, boolean addStatic, boolean addPrivate) {
-		// Top class (if we are looking for 'parent' field, we need to include BigDataScriptNode, otherwise we don't
-		Class topClass = (addParent ? Object.class : BdsNode.class);
-
-		// Get all fields for each parent class
-		ArrayList<Field> fields = new ArrayList<Field>();
-
-		for (Class clazz = this.getClass(); clazz != topClass; clazz = clazz.getSuperclass()) {
-			for (Field f : clazz.getDeclaredFields()) {
-				// Add field?
-				if (Modifier.isPrivate(f.getModifiers())) {
-					if (addPrivate) fields.add(f);
-				} else if (Modifier.isStatic(f.getModifiers())) {
-					if (addStatic) fields.add(f);
-				} else if (f.getName().equals("parent")) {
-					if (addParent) fields.add(f);
-				} else if (f.getType().getCanonicalName().startsWith(BdsNodeFactory.get().packageName())) {
-					if (addNode) fields.add(f);
-				} else if (f.getType().isPrimitive() || (f.getType() == String.class)) {
-					if (addPrimitive) fields.add(f);
-				} else if (f.getType().isArray()) {
-					if (addArray) fields.add(f);
-				} else if (!f.getType().isPrimitive()) {
-					if (addClass) fields.add(f);
-				}
-			}
-		}
-
-		// Sort by name
-		Collections.sort(fields, new Comparator<Field>() {
-			@Override
-			public int compare(Field o1, Field o2) {
-				return o1.getName().compareTo(o2.getName());
-			}
-		});
-
-		return fields;
+		int flags = (addParent ? BdsNodeFields.ADD_PARENT : 0) //
+				| (addNode ? BdsNodeFields.ADD_NODE : 0) //
+				| (addPrimitive ? BdsNodeFields.ADD_PRIMITIVE : 0) //
+				| (addClass ? BdsNodeFields.ADD_CLASS : 0) //
+				| (addArray ? BdsNodeFields.ADD_ARRAY : 0) //
+				| (addStatic ? BdsNodeFields.ADD_STATIC : 0) //
+				| (addPrivate ? BdsNodeFields.ADD_PRIVATE : 0) //
+		;
+		return BdsNodeFields.get(getClass()).getFields(flags);
 	}
 
 	public BdsThread getBigDataScriptThread() {
@@ -545,58 +510,6 @@ public abstract class BdsNode implements BdsSerialize {
 		}
 	}
 
-	/**
-	 * Replace fake nodes by real nodes (serialization)
-	 */
-	public void replaceFake() {
-
-		// Iterate over fields
-		for (Field field : getAllClassFields(true)) {
-			try {
-				Object fieldObj = field.get(this);
-
-				// Does the field have a value?
-				if (fieldObj != null) {
-					// If it's an array, iterate on all objects
-					if (fieldObj.getClass().isArray()) {
-						int idx = 0;
-						for (Object fieldObjSingle : (Object[]) fieldObj) {
-							if ((fieldObjSingle != null) && (fieldObjSingle instanceof BdsNode)) {
-								BdsNode csnode = (BdsNode) fieldObjSingle;
-
-								// Is it a fake node? => Replace by real node
-								if (csnode.isFake()) {
-									// Find real node based on fake one
-									BdsNode node = BdsNodeFactory.get().realNode(csnode);
-
-									// Replace this array element
-									Array.set(fieldObj, idx, node);
-								}
-							}
-							idx++;
-						}
-					} else {
-						if (fieldObj instanceof BdsNode) {
-							BdsNode csnode = (BdsNode) fieldObj;
-
-							// Is it a fake node? => Replace by real node
-							if (csnode.isFake()) {
-								// Find real node based on fake one
-								BdsNode trueCsnode = BdsNodeFactory.get().realNode(csnode);
-
-								// Set field to real node
-								field.set(this, trueCsnode);
-							}
-						}
-					}
-				}
-			} catch (Exception e) {
-				throw new RuntimeException("Error replacing fake field '" + field.getName() + "' from class '" + this.getClass().getCanonicalName() + "'", e);
-			}
-		}
-
-	}
-
 	/**
 	 * Calculate return type and assign it to 'returnType' variable.
 	 */
@@ -616,108 +529,19 @@ public abstract class BdsNode implements BdsSerialize {
 	}
 
 	/**
-	 * Parse a line from a serialized file
+	 * Parse a record from a serialized file
 	 */
-	@SuppressWarnings("rawtypes")
 	@Override
 	public void serializeParse(BdsSerializer serializer) {
-
-		// Use ID from file
-		updateId((int) serializer.getNextFieldInt());
-		lineNum = (int) serializer.getNextFieldInt();
-		charPosInLine = (int) serializer.getNextFieldInt();
-
-		// Set parent node
-		int parentId = serializer.getNextFieldNodeId();
-		if (parentId != 0) {
-			// Parent node is not null
-			parent = new ParentNode();
-			parent.setFakeId(parentId);
-		}
-
-		returnType = serializer.getNextFieldType();
-
-		// Iterate over fields
-		for (Field field : getAllClassFields(false)) {
-			try {
-				Class fieldClass = field.getType();
-				Object value = serializer.parse(fieldClass, fieldClass.getComponentType());
-
-				field.set(this, value);
-			} catch (Exception e) {
-				throw new RuntimeException("Error loading field '" + field.getName() + "' from class '" + this.getClass().getCanonicalName() + "'", e);
-			}
-		}
+		BdsNodeSerializer.get(this).serializeParse(serializer, this);
 	}
 
 	/**
-	 * Create a string to serialize to a file
-	 * @return
+	 * Serialize this node (and all its children)
 	 */
-	@SuppressWarnings("rawtypes")
 	@Override
-	public String serializeSave(BdsSerializer serializer) {
-		StringBuilder out = new StringBuilder();
-
-		// Not an array: Single field. Show
-		out.append(getClass().getSimpleName() //
-				+ "\t" + id //
-				+ "\t" + lineNum //
-				+ "\t" + charPosInLine //
-				+ "\t" + serializer.serializeSaveValue(parent) //
-				+ "\t" + serializer.serializeSaveValue(returnType) //
-				+ "\t" //
-		);
-		ArrayList<BdsNode> nodesToRecurse = new ArrayList<BdsNode>();
-
-		// Iterate over fields
-		for (Field field : getAllClassFields(false)) {
-			try {
-				Object fieldObj = field.get(this);
-				Class fieldClass = field.getDeclaringClass();
-
-				// Does the field have a value?
-				if (fieldObj != null) {
-					// If it's an array, iterate on all objects
-					if (fieldObj.getClass().isArray()) {
-						for (Object fieldObjSingle : (Object[]) fieldObj) {
-							out.append(serializer.serializeSaveValue(fieldObjSingle) + ",");
-
-							// Can we recurse into this field?
-							if ((fieldObjSingle != null) && (fieldObjSingle instanceof BdsNode)) nodesToRecurse.add((BdsNode) fieldObjSingle);
-						}
-
-						out.deleteCharAt(out.length() - 1); // Remove last comma
-						out.append("\t");
-					} else {
-						// Serialize field value
-						if (fieldObj instanceof Scope) {
-							// Do not serialize scope here
-						} else out.append(serializer.serializeSaveValue(fieldObj) + "\t");
-
-						// Can we recurse into this field?
-						if (fieldObj instanceof BdsNode) nodesToRecurse.add((BdsNode) fieldObj);
-					}
-				} else {
-					// Value of this field is null
-					if (fieldClass.getCanonicalName().startsWith(BdsNodeFactory.get().packageName())) out.append("null\t");
-					else out.append(serializer.serializeSaveValue(fieldObj) + "\t");
-				}
-			} catch (Exception e) {
-				throw new RuntimeException("Error getting field '" + field.getName() + "' from class '" + this.getClass().getCanonicalName() + "'", e);
-			}
-		}
-
-		out.deleteCharAt(out.length() - 1); // Remove last tab
-		out.append("\n");
-
-		serializer.add(this);
-
-		// Recurse
-		for (BdsNode node : nodesToRecurse)
-			if (!serializer.isSerialized(node)) out.append(serializer.serializeSave(node));
-
-		return out.toString();
+	public void serializeSave(BdsSerializer serializer) {
+		BdsNodeSerializer.get(this).serializeSave(serializer, this);
 	}
 
 	/**
@@ -752,7 +576,7 @@ public abstract class BdsNode implements BdsSerialize {
 		out.append(tabs + this.getClass().getSimpleName() + " " + fieldName + "\t[" + id + " | " + (parent != null ? parent.getId() : "") + "]\n");
 
 		// Iterate over fields
-		for (Field field : getAllClassFields()) {
+		for (Field field : BdsNodeFields.get(getClass()).getAll()) {
 			try {
 				Object fieldObj = field.get(this);
 
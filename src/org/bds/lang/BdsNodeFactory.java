@@ -3,6 +3,7 @@ package org.bds.lang;
 import java.lang.reflect.Constructor;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
@@ -11,12 +12,45 @@ import org.bds.util.Gpr;
 /**
  * A factory of nodes
  *
+ * Node classes and constructors are found using reflection only once
+ * per class name (and class names only once per parse tree class),
+ * instead of once per node. This is used both when creating nodes
+ * from a parse tree and when loading nodes from checkpoints.
+ *
  * @author pcingola
  */
 public class BdsNodeFactory {
 
+	/**
+	 * A node class and the constructor used to create nodes
+	 */
+	static class NodeConstructor {
+
+		Class<?> clazz;
+		Constructor<?> constructor;
+		boolean noArgs; // Constructor has no arguments (otherwise it has two arguments: parent and tree)
+
+		NodeConstructor(String className) {
+			try {
+				clazz = Class.forName(className);
+			} catch (ClassNotFoundException e) {
+				throw new RuntimeException("Error creating object: Class '" + className + "'", e);
+			}
+
+			// Types are not created using constructors (see 'factory()')
+			if (clazz == Type.class) return;
+
+			constructor = clazz.getConstructors()[0];
+			int argc = constructor.getParameterTypes().length;
+			if (argc == 0) noArgs = true;
+			else if (argc != 2) throw new RuntimeException("Unknown constructor method for class '" + className + "'");
+		}
+	}
+
 	public static boolean debug = false;
 	private static BdsNodeFactory bdsNodeFactory = new BdsNodeFactory();
+	private static final ConcurrentHashMap<String, NodeConstructor> constructorByClassName = new ConcurrentHashMap<String, NodeConstructor>();
+	private static final ConcurrentHashMap<Class<?>, String> classNameByTreeClass = new ConcurrentHashMap<Class<?>, String>();
 
 	boolean createFakeIds = false;
 	int nodeNumber = 1, fakeNodeNumber = Integer.MIN_VALUE;
@@ -41,10 +75,15 @@ public class BdsNodeFactory {
 	 * Transform to a class name
 	 */
 	public String className(ParseTree tree) {
-		String className = tree.getClass().getSimpleName();
+		String className = classNameByTreeClass.get(tree.getClass());
+		if (className != null) return className;
+
+		className = tree.getClass().getSimpleName();
 		String end = "Context";
 		if (className.endsWith(end)) className = className.substring(0, className.length() - end.length());
-		if (className.equals("TypeArray")) return TypeList.class.getSimpleName();
+		if (className.equals("TypeArray")) className = TypeList.class.getSimpleName();
+
+		classNameByTreeClass.put(tree.getClass(), className);
 		return className;
 	}
 
@@ -77,7 +116,6 @@ public class BdsNodeFactory {
 	/**
 	 * Create BigDataScriptNodes
 	 */
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public BdsNode factory(String className, BdsNode parent, ParseTree tree) {
 		if (className.startsWith(packageName())) className = className.substring(packageName().length());
 
@@ -92,12 +130,10 @@ public class BdsNodeFactory {
 		if (className.equals("TypePrimitiveVoid")) return Type.VOID;
 
 		// Create object
+		NodeConstructor nodeConstructor = getNodeConstructor(className);
 		try {
-			className = packageName() + className;
-			Class clazz = Class.forName(className);
-
 			// Is it a Type?
-			if (clazz == Type.class) {
+			if (nodeConstructor.clazz == Type.class) {
 				if (tree == null) return new Type(); // No tree data? return a new FAKE node
 
 				// No need to create a new node
@@ -105,30 +141,26 @@ public class BdsNodeFactory {
 				return Type.get(typeName);
 			}
 
-			// Create class
-			Constructor<BdsNode>[] classConstructors = clazz.getConstructors();
-			Constructor<BdsNode> classConstructor = classConstructors[0];
-
-			BdsNode csnode;
-
-			// Number of arguments in constructor?
-			if (classConstructor.getParameterTypes().length == 0) {
-				csnode = (BdsNode) clazz.newInstance();
-			} else if (classConstructor.getParameterTypes().length == 2) {
-				// Two parameter constructor
-				Object[] params = new Object[2];
-				params[0] = parent;
-				params[1] = tree;
-				csnode = classConstructor.newInstance(params);
-			} else throw new RuntimeException("Unknown constructor method for class '" + className + "'");
-
-			// Done, return new object
-			return csnode;
+			// Create node
+			if (nodeConstructor.noArgs) return (BdsNode) nodeConstructor.constructor.newInstance();
+			return (BdsNode) nodeConstructor.constructor.newInstance(parent, tree);
 		} catch (Exception e) {
-			throw new RuntimeException("Error creating object: Class '" + className + "'", e);
+			throw new RuntimeException("Error creating object: Class '" + nodeConstructor.clazz.getCanonicalName() + "'", e);
 		}
 	}
 
+	/**
+	 * Get class and constructor for a node class (class name without package)
+	 */
+	NodeConstructor getNodeConstructor(String className) {
+		NodeConstructor nodeConstructor = constructorByClassName.get(className);
+		if (nodeConstructor == null) {
+			nodeConstructor = new NodeConstructor(packageName() + className);
+			constructorByClassName.put(className, nodeConstructor);
+		}
+		return nodeConstructor;
+	}
+
 	/**
 	 * Get current node ID (used for testing)
 	 * @return
@@ -150,8 +182,15 @@ public class BdsNodeFactory {
 	 * Get node by ID number
 	 * @return Node or null if not found
 	 */
-	public synchronized BdsNode getNode(int nodeId) {
-		return nodesById.get(nodeId);
+	public BdsNode getNode(int nodeId) {
+		BdsNode node;
+		synchronized (this) {
+			node = nodesById.get(nodeId);
+		}
+
+		// Native functions are created when first used (not synchronized on 'this', see NativeLibrary)
+		if (node == null) node = NativeLibrary.get().getNode(nodeId);
+		return node;
 	}
 
 	/**
@@ -161,6 +200,16 @@ public class BdsNodeFactory {
 		return nodesById.values();
 	}
 
+	/**
+	 * Reserve 'count' consecutive node IDs
+	 * @return First reserved ID
+	 */
+	public synchronized int reserveIds(int count) {
+		int firstId = nodeNumber;
+		nodeNumber += count;
+		return firstId;
+	}
+
 	public boolean isCreateFakeIds() {
 		return createFakeIds;
 	}
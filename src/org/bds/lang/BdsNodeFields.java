@@ -0,0 +1,140 @@
+package org.bds.lang;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fields of a BdsNode class
+ *
+ * Fields are found using reflection only once per class (and once per
+ * combination of 'getFields' flags), instead of once per node. Field
+ * lists are sorted by name and must not be modified.
+ *
+ * @author pcingola
+ */
+public class BdsNodeFields {
+
+	public static final int ADD_PARENT = 1;
+	public static final int ADD_NODE = 2;
+	public static final int ADD_PRIMITIVE = 4;
+	public static final int ADD_CLASS = 8;
+	public static final int ADD_ARRAY = 16;
+	public static final int ADD_STATIC = 32;
+	public static final int ADD_PRIVATE = 64;
+	public static final int FLAGS_MAX = 128;
+
+	public static final int FLAGS_DEFAULT = ADD_NODE | ADD_PRIMITIVE | ADD_CLASS | ADD_ARRAY;
+
+	private static final ConcurrentHashMap<Class<?>, BdsNodeFields> fieldsByClass = new ConcurrentHashMap<Class<?>, BdsNodeFields>();
+
+	Class<?> clazz;
+	Field all[]; // Fields using default flags (see BdsNode.getAllClassFields())
+	Field children[]; // Fields that can reference child nodes
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	List<Field> fieldsByFlags[] = new List[FLAGS_MAX];
+
+	/**
+	 * Get fields for a class
+	 */
+	public static BdsNodeFields get(Class<?> clazz) {
+		BdsNodeFields bdsNodeFields = fieldsByClass.get(clazz);
+		if (bdsNodeFields == null) {
+			bdsNodeFields = new BdsNodeFields(clazz);
+			BdsNodeFields prev = fieldsByClass.putIfAbsent(clazz, bdsNodeFields);
+			if (prev != null) bdsNodeFields = prev;
+		}
+		return bdsNodeFields;
+	}
+
+	/**
+	 * Can a field of this type reference a BdsNode?
+	 */
+	static boolean isNodeType(Class<?> type) {
+		if (type.isArray()) return isNodeType(type.getComponentType());
+		if (type.isPrimitive() || type == String.class) return false;
+		return BdsNode.class.isAssignableFrom(type) || type.isAssignableFrom(BdsNode.class);
+	}
+
+	BdsNodeFields(Class<?> clazz) {
+		this.clazz = clazz;
+		List<Field> allList = getFields(FLAGS_DEFAULT);
+		all = allList.toArray(new Field[0]);
+
+		ArrayList<Field> childList = new ArrayList<Field>();
+		for (Field f : all)
+			if (isNodeType(f.getType())) childList.add(f);
+		children = childList.toArray(new Field[0]);
+	}
+
+	/**
+	 * Create a list of fields (sorted by name)
+	 */
+	List<Field> createFields(int flags) {
+		// Top class (if we are looking for 'parent' field, we need to include BigDataScriptNode, otherwise we don't
+		Class<?> topClass = ((flags & ADD_PARENT) != 0 ? Object.class : BdsNode.class);
+
+		// Get all fields for each parent class
+		ArrayList<Field> fields = new ArrayList<Field>();
+
+		for (Class<?> c = clazz; c != topClass; c = c.getSuperclass()) {
+			for (Field f : c.getDeclaredFields()) {
+				// Add field?
+				boolean add;
+				if (Modifier.isPrivate(f.getModifiers())) add = (flags & ADD_PRIVATE) != 0;
+				else if (Modifier.isStatic(f.getModifiers())) add = (flags & ADD_STATIC) != 0;
+				else if (f.getName().equals("parent")) add = (flags & ADD_PARENT) != 0;
+				else if (f.getType().getCanonicalName().startsWith(BdsNodeFactory.get().packageName())) add = (flags & ADD_NODE) != 0;
+				else if (f.getType().isPrimitive() || (f.getType() == String.class)) add = (flags & ADD_PRIMITIVE) != 0;
+				else if (f.getType().isArray()) add = (flags & ADD_ARRAY) != 0;
+				else add = (flags & ADD_CLASS) != 0;
+
+				if (add) {
+					f.setAccessible(true);
+					fields.add(f);
+				}
+			}
+		}
+
+		// Sort by name
+		Collections.sort(fields, new Comparator<Field>() {
+			@Override
+			public int compare(Field o1, Field o2) {
+				return o1.getName().compareTo(o2.getName());
+			}
+		});
+
+		return Collections.unmodifiableList(fields);
+	}
+
+	/**
+	 * Fields using default flags
+	 */
+	public Field[] getAll() {
+		return all;
+	}
+
+	/**
+	 * Fields that can reference child nodes (nodes, arrays of nodes or generic objects)
+	 */
+	public Field[] getChildren() {
+		return children;
+	}
+
+	/**
+	 * Get fields (see ADD_* flags)
+	 */
+	public synchronized List<Field> getFields(int flags) {
+		List<Field> fields = fieldsByFlags[flags];
+		if (fields == null) {
+			fields = createFields(flags);
+			fieldsByFlags[flags] = fields;
+		}
+		return fields;
+	}
+
+}
@@ -0,0 +1,250 @@
+package org.bds.lang;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bds.serialize.BdsSerializer;
+
+/**
+ * Serialize / un-serialize BdsNodes
+ *
+ * Fields (and how to serialize each of them) are calculated only
+ * once per class, instead of once per node
+ *
+ * @author pcingola
+ */
+public class BdsNodeSerializer {
+
+	enum FieldKind {
+		NODE, NODES, STRINGS, ENUM, TYPE, STRING, BOOL, INT, LONG, DOUBLE, UNKNOWN
+	}
+
+	private static final Map<Class<?>, BdsNodeSerializer> serializerByClass = new HashMap<Class<?>, BdsNodeSerializer>();
+	private static Field parentField;
+
+	Field fields[];
+	FieldKind kinds[];
+
+	/**
+	 * Get serializer for a node's class
+	 */
+	public static synchronized BdsNodeSerializer get(BdsNode node) {
+		BdsNodeSerializer bdsNodeSerializer = serializerByClass.get(node.getClass());
+		if (bdsNodeSerializer == null) {
+			bdsNodeSerializer = new BdsNodeSerializer(node);
+			serializerByClass.put(node.getClass(), bdsNodeSerializer);
+		}
+		return bdsNodeSerializer;
+	}
+
+	static synchronized Field getParentField() {
+		if (parentField == null) {
+			try {
+				parentField = BdsNode.class.getDeclaredField("parent");
+				parentField.setAccessible(true);
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return parentField;
+	}
+
+	BdsNodeSerializer(BdsNode node) {
+		List<Field> fieldList = node.getAllClassFields(false);
+		fields = fieldList.toArray(new Field[0]);
+		kinds = new FieldKind[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i].setAccessible(true);
+			kinds[i] = kind(fields[i].getType());
+		}
+	}
+
+	FieldKind kind(Class<?> fieldClass) {
+		if (fieldClass.isArray()) {
+			Class<?> componentType = fieldClass.getComponentType();
+			if (componentType == String.class) return FieldKind.STRINGS;
+			if (BdsNode.class.isAssignableFrom(componentType) && !Type.class.isAssignableFrom(componentType)) return FieldKind.NODES;
+			return FieldKind.UNKNOWN;
+		}
+
+		if (fieldClass.isEnum()) return FieldKind.ENUM;
+		if (Type.class.isAssignableFrom(fieldClass)) return FieldKind.TYPE;
+		if (BdsNode.class.isAssignableFrom(fieldClass)) return FieldKind.NODE;
+		if (fieldClass == String.class) return FieldKind.STRING;
+		if ((fieldClass == Boolean.class) || (fieldClass == boolean.class)) return FieldKind.BOOL;
+		if ((fieldClass == Integer.class) || (fieldClass == int.class)) return FieldKind.INT;
+		if ((fieldClass == Long.class) || (fieldClass == long.class)) return FieldKind.LONG;
+		if ((fieldClass == Double.class) || (fieldClass == double.class)) return FieldKind.DOUBLE;
+		return FieldKind.UNKNOWN;
+	}
+
+	/**
+	 * Un-serialize a node
+	 * Note: References to other nodes are set after all nodes are loaded
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void serializeParse(BdsSerializer serializer, BdsNode node) {
+		// Use ID from file
+		node.updateId((int) serializer.getNextFieldInt());
+		node.lineNum = (int) serializer.getNextFieldInt();
+		node.charPosInLine = (int) serializer.getNextFieldInt();
+
+		// Parent node
+		int parentId = serializer.getNextFieldNodeId();
+		if (parentId != 0) serializer.addNodeReference(node, getParentField(), -1, parentId);
+
+		node.returnType = serializer.getNextFieldType();
+
+		// Iterate over fields
+		for (int i = 0; i < fields.length; i++) {
+			Field field = fields[i];
+			try {
+				switch (kinds[i]) {
+				case NODE:
+					int nodeId = serializer.getNextFieldNodeId();
+					if (nodeId != 0) serializer.addNodeReference(node, field, -1, nodeId);
+					else field.set(node, null);
+					break;
+
+				case NODES:
+					int nodeIds[] = serializer.getNextFieldNodeIds();
+					if (nodeIds == null) {
+						field.set(node, null);
+						break;
+					}
+
+					field.set(node, Array.newInstance(field.getType().getComponentType(), nodeIds.length));
+					for (int j = 0; j < nodeIds.length; j++)
+						if (nodeIds[j] != 0) serializer.addNodeReference(node, field, j, nodeIds[j]);
+					break;
+
+				case STRINGS:
+					field.set(node, serializer.getNextFieldStringArray());
+					break;
+
+				case ENUM:
+					String name = serializer.getNextFieldString();
+					field.set(node, name != null ? Enum.valueOf((Class<Enum>) field.getType(), name) : null);
+					break;
+
+				case TYPE:
+					field.set(node, serializer.getNextFieldType());
+					break;
+
+				case STRING:
+					field.set(node, serializer.getNextFieldString());
+					break;
+
+				case BOOL:
+					field.set(node, serializer.getNextFieldBool());
+					break;
+
+				case INT:
+					field.set(node, (int) serializer.getNextFieldInt());
+					break;
+
+				case LONG:
+					field.set(node, serializer.getNextFieldInt());
+					break;
+
+				case DOUBLE:
+					field.set(node, serializer.getNextFieldReal());
+					break;
+
+				default:
+					throw new RuntimeException("Cannot load class " + field.getType().getCanonicalName());
+				}
+			} catch (Exception e) {
+				throw new RuntimeException("Error loading field '" + field.getName() + "' from class '" + node.getClass().getCanonicalName() + "'", e);
+			}
+		}
+	}
+
+	/**
+	 * Serialize a node and all its (not yet serialized) child nodes
+	 */
+	public void serializeSave(BdsSerializer serializer, BdsNode node) {
+		serializer.startRecord(node.getClass().getSimpleName());
+		serializer.writeInt(node.id);
+		serializer.writeInt(node.lineNum);
+		serializer.writeInt(node.charPosInLine);
+		serializer.writeNode(node.parent);
+		serializer.writeType(node.returnType);
+
+		// Iterate over fields
+		for (int i = 0; i < fields.length; i++) {
+			Field field = fields[i];
+			try {
+				Object fieldObj = field.get(node);
+
+				switch (kinds[i]) {
+				case NODE:
+					serializer.writeNode((BdsNode) fieldObj);
+					break;
+
+				case NODES:
+					serializer.writeNodes((BdsNode[]) fieldObj);
+					break;
+
+				case STRINGS:
+					serializer.writeStrings((String[]) fieldObj);
+					break;
+
+				case ENUM:
+					serializer.writeString(fieldObj != null ? ((Enum<?>) fieldObj).name() : null);
+					break;
+
+				case TYPE:
+					serializer.writeType((Type) fieldObj);
+					break;
+
+				case STRING:
+					serializer.writeString((String) fieldObj);
+					break;
+
+				case BOOL:
+					serializer.writeBool((Boolean) fieldObj);
+					break;
+
+				case INT:
+				case LONG:
+					serializer.writeInt(((Number) fieldObj).longValue());
+					break;
+
+				case DOUBLE:
+					serializer.writeReal((Double) fieldObj);
+					break;
+
+				default:
+					throw new RuntimeException("Cannot save class " + field.getType().getCanonicalName());
+				}
+			} catch (Exception e) {
+				throw new RuntimeException("Error getting field '" + field.getName() + "' from class '" + node.getClass().getCanonicalName() + "'", e);
+			}
+		}
+
+		serializer.endRecord();
+
+		// Recurse
+		for (int i = 0; i < fields.length; i++) {
+			try {
+				if (kinds[i] == FieldKind.NODE) {
+					BdsNode child = (BdsNode) fields[i].get(node);
+					if (child != null) serializer.serializeSave(child);
+				} else if (kinds[i] == FieldKind.NODES) {
+					BdsNode children[] = (BdsNode[]) fields[i].get(node);
+					if (children != null) {
+						for (BdsNode child : children)
+							if (child != null) serializer.serializeSave(child);
+					}
+				}
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException("Error getting field '" + fields[i].getName() + "' from class '" + node.getClass().getCanonicalName() + "'", e);
+			}
+		}
+	}
+
+}
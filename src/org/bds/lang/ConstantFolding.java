@@ -0,0 +1,241 @@
+package org.bds.lang;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.bds.Config;
+import org.bds.run.BdsThread;
+import org.bds.scope.Scope;
+import org.bds.scope.ScopeSymbol;
+import org.bds.util.Gpr;
+
+/**
+ * Compile time optimizations (performed after type checking):
+ *
+ *   - Constant folding: Arithmetic, logic, bit, comparison and string
+ *     concatenation expressions whose operands are literals (or global
+ *     constants, such as 'G' or 'PI') are evaluated once and replaced
+ *     by a literal.
+ *
+ *   - Dead branch elimination: 'if' and 'while' statements having a
+ *     constant condition drop the statements that can never run.
+ *
+ * Literals take the ID, line number and position of the expression they
+ * replace, so checkpoints and debugging are not affected.
+ *
+ * @author pcingola
+ */
+public class ConstantFolding {
+
+	public static boolean debug = false;
+
+	ProgramUnit programUnit;
+	Config config;
+	Set<String> varNames; // Names of all variables declared in the program (they may hide global constants)
+	Set<BdsNode> visited;
+	int countFolded, countPruned;
+
+	public ConstantFolding(ProgramUnit programUnit, Config config) {
+		this.programUnit = programUnit;
+		this.config = config;
+	}
+
+	/**
+	 * Evaluate an expression
+	 * @return Expression's value or null if it cannot be evaluated
+	 */
+	Object eval(Expression expr) {
+		BdsThread bdsThread = new BdsThread(config);
+		try {
+			expr.runStep(bdsThread);
+			if (!bdsThread.isFatalError() && bdsThread.getStackSize() == 1) return bdsThread.pop();
+		} catch (Throwable t) {
+			// Cannot be evaluated at compile time (e.g. division by zero), error is reported at run time
+			if (debug) Gpr.debug("Cannot evaluate expression '" + expr + "': " + t.getMessage());
+		}
+		return null;
+	}
+
+	/**
+	 * Replace 'expr' by a literal having the same value
+	 * @return A literal or 'expr' if the expression cannot be folded
+	 */
+	Expression fold(Expression expr) {
+		Type type = expr.getReturnType();
+		if (type == null) return expr;
+
+		// All operands must be constant
+		for (Field field : expr.getAllClassFields(false, true, false, false, true, false, false)) {
+			Object fieldObj = get(expr, field);
+			if (fieldObj == null || fieldObj instanceof Type) continue;
+			if (!isConstant(fieldObj)) return expr;
+		}
+
+		// Evaluate and create literal
+		Object value = eval(expr);
+		if (value == null) return expr;
+
+		Literal literal = null;
+		if (type.isBool()) {
+			LiteralBool lit = new LiteralBool(expr.parent, null);
+			lit.setValue((Boolean) Type.BOOL.cast(value));
+			literal = lit;
+		} else if (type.isInt()) {
+			LiteralInt lit = new LiteralInt(expr.parent, null);
+			lit.setValue((Long) Type.INT.cast(value));
+			literal = lit;
+		} else if (type.isReal()) {
+			LiteralReal lit = new LiteralReal(expr.parent, null);
+			lit.setValue((Double) Type.REAL.cast(value));
+			literal = lit;
+		} else if (type.isString()) {
+			LiteralString lit = new LiteralString(expr.parent, null);
+			lit.setValue(value.toString());
+			literal = lit;
+		} else return expr;
+
+		// Same ID and source code position as the original expression
+		literal.returnType(null);
+		literal.lineNum = expr.lineNum;
+		literal.charPosInLine = expr.charPosInLine;
+		literal.updateId(expr.id);
+
+		if (debug) Gpr.debug("Folded expression '" + expr + "' => " + literal);
+		countFolded++;
+		return literal;
+	}
+
+	Object get(BdsNode node, Field field) {
+		try {
+			return field.get(node);
+		} catch (Exception e) {
+			throw new RuntimeException("Error getting field '" + field.getName() + "' from class '" + node.getClass().getCanonicalName() + "'", e);
+		}
+	}
+
+	/**
+	 * Is this node a constant?
+	 */
+	boolean isConstant(Object node) {
+		if (node instanceof LiteralBool || node instanceof LiteralInt || node instanceof LiteralReal) return true;
+		if (node instanceof LiteralString) return ((LiteralString) node).interpolateVars == null;
+
+		// Global constant? Make sure it is not hidden by a variable
+		if (node != null && node.getClass() == ReferenceVar.class) {
+			String name = ((ReferenceVar) node).name;
+			ScopeSymbol ss = Scope.getGlobalScope().getSymbolLocal(name);
+			return ss != null && ss.isConstant() && !varNames.contains(name);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Can this node be folded?
+	 */
+	boolean isFoldable(BdsNode node) {
+		return node instanceof ExpressionMath //
+				|| node instanceof ExpressionLogic //
+				|| node instanceof ExpressionCompare //
+				|| node instanceof ExpressionBit //
+				|| node instanceof ExpressionBitNegation //
+				|| node instanceof ExpressionLogicNot //
+				|| node instanceof ExpressionUnaryMinus // Note: Also 'ExpressionUnaryPlus'
+				|| node instanceof ExpressionWrapper //
+		;
+	}
+
+	/**
+	 * Optimize the program
+	 */
+	public void optimize() {
+		// Find all variable names
+		varNames = new HashSet<String>();
+		for (BdsNode node : programUnit.findNodes(VariableInit.class, true))
+			varNames.add(((VariableInit) node).varName);
+		for (BdsNode node : programUnit.findNodes(VariableInitImplicit.class, true))
+			varNames.add(((VariableInit) node).varName);
+
+		visited = Collections.newSetFromMap(new IdentityHashMap<BdsNode, Boolean>());
+		optimize(programUnit);
+
+		if (debug) Gpr.debug("Constant folding: " + countFolded + " expressions folded, " + countPruned + " branches removed");
+	}
+
+	/**
+	 * Optimize a node and its children
+	 * @return The node replacing 'node' (or 'node' itself)
+	 */
+	BdsNode optimize(BdsNode node) {
+		if (node == null || node instanceof Type || !visited.add(node)) return node;
+
+		// Optimize children first
+		for (Field field : node.getAllClassFields(false, true, false, false, true, false, false)) {
+			Object fieldObj = get(node, field);
+			if (fieldObj == null) continue;
+
+			if (fieldObj.getClass().isArray()) {
+				Class<?> componentType = fieldObj.getClass().getComponentType();
+				if (!BdsNode.class.isAssignableFrom(componentType)) continue;
+
+				Object array[] = (Object[]) fieldObj;
+				for (int i = 0; i < array.length; i++) {
+					BdsNode child = (BdsNode) array[i];
+					BdsNode newChild = optimize(child);
+					if (newChild != child && componentType.isInstance(newChild)) Array.set(fieldObj, i, newChild);
+				}
+			} else if (fieldObj instanceof BdsNode) {
+				BdsNode child = (BdsNode) fieldObj;
+				BdsNode newChild = optimize(child);
+				if (newChild != child && field.getType().isInstance(newChild)) set(node, field, newChild);
+			}
+		}
+
+		// Optimize this node
+		if (node instanceof If) prune((If) node);
+		else if (node instanceof While) prune((While) node);
+		else if (isFoldable(node)) return fold((Expression) node);
+
+		return node;
+	}
+
+	/**
+	 * Remove dead branches from an 'if' statement
+	 */
+	void prune(If ifStatement) {
+		if (!(ifStatement.condition instanceof LiteralBool)) return;
+
+		if (((LiteralBool) ifStatement.condition).isValue()) {
+			if (ifStatement.elseStatement != null) countPruned++;
+			ifStatement.elseStatement = null;
+		} else {
+			if (ifStatement.statement != null) countPruned++;
+			ifStatement.statement = null;
+		}
+	}
+
+	/**
+	 * Remove loop statements from 'while(false)'
+	 */
+	void prune(While whileStatement) {
+		if (!(whileStatement.condition instanceof LiteralBool)) return;
+
+		if (!((LiteralBool) whileStatement.condition).isValue()) {
+			if (whileStatement.statement != null) countPruned++;
+			whileStatement.statement = null;
+		}
+	}
+
+	void set(BdsNode node, Field field, BdsNode value) {
+		try {
+			field.set(node, value);
+		} catch (Exception e) {
+			throw new RuntimeException("Error setting field '" + field.getName() + "' from class '" + node.getClass().getCanonicalName() + "'", e);
+		}
+	}
+
+}
@@ -73,9 +73,13 @@ public class ExpressionPlus extends ExpressionMath {
 			bdsThread.push(lval.toString() + rval.toString());
 			return;
 		} else if (isList()) {
-			ArrayList list = new ArrayList();
-			if (left.isList()) list.addAll((Collection) lval);
-			else list.add(lval);
+			// Note: Copying a persistent list is O(1), so appending is cheap (e.g. 'l = l + x')
+			ArrayList list;
+			if (left.isList()) list = ((TypeList) returnType).copyList((Collection) lval);
+			else {
+				list = ((TypeList) returnType).newList(0);
+				list.add(lval);
+			}
 
 			if (right.isList()) list.addAll((Collection) rval);
 			else list.add(rval);
@@ -7,6 +7,7 @@ import java.util.LinkedList;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.bds.Config;
 import org.bds.compile.CompilerMessages;
+import org.bds.data.DataWriters;
 import org.bds.osCmd.Exec;
 import org.bds.osCmd.ExecResult;
 import org.bds.run.BdsThread;
@@ -79,11 +80,8 @@ public class ExpressionSys extends Expression {
 	public String getCommands(BdsThread bdsThread) {
 		if (interpolateVars == null) return commands; // No variable interpolation? => Literal
 
-		// Variable interpolation
-		bdsThread.run(interpolateVars);
-		if (bdsThread.isCheckpointRecover()) return null;
-
-		return bdsThread.pop().toString();
+		// Variable interpolation (render template directly, no need to use the stack)
+		return interpolateVars.render(bdsThread);
 	}
 
 	public String getSysFileName(String execId) {
@@ -133,6 +131,9 @@ public class ExpressionSys extends Expression {
 
 		args.add(cmds);
 
+		// Files being appended must be written before running the command
+		DataWriters.getInstance().flushAll();
+
 		// Run command line
 		ExecResult execResult = Exec.exec(args, bdsThread.getConfig().isQuiet());
 
@@ -8,12 +8,14 @@ import org.bds.compile.CompilerMessages;
 import org.bds.compile.CompilerMessage.MessageType;
 import org.bds.data.Data;
 import org.bds.data.DataRemote;
+import org.bds.data.DataWriters;
 import org.bds.executioner.Executioner;
 import org.bds.executioner.Executioners;
 import org.bds.run.BdsThread;
 import org.bds.scope.Scope;
 import org.bds.task.Task;
 import org.bds.task.TaskDependency;
+import org.bds.task.TaskJournal;
 import org.bds.task.TaskState;
 import org.bds.util.Gpr;
 import org.bds.util.Timer;
@@ -57,26 +59,41 @@ public class ExpressionTask extends ExpressionWithScope {
 		// Make sure the task in in initial state
 		task.reset();
 
+		// Files being appended must be written before the task runs
+		DataWriters.getInstance().flushAll();
+
 		// Select executioner and queue for execution
 		String runSystem = bdsThread.getString(TASK_OPTION_SYSTEM);
 		Executioner executioner = Executioners.getInstance().get(runSystem);
 
 		// Queue exec
+		TaskJournal taskJournal = TaskJournal.get();
 		if (bdsThread.getConfig().isDryRun()) {
 			// Dry run: Don't run the task, just show what would be run
 			Timer.showStdErr("Dry run task:\n" + task.toString(true, true));
-			task.state(TaskState.SCHEDULED);
-			task.state(TaskState.STARTED);
-			task.state(TaskState.RUNNING);
-			task.state(TaskState.FINISHED);
-			task.setExitValue(0);
-			bdsThread.add(task);
+			finished(bdsThread, task);
+		} else if (taskJournal != null && taskJournal.isFinished(task)) {
+			// Task finished in a previous run: Don't run it again
+			if (bdsThread.isVerbose()) Timer.showStdErr("Task finished in a previous run (journal), skipping: " + task.getId());
+			finished(bdsThread, task);
 		} else {
 			bdsThread.add(task);
 			executioner.add(task);
 		}
 	}
 
+	/**
+	 * Mark a task as finished without running it
+	 */
+	static void finished(BdsThread bdsThread, Task task) {
+		task.state(TaskState.SCHEDULED);
+		task.state(TaskState.STARTED);
+		task.state(TaskState.RUNNING);
+		task.state(TaskState.FINISHED);
+		task.setExitValue(0);
+		bdsThread.add(task);
+	}
+
 	public ExpressionTask(BdsNode parent, ParseTree tree) {
 		super(parent, tree);
 	}
@@ -1,7 +1,10 @@
 package org.bds.lang;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -13,6 +16,7 @@ import org.bds.run.RunState;
 import org.bds.scope.Scope;
 import org.bds.scope.ScopeSymbol;
 import org.bds.util.Gpr;
+import org.bds.util.LazyList;
 
 /**
  * for( ForInit ; ForCondition ; ForEnd ) Statements
@@ -68,7 +72,7 @@ public class ForLoopList extends StatementWithScope {
 	 * Iterable values (list of elements to iterate)
 	 */
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	protected ArrayList initIterableValues(BdsThread bdsThread, ScopeSymbol varSym) {
+	protected List initIterableValues(BdsThread bdsThread, ScopeSymbol varSym) {
 		// Evaluate list
 		bdsThread.run(expression);
 
@@ -82,8 +86,11 @@ public class ForLoopList extends StatementWithScope {
 		// Find (or create) a collection we can iterate on
 		//---
 		Object res = bdsThread.pop();
-		ArrayList iterableValues = new ArrayList();
-		if (res instanceof List) iterableValues.addAll((List) res);
+		List iterableValues = new ArrayList();
+		if (res instanceof LazyList && !((LazyList) res).isMaterialized()) {
+			// Lazy list: Elements are read-only, so we can iterate without making a copy
+			iterableValues = (List) res;
+		} else if (res instanceof List) iterableValues.addAll((List) res);
 		else if (res instanceof Map) {
 			// Create a sorted list of values
 			iterableValues.addAll(((Map) res).values());
@@ -123,6 +130,16 @@ public class ForLoopList extends StatementWithScope {
 		return expression.returnType(scope);
 	}
 
+	/**
+	 * Create an iterator for the collection
+	 */
+	@SuppressWarnings({ "rawtypes" })
+	Iterator iterator(List iterableValues, long interStart) {
+		if (interStart > 0) return iterableValues.listIterator((int) Math.min(interStart, iterableValues.size())); // Recovered from checkpoint: Lazy lists are materialized
+		if (iterableValues instanceof LazyList) return ((LazyList) iterableValues).iteratorLazy();
+		return iterableValues.iterator();
+	}
+
 	/**
 	 * Run
 	 */
@@ -130,7 +147,7 @@ public class ForLoopList extends StatementWithScope {
 	@Override
 	public void runStep(BdsThread bdsThread) {
 		ScopeSymbol varSym = initBeginDecl(bdsThread);
-		ArrayList iterableValues = initIterableValues(bdsThread, varSym);
+		List iterableValues = initIterableValues(bdsThread, varSym);
 		ScopeSymbol iterableCount = initIterableCounter(bdsThread);
 
 		// First element to iterate.
@@ -138,35 +155,47 @@ public class ForLoopList extends StatementWithScope {
 		long interStart = (Long) iterableCount.getValue(); //
 
 		// Iterate on collection
-		for (int iter = (int) interStart; iter < iterableValues.size(); iter++) {
-			iterableCount.setValue(iter); // Update scope symbol (so that checkpoints can save state)
-
-			// Get the element we are iterating on
-			Object o = iterableValues.get(iter);
-			varSym.setValue(varSym.getType().cast(o));
-
-			bdsThread.run(statement); // Loop statement
-
-			switch (bdsThread.getRunState()) {
-			case OK:
-			case CHECKPOINT_RECOVER:
-				break;
-
-			case BREAK: // Break from loop
-				bdsThread.setRunState(RunState.OK);
-				return;
-
-			case CONTINUE: // Continue: Nothing to do, just continue with the next iteration
-				bdsThread.setRunState(RunState.OK);
-				break;
-
-			case FATAL_ERROR:
-			case RETURN: // Return
-			case EXIT: // Exit program
-				return;
-
-			default:
-				throw new RuntimeException("Unhandled RunState: " + bdsThread.getRunState());
+		Iterator it = iterator(iterableValues, interStart);
+		try {
+			for (long iter = interStart; it.hasNext(); iter++) {
+				iterableCount.setValue(iter); // Update scope symbol (so that checkpoints can save state)
+
+				// Get the element we are iterating on
+				Object o = it.next();
+				varSym.setValue(varSym.getType().cast(o));
+
+				bdsThread.run(statement); // Loop statement
+
+				switch (bdsThread.getRunState()) {
+				case OK:
+				case CHECKPOINT_RECOVER:
+					break;
+
+				case BREAK: // Break from loop
+					bdsThread.setRunState(RunState.OK);
+					return;
+
+				case CONTINUE: // Continue: Nothing to do, just continue with the next iteration
+					bdsThread.setRunState(RunState.OK);
+					break;
+
+				case FATAL_ERROR:
+				case RETURN: // Return
+				case EXIT: // Exit program
+					return;
+
+				default:
+					throw new RuntimeException("Unhandled RunState: " + bdsThread.getRunState());
+				}
+			}
+		} finally {
+			// Close iterator (e.g. lazy lists reading from a file)
+			if (it instanceof Closeable) {
+				try {
+					((Closeable) it).close();
+				} catch (IOException e) {
+					// Nothing to do
+				}
 			}
 		}
 	}
@@ -18,6 +18,7 @@ public class FunctionCall extends Expression {
 	protected String functionName;
 	protected Args args;
 	protected FunctionDeclaration functionDeclaration;
+	private Class<?> argClassNoCast[]; // Inline cache: Argument classes that did not require a cast
 
 	public FunctionCall(BdsNode parent, ParseTree tree) {
 		super(parent, tree);
@@ -30,6 +31,28 @@ public class FunctionCall extends Expression {
 		bdsThread.push(functionDeclaration.apply(bdsThread, arguments));
 	}
 
+	/**
+	 * Cast argument number 'idx' to the parameter's type
+	 *
+	 * Inline cache: 'Type.cast()' only depends on the value's class, so if a
+	 * value of the same class was returned unchanged before, we skip the cast
+	 */
+	protected Object castArgument(int idx, Type type, Object value) {
+		if (value == null) return null;
+
+		Class<?> classNoCast[] = argClassNoCast;
+		if (classNoCast == null) {
+			classNoCast = new Class<?>[functionDeclaration.getParameters().size()];
+			argClassNoCast = classNoCast;
+		}
+
+		if (classNoCast[idx] == value.getClass()) return value;
+
+		Object castValue = type.cast(value);
+		if (castValue == value) classNoCast[idx] = value.getClass();
+		return castValue;
+	}
+
 	/**
 	 * Evaluate function's arguments
 	 */
@@ -43,13 +66,24 @@ public class FunctionCall extends Expression {
 			bdsThread.run(arguments[i]);
 
 			Object value = bdsThread.pop();
-			value = fparam[i].type.cast(value);
-			values[i] = value;
+			values[i] = castArgument(i, fparam[i].type, value);
 		}
 
 		bdsThread.push(values);
 	}
 
+	public Args getArgs() {
+		return args;
+	}
+
+	public FunctionDeclaration getFunctionDeclaration() {
+		return functionDeclaration;
+	}
+
+	public String getFunctionName() {
+		return functionName;
+	}
+
 	@Override
 	protected boolean isReturnTypesNotNull() {
 		return true;
@@ -125,5 +159,6 @@ public class FunctionCall extends Expression {
 	protected void typeCheckNotNull(Scope scope, CompilerMessages compilerMessages) {
 		// Could not find the function?
 		if (functionDeclaration == null) compilerMessages.add(this, "Function " + signature() + " cannot be resolved", MessageType.ERROR);
+		else functionDeclaration.typeCheckCall(this, scope, compilerMessages);
 	}
 }
@@ -1,6 +1,10 @@
 package org.bds.lang;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.bds.compile.CompilerMessages;
@@ -18,6 +22,9 @@ import org.bds.util.Gpr;
  */
 public class FunctionDeclaration extends StatementWithScope {
 
+	// List and map methods that modify the object (see 'checkParallelSafe')
+	public static final Set<String> MODIFY_METHODS = new HashSet<>(Arrays.asList("add", "pop", "push", "remove", "removeIdx"));
+
 	protected String functionName;
 	protected Type funcType;
 	protected Parameters parameters;
@@ -84,7 +91,7 @@ public class FunctionDeclaration extends StatementWithScope {
 
 		// Run function body
 		runFunction(bdsThread);
-		if (bdsThread.isFatalError()) throw new RuntimeException("Fatal error");
+		if (bdsThread.isFatalError()) throw new RuntimeException(bdsThread.getFatalErrorMessage());
 
 		// Get return value
 		Object retVal = bdsThread.getReturnValue();
@@ -96,6 +103,85 @@ public class FunctionDeclaration extends StatementWithScope {
 		return retVal;
 	}
 
+	/**
+	 * Check that this function can be safely evaluated in parallel
+	 * (e.g. 'list.pmap(f)'): It must not create tasks or parallel threads,
+	 * wait, checkpoint, exit, change the current directory, assign values
+	 * to non-local variables or modify non-local lists / maps (e.g. 'g.add(x)').
+	 * Called functions are checked recursively.
+	 *
+	 * @return An error message or null if the function is safe
+	 */
+	public String checkParallelSafe(Scope scope) {
+		return checkParallelSafe(scope, new HashSet<FunctionDeclaration>());
+	}
+
+	String checkParallelSafe(Scope scope, Set<FunctionDeclaration> checked) {
+		if (isNative() || !checked.add(this)) return null;
+
+		// Local variable names: parameters and variables declared within the function
+		Set<String> localNames = new HashSet<>();
+		for (VarDeclaration vd : parameters.getVarDecl())
+			for (VariableInit vi : vd.getVarInit())
+				localNames.add(vi.getVarName());
+
+		List<BdsNode> nodes = statement.findNodes(null, true);
+		for (BdsNode node : nodes) {
+			if (node instanceof VariableInit) localNames.add(((VariableInit) node).getVarName());
+		}
+
+		// Check all nodes
+		String fname = "Function '" + functionName + "'";
+		for (BdsNode node : nodes) {
+			if (node instanceof ExpressionTask) return fname + " creates tasks or parallel threads";
+			if ((node instanceof Wait) || (node instanceof Checkpoint) || (node instanceof Exit) || (node instanceof Kill)) return fname + " uses '" + node.getClass().getSimpleName().toLowerCase() + "' statement";
+
+			// Assignment to non-local variable?
+			Expression assigned[] = null;
+			if (node instanceof ExpressionAssignmentList) assigned = ((ExpressionAssignmentList) node).lefts;
+			else if (node instanceof ExpressionAssignment) assigned = new Expression[] { ((ExpressionAssignment) node).left };
+			else if (node instanceof Pre) assigned = new Expression[] { ((Pre) node).expr };
+
+			if (assigned != null) {
+				for (Expression expr : assigned) {
+					String varName = (expr instanceof Reference ? ((Reference) expr).getVariableName() : null);
+					if (varName == null || !localNames.contains(varName)) return fname + " assigns non-local variable '" + expr + "'";
+				}
+			}
+
+			// Method modifying a non-local list or map?
+			if ((node instanceof MethodCall) && MODIFY_METHODS.contains(((MethodCall) node).getFunctionName())) {
+				Expression obj = ((MethodCall) node).expresionObj;
+				String varName = (obj instanceof Reference ? ((Reference) obj).getVariableName() : null);
+				if (varName == null || !localNames.contains(varName)) return fname + " modifies non-local variable '" + obj + "'";
+			}
+
+			// Changing the current directory changes the (calling) thread's state
+			if ((node instanceof MethodCall) && ((MethodCall) node).getFunctionName().equals("chdir")) return fname + " changes the current directory ('chdir')";
+
+			// Check called functions
+			if ((node instanceof FunctionCall) && !(node instanceof MethodCall)) {
+				FunctionCall fcall = (FunctionCall) node;
+				FunctionDeclaration fdecl = fcall.getFunctionDeclaration();
+
+				// Not resolved yet? Check all functions having the same name
+				List<FunctionDeclaration> candidates = new ArrayList<>();
+				if (fdecl != null) candidates.add(fdecl);
+				else {
+					for (ScopeSymbol ss : scope.getFunctions(fcall.getFunctionName()))
+						candidates.add((FunctionDeclaration) ss.getValue());
+				}
+
+				for (FunctionDeclaration fd : candidates) {
+					String err = fd.checkParallelSafe(scope, checked);
+					if (err != null) return err;
+				}
+			}
+		}
+
+		return null;
+	}
+
 	public String getFunctionName() {
 		return functionName;
 	}
@@ -191,6 +277,13 @@ public class FunctionDeclaration extends StatementWithScope {
 		return sb.toString();
 	}
 
+	/**
+	 * Additional type checking performed on every call to this function
+	 */
+	public void typeCheckCall(FunctionCall functionCall, Scope scope, CompilerMessages compilerMessages) {
+		// Default: Nothing to do
+	}
+
 	@Override
 	protected void typeCheck(Scope scope, CompilerMessages compilerMessages) {
 		// Function name collides with variable name?
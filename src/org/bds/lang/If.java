@@ -22,6 +22,18 @@ public class If extends Statement {
 		super(parent, tree);
 	}
 
+	public Expression getCondition() {
+		return condition;
+	}
+
+	public Statement getElseStatement() {
+		return elseStatement;
+	}
+
+	public Statement getStatement() {
+		return statement;
+	}
+
 	@Override
 	protected void parse(ParseTree tree) {
 		int idx = 0;
@@ -58,13 +70,13 @@ public class If extends Statement {
 
 		if (bdsThread.isCheckpointRecover()) {
 			runCondition(bdsThread);
-			if (bdsThread.isCheckpointRecover()) bdsThread.run(statement);
-			if (bdsThread.isCheckpointRecover()) bdsThread.run(elseStatement);
+			if (bdsThread.isCheckpointRecover() && statement != null) bdsThread.run(statement);
+			if (bdsThread.isCheckpointRecover() && elseStatement != null) bdsThread.run(elseStatement);
 			return;
 		}
 
 		if (runCondition(bdsThread)) {
-			bdsThread.run(statement);
+			if (statement != null) bdsThread.run(statement); // Note: Dead branches are removed (see ConstantFolding)
 		} else if (elseStatement != null) {
 			bdsThread.run(elseStatement);
 		}
@@ -77,7 +89,7 @@ public class If extends Statement {
 		sb.append("if( ");
 		if (condition != null) sb.append(condition);
 		sb.append(" ) {\n");
-		sb.append(Gpr.prependEachLine("\t", statement.toString()));
+		if (statement != null) sb.append(Gpr.prependEachLine("\t", statement.toString()));
 		if (elseStatement != null) {
 			sb.append("\n} else {\n");
 			sb.append(Gpr.prependEachLine("\t", elseStatement.toString()));
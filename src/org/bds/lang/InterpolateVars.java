@@ -9,13 +9,26 @@ import org.antlr.v4.runtime.tree.ParseTree;
 import org.bds.compile.CompilerMessages;
 import org.bds.run.BdsThread;
 import org.bds.scope.Scope;
+import org.bds.scope.ScopeSymbol;
 import org.bds.util.Tuple;
 
+/**
+ * Variable interpolation in strings (e.g. "Hello $name")
+ *
+ * The interpolated string is compiled into a 'template' of constant
+ * segments ('literals') and slots ('exprs'). Slots that are plain
+ * variable references are resolved directly from the scope when
+ * rendering, without pushing / popping values in the interpreter's stack.
+ *
+ * @author pcingola
+ */
 public class InterpolateVars extends Literal {
 
 	boolean useLiteral;
 	String literals[]; // This is used in case of interpolated string literal
 	Expression exprs[]; // This is used in case of interpolated string literal; Usually these are VarReferences, but they might change to generic expressions in the future
+	private volatile String slotVarNames[]; // Compiled template: Variable name for each slot that is a plain variable reference (null otherwise)
+	private int renderLenHint; // Length of the last rendered string (used to pre-size the buffer)
 
 	/**
 	 * Un-escape string
@@ -116,6 +129,23 @@ public class InterpolateVars extends Literal {
 		super(parent, tree);
 	}
 
+	/**
+	 * Compile template: Find slots that can be resolved directly from the scope
+	 */
+	String[] compileTemplate() {
+		String varNames[] = new String[exprs.length];
+		int len = 0;
+		for (int i = 0; i < literals.length; i++) {
+			len += literals[i].length();
+			Expression ref = exprs[i];
+			if (ref != null && ref.getClass() == ReferenceVar.class) varNames[i] = ((ReferenceVar) ref).getVariableName();
+		}
+
+		renderLenHint = 2 * len;
+		slotVarNames = varNames;
+		return varNames;
+	}
+
 	/**
 	 * Find the next 'string' (until an interpolation is found)
 	 */
@@ -325,35 +355,54 @@ public class InterpolateVars extends Literal {
 		return !isEmpty();
 	}
 
-	@Override
-	public Type returnType(Scope scope) {
-		if (returnType != null) return returnType;
-
-		returnType = Type.STRING;
-		return returnType;
-	}
-
-	@Override
-	public void runStep(BdsThread bdsThread) {
-		StringBuilder sb = new StringBuilder();
+	/**
+	 * Render the interpolated string
+	 * @return Interpolated string (null if we are recovering from a checkpoint)
+	 */
+	public String render(BdsThread bdsThread) {
+		String varNames[] = slotVarNames;
+		if (varNames == null) varNames = compileTemplate();
 
-		// Variable interpolation
+		StringBuilder sb = new StringBuilder(renderLenHint);
+		Scope scope = bdsThread.getScope();
 		for (int i = 0; i < literals.length; i++) {
 			// String before variable
 			sb.append(literals[i]);
 
 			// Variable's value
-			Expression ref = exprs[i];
-			if (ref != null) {
-				bdsThread.run(ref);
-				if (!bdsThread.isCheckpointRecover()) {
-					Object val = bdsThread.pop();
-					sb.append(interpolateValue(val));
+			if (varNames[i] != null) {
+				// Plain variable reference: Resolve directly from scope
+				if (bdsThread.isCheckpointRecover()) continue;
+				ScopeSymbol ss = scope.getSymbol(varNames[i]);
+				if (ss == null) {
+					bdsThread.fatalError(exprs[i], "Cannot find variable '" + varNames[i] + "'");
+					return null;
 				}
+				sb.append(interpolateValue(ss.getValue()));
+			} else if (exprs[i] != null) {
+				// Any other expression: Run it
+				bdsThread.run(exprs[i]);
+				if (!bdsThread.isCheckpointRecover()) sb.append(interpolateValue(bdsThread.pop()));
 			}
 		}
 
-		bdsThread.push(sb.toString());
+		if (bdsThread.isCheckpointRecover()) return null;
+		if (sb.length() > renderLenHint) renderLenHint = sb.length();
+		return sb.toString();
+	}
+
+	@Override
+	public Type returnType(Scope scope) {
+		if (returnType != null) return returnType;
+
+		returnType = Type.STRING;
+		return returnType;
+	}
+
+	@Override
+	public void runStep(BdsThread bdsThread) {
+		String str = render(bdsThread);
+		if (str != null) bdsThread.push(str);
 	}
 
 	public void setUseLiteral(boolean useLiteral) {
@@ -71,7 +71,7 @@ public class LiteralList extends Literal {
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	@Override
 	public void runStep(BdsThread bdsThread) {
-		ArrayList list = new ArrayList(values.length);
+		ArrayList list = ((TypeList) returnType).newList(values.length);
 		Type baseType = baseType();
 
 		for (BdsNode node : values) {
@@ -72,7 +72,8 @@ public class LiteralMap extends Literal {
 
 	@Override
 	public void runStep(BdsThread bdsThread) {
-		HashMap<String, Object> map = new HashMap<String, Object>(values.length);
+		@SuppressWarnings("unchecked")
+		HashMap<String, Object> map = ((TypeMap) returnType).newMap(values.length);
 		Type baseType = baseType();
 
 		for (int i = 0; i < keys.length; i++) {
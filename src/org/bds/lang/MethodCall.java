@@ -81,8 +81,7 @@ public class MethodCall extends FunctionCall {
 		for (int i = 0; i < fparam.length; i++) {
 			bdsThread.run(arguments[i]);
 			Object value = bdsThread.pop();
-			value = fparam[i].type.cast(value);
-			values[i] = value;
+			values[i] = castArgument(i, fparam[i].type, value);
 		}
 
 		if (!bdsThread.isCheckpointRecover()) {
@@ -135,6 +134,7 @@ public class MethodCall extends FunctionCall {
 	protected void typeCheckNotNull(Scope scope, CompilerMessages compilerMessages) {
 		// Could not find the function?
 		if (functionDeclaration == null) compilerMessages.add(this, "Method " + signature() + " cannot be resolved", MessageType.ERROR);
+		else functionDeclaration.typeCheckCall(this, scope, compilerMessages);
 	}
 
 }
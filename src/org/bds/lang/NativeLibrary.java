@@ -0,0 +1,257 @@
+package org.bds.lang;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bds.lang.nativeFunctions.NativeLibraryFunctions;
+import org.bds.lang.nativeMethods.string.NativeLibraryString;
+
+/**
+ * Native functions and methods library
+ *
+ * Native functions and methods are not created at startup: They are
+ * created (and added to global or class scope) the first time a name
+ * is looked up in that scope (e.g. when type-checking a function call).
+ * Small programs only create the few native functions they use.
+ *
+ * Node IDs for natives are reserved when the library is created, so a
+ * native has the same ID in every run, no matter when (or if) it was
+ * created. This is required by checkpoints and cached programs, which
+ * reference native functions by node ID.
+ *
+ * @author pcingola
+ */
+public class NativeLibrary {
+
+	/**
+	 * A native function or method (name and class name)
+	 * Note: We use class names, so classes are not even loaded until they are used
+	 */
+	public static class Entry {
+
+		String functionName;
+		String className;
+
+		Entry(String functionName, String className) {
+			this.functionName = functionName;
+			this.className = className;
+		}
+
+		@Override
+		public String toString() {
+			return functionName + "\t" + className;
+		}
+	}
+
+	/**
+	 * Natives for one scope (global scope or a class scope)
+	 */
+	class Natives {
+
+		Type classType; // Class type (null for global scope)
+		Entry entries[];
+		int firstId; // Node ID reserved for entries[0]
+		boolean created[];
+		FunctionDeclaration nodes[];
+		ConcurrentHashMap<String, List<Integer>> pending; // Function name => Entries not created yet
+
+		Natives(Type classType, Entry entries[]) {
+			this.classType = classType;
+			this.entries = entries;
+			created = new boolean[entries.length];
+			nodes = new FunctionDeclaration[entries.length];
+			firstId = BdsNodeFactory.get().reserveIds(entries.length);
+
+			pending = new ConcurrentHashMap<String, List<Integer>>();
+			for (int i = 0; i < entries.length; i++) {
+				List<Integer> idxs = pending.get(entries[i].functionName);
+				if (idxs == null) {
+					idxs = new ArrayList<Integer>();
+					pending.put(entries[i].functionName, idxs);
+				}
+				idxs.add(i);
+			}
+		}
+
+		/**
+		 * Create a native (it adds itself to global or class scope)
+		 * Note: Natives are created only once, later invocations return the same node
+		 */
+		FunctionDeclaration create(int idx) {
+			if (created[idx]) return nodes[idx]; // Note: This is null while the native is being created
+			created[idx] = true;
+
+			Entry entry = entries[idx];
+			FunctionDeclaration fdecl;
+			try {
+				Class<?> clazz = Class.forName(entry.className);
+
+				// List and map methods are created for a specific base type
+				if (classType instanceof TypeList) fdecl = (FunctionDeclaration) clazz.getConstructor(Type.class).newInstance(((TypeList) classType).getBaseType());
+				else fdecl = (FunctionDeclaration) clazz.newInstance();
+			} catch (Exception e) {
+				throw new RuntimeException("Error creating native '" + entry.className + "'", e);
+			}
+
+			if (!entry.functionName.equals(fdecl.getFunctionName())) throw new RuntimeException("Native '" + entry.className + "' is registered as '" + entry.functionName + "', but its name is '" + fdecl.getFunctionName() + "'");
+			fdecl.updateId(firstId + idx);
+			nodes[idx] = fdecl;
+			return fdecl;
+		}
+
+		/**
+		 * Create all natives named 'functionName'
+		 */
+		void create(String functionName) {
+			if (!pending.containsKey(functionName)) return; // Fast path: Nothing to create
+
+			synchronized (NativeLibrary.this) {
+				List<Integer> idxs = pending.remove(functionName);
+				if (idxs == null) return;
+				for (int idx : idxs)
+					create(idx);
+			}
+		}
+
+		boolean hasId(int nodeId) {
+			return firstId <= nodeId && nodeId < firstId + entries.length;
+		}
+	}
+
+	private static NativeLibrary nativeLibrary = new NativeLibrary();
+
+	Map<String, Natives> nativesByScope; // Scope name (empty for global scope) => Natives
+	List<Natives> natives;
+
+	/**
+	 * Create a native function or method entry
+	 */
+	public static Entry entry(String functionName, String className) {
+		return new Entry(functionName, className);
+	}
+
+	/**
+	 * Get singleton
+	 */
+	public static NativeLibrary get() {
+		return nativeLibrary;
+	}
+
+	/**
+	 * Create a new library
+	 * Note: This must be done after resetting BdsNodeFactory, so that node IDs are always the same
+	 */
+	public static NativeLibrary reset() {
+		nativeLibrary = new NativeLibrary();
+		nativeLibrary.initialize();
+		return nativeLibrary;
+	}
+
+	NativeLibrary() {
+		nativesByScope = new HashMap<String, Natives>();
+		natives = new ArrayList<Natives>();
+	}
+
+	/**
+	 * Number of natives created so far
+	 */
+	public synchronized int countCreated() {
+		int count = 0;
+		for (Natives n : natives)
+			for (boolean c : n.created)
+				if (c) count++;
+		return count;
+	}
+
+	/**
+	 * Create all natives (used for testing)
+	 */
+	public synchronized void createAll() {
+		for (Natives n : natives) {
+			n.pending.clear();
+			for (int i = 0; i < n.entries.length; i++)
+				n.create(i);
+		}
+	}
+
+	/**
+	 * Create natives named 'functionName' for a class scope (global scope if 'classType' is null)
+	 */
+	public void create(Type classType, String functionName) {
+		Natives n = getNatives(classType);
+		if (n != null) n.create(functionName);
+	}
+
+	/**
+	 * Find natives entries for a scope (reserve node IDs if needed)
+	 */
+	synchronized Natives getNatives(Type classType) {
+		String scopeName = (classType == null ? "" : classType.toString());
+		if (nativesByScope.containsKey(scopeName)) return nativesByScope.get(scopeName);
+
+		Entry entries[] = null;
+		if (classType == null) entries = NativeLibraryFunctions.natives;
+		else if (classType.isString()) entries = NativeLibraryString.natives;
+		else if (classType instanceof TypeMap) entries = TypeMap.natives;
+		else if (classType instanceof TypeList) entries = TypeList.natives;
+
+		Natives n = null;
+		if (entries != null) {
+			n = new Natives(classType, entries);
+			natives.add(n);
+		}
+		nativesByScope.put(scopeName, n);
+		return n;
+	}
+
+	/**
+	 * Get a native by node ID (create it if needed)
+	 * @return A native or null if 'nodeId' is not a native's ID
+	 */
+	public synchronized BdsNode getNode(int nodeId) {
+		for (Natives n : natives)
+			if (n.hasId(nodeId)) return n.create(nodeId - n.firstId);
+		return null;
+	}
+
+	/**
+	 * Reserve node IDs for global functions and for methods of
+	 * primitive types (string, lists and maps), always in the same order
+	 */
+	void initialize() {
+		getNatives(null);
+		getNatives(Type.STRING);
+
+		Type baseTypes[] = { Type.BOOL, Type.INT, Type.REAL, Type.STRING };
+		for (Type baseType : baseTypes) {
+			getNatives(TypeList.get(baseType));
+			getNatives(TypeMap.get(baseType));
+		}
+	}
+
+	/**
+	 * Total number of natives (created or not)
+	 */
+	public synchronized int size() {
+		int size = 0;
+		for (Natives n : natives)
+			size += n.entries.length;
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(getClass().getSimpleName() + ":\n");
+		for (Natives n : natives) {
+			sb.append("\t" + (n.classType == null ? "global" : n.classType.toString()) + ":\n");
+			for (int i = 0; i < n.entries.length; i++)
+				sb.append("\t\t" + n.entries[i] + (n.created[i] ? "" : "\t(not created)") + "\n");
+		}
+		return sb.toString();
+	}
+
+}
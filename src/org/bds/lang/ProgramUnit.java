@@ -83,9 +83,10 @@ public class ProgramUnit extends BlockWithFile {
 		return testFuncs;
 	}
 
-	@Override
-	protected void typeCheck(Scope scope, CompilerMessages compilerMessages) {
-		// Add all functions
+	/**
+	 * Add a symbol for each function to 'scope'
+	 */
+	public void addFunctionSymbols(Scope scope) {
 		List<BdsNode> funcs = findNodes(FunctionDeclaration.class, true);
 		for (BdsNode func : funcs) {
 			// Create scope symbol
@@ -97,4 +98,10 @@ public class ProgramUnit extends BlockWithFile {
 			scope.add(ssym);
 		}
 	}
+
+	@Override
+	protected void typeCheck(Scope scope, CompilerMessages compilerMessages) {
+		// Add all functions
+		addFunctionSymbols(scope);
+	}
 }
@@ -210,9 +210,9 @@ public class Type extends BdsNode implements Comparable<Type> {
 		case FUNC:
 			return Type.FUNC_EMTPY;
 		case LIST:
-			return new ArrayList();
+			return ((TypeList) this).newList(0);
 		case MAP:
-			return new HashMap();
+			return ((TypeMap) this).newMap(0);
 		default:
 			throw new RuntimeException("Cannot find default value for type " + this);
 		}
@@ -345,8 +345,8 @@ public class Type extends BdsNode implements Comparable<Type> {
 	}
 
 	@Override
-	public String serializeSave(BdsSerializer serializer) {
-		return ""; // We don't save data type nodes
+	public void serializeSave(BdsSerializer serializer) {
+		// We don't save data type nodes
 	}
 
 	@Override
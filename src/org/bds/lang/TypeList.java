@@ -1,36 +1,13 @@
 package org.bds.lang;
 
 import java.util.ArrayList;
+import java.util.Collection;
 
 import org.antlr.v4.runtime.tree.ParseTree;
-import org.bds.lang.nativeMethods.MethodNative;
-import org.bds.lang.nativeMethods.list.MethodNativeListAdd;
-import org.bds.lang.nativeMethods.list.MethodNativeListAddIndex;
-import org.bds.lang.nativeMethods.list.MethodNativeListAddList;
-import org.bds.lang.nativeMethods.list.MethodNativeListCount;
-import org.bds.lang.nativeMethods.list.MethodNativeListFilter;
-import org.bds.lang.nativeMethods.list.MethodNativeListForEach;
-import org.bds.lang.nativeMethods.list.MethodNativeListHas;
-import org.bds.lang.nativeMethods.list.MethodNativeListHead;
-import org.bds.lang.nativeMethods.list.MethodNativeListIndexOf;
-import org.bds.lang.nativeMethods.list.MethodNativeListIsEmpty;
-import org.bds.lang.nativeMethods.list.MethodNativeListJoin;
-import org.bds.lang.nativeMethods.list.MethodNativeListJoinStr;
-import org.bds.lang.nativeMethods.list.MethodNativeListMap;
-import org.bds.lang.nativeMethods.list.MethodNativeListMapToInt;
-import org.bds.lang.nativeMethods.list.MethodNativeListMapToReal;
-import org.bds.lang.nativeMethods.list.MethodNativeListMapToString;
-import org.bds.lang.nativeMethods.list.MethodNativeListPop;
-import org.bds.lang.nativeMethods.list.MethodNativeListPush;
-import org.bds.lang.nativeMethods.list.MethodNativeListRemove;
-import org.bds.lang.nativeMethods.list.MethodNativeListRemoveIdx;
-import org.bds.lang.nativeMethods.list.MethodNativeListReverse;
-import org.bds.lang.nativeMethods.list.MethodNativeListRm;
-import org.bds.lang.nativeMethods.list.MethodNativeListRmOnExit;
-import org.bds.lang.nativeMethods.list.MethodNativeListSize;
-import org.bds.lang.nativeMethods.list.MethodNativeListSort;
-import org.bds.lang.nativeMethods.list.MethodNativeListTail;
-import org.bds.util.Gpr;
+import org.bds.util.PersistentList;
+import org.bds.util.PrimitiveListBool;
+import org.bds.util.PrimitiveListInt;
+import org.bds.util.PrimitiveListReal;
 
 /**
  * A list/array/stack type
@@ -39,7 +16,38 @@ import org.bds.util.Gpr;
  */
 public class TypeList extends Type {
 
-	public static boolean debug = false;
+	// Native methods (created only when they are used, see NativeLibrary)
+	public static NativeLibrary.Entry natives[] = { //
+			NativeLibrary.entry("add", "org.bds.lang.nativeMethods.list.MethodNativeListAdd") //
+			, NativeLibrary.entry("add", "org.bds.lang.nativeMethods.list.MethodNativeListAddIndex") //
+			, NativeLibrary.entry("add", "org.bds.lang.nativeMethods.list.MethodNativeListAddList") //
+			, NativeLibrary.entry("count", "org.bds.lang.nativeMethods.list.MethodNativeListCount") //
+			, NativeLibrary.entry("filter", "org.bds.lang.nativeMethods.list.MethodNativeListFilter") //
+			, NativeLibrary.entry("foreach", "org.bds.lang.nativeMethods.list.MethodNativeListForEach") //
+			, NativeLibrary.entry("has", "org.bds.lang.nativeMethods.list.MethodNativeListHas") //
+			, NativeLibrary.entry("head", "org.bds.lang.nativeMethods.list.MethodNativeListHead") //
+			, NativeLibrary.entry("indexOf", "org.bds.lang.nativeMethods.list.MethodNativeListIndexOf") //
+			, NativeLibrary.entry("isEmpty", "org.bds.lang.nativeMethods.list.MethodNativeListIsEmpty") //
+			, NativeLibrary.entry("join", "org.bds.lang.nativeMethods.list.MethodNativeListJoin") //
+			, NativeLibrary.entry("join", "org.bds.lang.nativeMethods.list.MethodNativeListJoinStr") //
+			, NativeLibrary.entry("map", "org.bds.lang.nativeMethods.list.MethodNativeListMap") //
+			, NativeLibrary.entry("mapToInt", "org.bds.lang.nativeMethods.list.MethodNativeListMapToInt") //
+			, NativeLibrary.entry("map", "org.bds.lang.nativeMethods.list.MethodNativeListMapToReal") //
+			, NativeLibrary.entry("map", "org.bds.lang.nativeMethods.list.MethodNativeListMapToString") //
+			, NativeLibrary.entry("pfilter", "org.bds.lang.nativeMethods.list.MethodNativeListParallelFilter") //
+			, NativeLibrary.entry("pforeach", "org.bds.lang.nativeMethods.list.MethodNativeListParallelForEach") //
+			, NativeLibrary.entry("pmap", "org.bds.lang.nativeMethods.list.MethodNativeListParallelMap") //
+			, NativeLibrary.entry("pop", "org.bds.lang.nativeMethods.list.MethodNativeListPop") //
+			, NativeLibrary.entry("push", "org.bds.lang.nativeMethods.list.MethodNativeListPush") //
+			, NativeLibrary.entry("size", "org.bds.lang.nativeMethods.list.MethodNativeListSize") //
+			, NativeLibrary.entry("sort", "org.bds.lang.nativeMethods.list.MethodNativeListSort") //
+			, NativeLibrary.entry("remove", "org.bds.lang.nativeMethods.list.MethodNativeListRemove") //
+			, NativeLibrary.entry("removeIdx", "org.bds.lang.nativeMethods.list.MethodNativeListRemoveIdx") //
+			, NativeLibrary.entry("reverse", "org.bds.lang.nativeMethods.list.MethodNativeListReverse") //
+			, NativeLibrary.entry("rmOnExit", "org.bds.lang.nativeMethods.list.MethodNativeListRmOnExit") //
+			, NativeLibrary.entry("rm", "org.bds.lang.nativeMethods.list.MethodNativeListRm") //
+			, NativeLibrary.entry("tail", "org.bds.lang.nativeMethods.list.MethodNativeListTail") //
+	};
 
 	Type baseType; // Base type for this list
 
@@ -57,8 +65,6 @@ public class TypeList extends Type {
 			type.primitiveType = PrimitiveType.LIST;
 			type.baseType = baseType;
 			put(type);
-
-			type.addNativeMethods();
 		}
 
 		return type;
@@ -74,52 +80,6 @@ public class TypeList extends Type {
 		super(parent, tree);
 	}
 
-	/**
-	 * Add all library methods here
-	 */
-	protected void addNativeMethods() {
-		try {
-			// Add libarary methods
-			ArrayList<MethodNative> methods = new ArrayList<MethodNative>();
-			methods.add(new MethodNativeListAdd(baseType));
-			methods.add(new MethodNativeListAddIndex(baseType));
-			methods.add(new MethodNativeListAddList(baseType));
-			methods.add(new MethodNativeListCount(baseType));
-			methods.add(new MethodNativeListFilter(baseType));
-			methods.add(new MethodNativeListForEach(baseType));
-			methods.add(new MethodNativeListHas(baseType));
-			methods.add(new MethodNativeListHead(baseType));
-			methods.add(new MethodNativeListIndexOf(baseType));
-			methods.add(new MethodNativeListIsEmpty(baseType));
-			methods.add(new MethodNativeListJoin(baseType));
-			methods.add(new MethodNativeListJoinStr(baseType));
-			methods.add(new MethodNativeListMap(baseType));
-			methods.add(new MethodNativeListMapToInt(baseType));
-			methods.add(new MethodNativeListMapToReal(baseType));
-			methods.add(new MethodNativeListMapToString(baseType));
-			methods.add(new MethodNativeListPop(baseType));
-			methods.add(new MethodNativeListPush(baseType));
-			methods.add(new MethodNativeListSize(baseType));
-			methods.add(new MethodNativeListSort(baseType));
-			methods.add(new MethodNativeListRemove(baseType));
-			methods.add(new MethodNativeListRemoveIdx(baseType));
-			methods.add(new MethodNativeListReverse(baseType));
-			methods.add(new MethodNativeListRmOnExit(baseType));
-			methods.add(new MethodNativeListRm(baseType));
-			methods.add(new MethodNativeListTail(baseType));
-
-			// Show
-			if (debug) {
-				Gpr.debug("Type " + this + ", library methods added: ");
-				for (MethodNative method : methods)
-					Gpr.debug("\t" + method.signature());
-			}
-		} catch (Throwable t) {
-			t.printStackTrace();
-			throw new RuntimeException("Erroe while adding native mehods for class '" + this + "'", t);
-		}
-	}
-
 	public boolean canCast(TypeList type) {
 		throw new RuntimeException("Unimplemented!");
 	}
@@ -161,6 +121,31 @@ public class TypeList extends Type {
 		return false;
 	}
 
+	/**
+	 * Create a copy of 'list' (of this type)
+	 * Persistent lists share structure with the original list, so copying is O(1)
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public ArrayList copyList(Collection list) {
+		if (list instanceof PersistentList) return ((PersistentList) list).copy();
+		ArrayList listNew = newList(list.size());
+		listNew.addAll(list);
+		return listNew;
+	}
+
+	/**
+	 * Create a new (empty) list of this type
+	 * Lists of 'int', 'real' and 'bool' are backed by primitive arrays,
+	 * other lists are persistent (i.e. cheap to copy)
+	 */
+	@SuppressWarnings("rawtypes")
+	public ArrayList newList(int capacity) {
+		if (baseType.isInt()) return new PrimitiveListInt(capacity);
+		if (baseType.isReal()) return new PrimitiveListReal(capacity);
+		if (baseType.isBool()) return new PrimitiveListBool(capacity);
+		return new PersistentList();
+	}
+
 	@Override
 	protected void parse(ParseTree tree) {
 		// TODO: We are only allowing to build lists of primitive types. We should change this!
@@ -169,7 +154,6 @@ public class TypeList extends Type {
 		baseType = Type.get(listTypeName.toUpperCase());
 
 		put(this);
-		addNativeMethods();
 	}
 
 	@Override
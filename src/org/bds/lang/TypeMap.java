@@ -1,16 +1,10 @@
 package org.bds.lang;
 
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.antlr.v4.runtime.tree.ParseTree;
-import org.bds.lang.nativeMethods.MethodNative;
-import org.bds.lang.nativeMethods.map.MethodNativeMapHasKey;
-import org.bds.lang.nativeMethods.map.MethodNativeMapHasValue;
-import org.bds.lang.nativeMethods.map.MethodNativeMapKeys;
-import org.bds.lang.nativeMethods.map.MethodNativeMapRemove;
-import org.bds.lang.nativeMethods.map.MethodNativeMapSize;
-import org.bds.lang.nativeMethods.map.MethodNativeMapValues;
-import org.bds.util.Gpr;
+import org.bds.util.SortedKeysHashMap;
 
 /**
  * A hash
@@ -19,7 +13,15 @@ import org.bds.util.Gpr;
  */
 public class TypeMap extends TypeList {
 
-	public static boolean debug = false;
+	// Native methods (created only when they are used, see NativeLibrary)
+	public static NativeLibrary.Entry natives[] = { //
+			NativeLibrary.entry("keys", "org.bds.lang.nativeMethods.map.MethodNativeMapKeys") //
+			, NativeLibrary.entry("values", "org.bds.lang.nativeMethods.map.MethodNativeMapValues") //
+			, NativeLibrary.entry("size", "org.bds.lang.nativeMethods.map.MethodNativeMapSize") //
+			, NativeLibrary.entry("hasKey", "org.bds.lang.nativeMethods.map.MethodNativeMapHasKey") //
+			, NativeLibrary.entry("hasValue", "org.bds.lang.nativeMethods.map.MethodNativeMapHasValue") //
+			, NativeLibrary.entry("remove", "org.bds.lang.nativeMethods.map.MethodNativeMapRemove") //
+	};
 
 	/**
 	 * Get a list type
@@ -35,8 +37,6 @@ public class TypeMap extends TypeList {
 			type.primitiveType = PrimitiveType.MAP;
 			type.baseType = baseType;
 			put(type);
-
-			type.addNativeMethods();
 		}
 
 		return type;
@@ -52,33 +52,6 @@ public class TypeMap extends TypeList {
 		super(parent, tree);
 	}
 
-	/**
-	 * Add all library methods here
-	 */
-	@Override
-	protected void addNativeMethods() {
-		try {
-			// Add libarary methods
-			ArrayList<MethodNative> methods = new ArrayList<MethodNative>();
-			methods.add(new MethodNativeMapKeys(baseType));
-			methods.add(new MethodNativeMapValues(baseType));
-			methods.add(new MethodNativeMapSize(baseType));
-			methods.add(new MethodNativeMapHasKey(baseType));
-			methods.add(new MethodNativeMapHasValue(baseType));
-			methods.add(new MethodNativeMapRemove(baseType));
-
-			// Show
-			if (debug) {
-				Gpr.debug("Type " + this + ", library methods added: ");
-				for (MethodNative method : methods)
-					Gpr.debug("\t" + method.signature());
-			}
-		} catch (Throwable t) {
-			t.printStackTrace();
-			throw new RuntimeException("Erroe while adding native mehods for class '" + this + "'", t);
-		}
-	}
-
 	@Override
 	public int compareTo(Type type) {
 		int cmp = primitiveType.ordinal() - type.primitiveType.ordinal();
@@ -93,6 +66,18 @@ public class TypeMap extends TypeList {
 		return (primitiveType == type.primitiveType) && (baseType.equals(((TypeMap) type).baseType));
 	}
 
+	/**
+	 * Create a copy of 'map' (of this type)
+	 * Note: Cloning a SortedKeysHashMap also copies its sorted keys
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public HashMap copyMap(Map map) {
+		if (map instanceof SortedKeysHashMap) return (HashMap) ((SortedKeysHashMap) map).clone();
+		HashMap mapNew = newMap(map.size());
+		mapNew.putAll(map);
+		return mapNew;
+	}
+
 	@Override
 	public boolean isList() {
 		return false;
@@ -116,7 +101,15 @@ public class TypeMap extends TypeList {
 		baseType = Type.get(listTypeName.toUpperCase());
 
 		put(this);
-		addNativeMethods();
+	}
+
+	/**
+	 * Create a new (empty) map of this type
+	 * Maps cache their sorted keys (see 'map.keys()')
+	 */
+	@SuppressWarnings("rawtypes")
+	public HashMap newMap(int capacity) {
+		return new SortedKeysHashMap(capacity);
 	}
 
 	@Override
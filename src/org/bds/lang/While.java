@@ -22,6 +22,14 @@ public class While extends Statement {
 		super(parent, tree);
 	}
 
+	public Expression getCondition() {
+		return condition;
+	}
+
+	public Statement getStatement() {
+		return statement;
+	}
+
 	@Override
 	protected void parse(ParseTree tree) {
 		int idx = 0;
@@ -59,6 +67,7 @@ public class While extends Statement {
 		while (runCondition(bdsThread, first)) { // Loop condition
 			first = false;
 
+			if (statement == null) break; // Note: Dead loops are removed (see ConstantFolding)
 			bdsThread.run(statement);
 
 			switch (bdsThread.getRunState()) {
@@ -88,7 +97,7 @@ public class While extends Statement {
 	@Override
 	public String toString() {
 		return "while(  " + condition + " ) {\n" //
-				+ Gpr.prependEachLine("\t", statement.toString()) //
+				+ (statement != null ? Gpr.prependEachLine("\t", statement.toString()) : "") //
 				+ "\n}" //
 		;
 	}
@@ -85,9 +85,8 @@ public abstract class FunctionNative extends FunctionDeclaration {
 	}
 
 	@Override
-	public String serializeSave(BdsSerializer serializer) {
+	public void serializeSave(BdsSerializer serializer) {
 		// Nothing to do: Native methods are not serialized
-		return "";
 	}
 
 	@Override
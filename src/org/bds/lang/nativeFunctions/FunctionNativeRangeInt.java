@@ -1,11 +1,10 @@
 package org.bds.lang.nativeFunctions;
 
-import java.util.ArrayList;
-
 import org.bds.lang.Parameters;
 import org.bds.lang.Type;
 import org.bds.lang.TypeList;
 import org.bds.run.BdsThread;
+import org.bds.util.LazyListRange;
 
 /**
  * Native function "range". Return a random list of int
@@ -34,10 +33,6 @@ public class FunctionNativeRangeInt extends FunctionNative {
 		long min = bdsThread.getInt("min");
 		long max = bdsThread.getInt("max");
 
-		ArrayList<Long> list = new ArrayList<>();
-		for (long i = min; i <= max; i++)
-			list.add(i);
-
-		return list;
+		return new LazyListRange(min, max, 1); // Elements are not created unless needed
 	}
 }
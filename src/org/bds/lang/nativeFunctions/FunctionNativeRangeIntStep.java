@@ -6,6 +6,7 @@ import org.bds.lang.Parameters;
 import org.bds.lang.Type;
 import org.bds.lang.TypeList;
 import org.bds.run.BdsThread;
+import org.bds.util.LazyListRange;
 
 /**
  * Native function "range". Return a random list of int
@@ -34,6 +35,7 @@ public class FunctionNativeRangeIntStep extends FunctionNative {
 		long min = bdsThread.getInt("min");
 		long max = bdsThread.getInt("max");
 		long step = bdsThread.getInt("step");
+		if (step > 0) return new LazyListRange(min, max, step); // Elements are not created unless needed
 
 		ArrayList<Long> list = new ArrayList<>();
 		for (long i = min; i <= max; i += step)
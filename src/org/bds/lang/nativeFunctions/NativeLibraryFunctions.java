@@ -1,108 +1,84 @@
 package org.bds.lang.nativeFunctions;
 
-import java.util.ArrayList;
+import org.bds.lang.NativeLibrary;
 
 /**
- * Loads all classes used for native functions library
+ * Native functions library: Function names and classes
+ * Note: Functions are created only when they are used (see NativeLibrary)
  *
  * @author pcingola
  *
  */
 public class NativeLibraryFunctions {
 
-	@SuppressWarnings("rawtypes")
-	public static Class classes[] = { //
-			FunctionNativePrint.class //
-			, FunctionNativeLog.class //
-			, FunctionNativeTime.class //
-			, FunctionNativePrintErr.class //
-			, FunctionNativeMinInt.class //
-			, FunctionNativeMaxInt.class //
-			, FunctionNativeMinReal.class //
-			, FunctionNativeMaxReal.class //
-			, FunctionNativeRand.class //
-			, FunctionNativeRandInt.class //
-			, FunctionNativeRandIntRange.class //
-			, FunctionNativeRandSeed.class //
-			, FunctionNativeRangeInt.class //
-			, FunctionNativeRangeIntStep.class //
-			, FunctionNativeRangeReal.class //
-			, FunctionNativePrintHelp.class //
-			, FunctionNativeSleep.class //
-			, FunctionNativeSleepReal.class //
-			, FunctionNativeToIntFromBool.class //
-			, FunctionNativeToIntFromReal.class //
-			, FunctionNativeConfig.class //
-			, FunctionNativeConfigOri.class //
-			, FunctionNativeAssertBool.class //
-			, FunctionNativeAssertBoolNoMsg.class //
-			, FunctionNativeAssertInt.class //
-			, FunctionNativeAssertIntNoMsg.class //
-			, FunctionNativeAssertString.class //
-			, FunctionNativeAssertStringNoMsg.class //
+	public static NativeLibrary.Entry natives[] = { //
+			NativeLibrary.entry("print", "org.bds.lang.nativeFunctions.FunctionNativePrint") //
+			, NativeLibrary.entry("log", "org.bds.lang.nativeFunctions.FunctionNativeLog") //
+			, NativeLibrary.entry("time", "org.bds.lang.nativeFunctions.FunctionNativeTime") //
+			, NativeLibrary.entry("printErr", "org.bds.lang.nativeFunctions.FunctionNativePrintErr") //
+			, NativeLibrary.entry("min", "org.bds.lang.nativeFunctions.FunctionNativeMinInt") //
+			, NativeLibrary.entry("max", "org.bds.lang.nativeFunctions.FunctionNativeMaxInt") //
+			, NativeLibrary.entry("min", "org.bds.lang.nativeFunctions.FunctionNativeMinReal") //
+			, NativeLibrary.entry("max", "org.bds.lang.nativeFunctions.FunctionNativeMaxReal") //
+			, NativeLibrary.entry("rand", "org.bds.lang.nativeFunctions.FunctionNativeRand") //
+			, NativeLibrary.entry("randInt", "org.bds.lang.nativeFunctions.FunctionNativeRandInt") //
+			, NativeLibrary.entry("randInt", "org.bds.lang.nativeFunctions.FunctionNativeRandIntRange") //
+			, NativeLibrary.entry("randSeed", "org.bds.lang.nativeFunctions.FunctionNativeRandSeed") //
+			, NativeLibrary.entry("range", "org.bds.lang.nativeFunctions.FunctionNativeRangeInt") //
+			, NativeLibrary.entry("range", "org.bds.lang.nativeFunctions.FunctionNativeRangeIntStep") //
+			, NativeLibrary.entry("range", "org.bds.lang.nativeFunctions.FunctionNativeRangeReal") //
+			, NativeLibrary.entry("printHelp", "org.bds.lang.nativeFunctions.FunctionNativePrintHelp") //
+			, NativeLibrary.entry("sleep", "org.bds.lang.nativeFunctions.FunctionNativeSleep") //
+			, NativeLibrary.entry("sleep", "org.bds.lang.nativeFunctions.FunctionNativeSleepReal") //
+			, NativeLibrary.entry("toInt", "org.bds.lang.nativeFunctions.FunctionNativeToIntFromBool") //
+			, NativeLibrary.entry("toInt", "org.bds.lang.nativeFunctions.FunctionNativeToIntFromReal") //
+			, NativeLibrary.entry("config", "org.bds.lang.nativeFunctions.FunctionNativeConfig") //
+			, NativeLibrary.entry("config", "org.bds.lang.nativeFunctions.FunctionNativeConfigOri") //
+			, NativeLibrary.entry("assert", "org.bds.lang.nativeFunctions.FunctionNativeAssertBool") //
+			, NativeLibrary.entry("assert", "org.bds.lang.nativeFunctions.FunctionNativeAssertBoolNoMsg") //
+			, NativeLibrary.entry("assert", "org.bds.lang.nativeFunctions.FunctionNativeAssertInt") //
+			, NativeLibrary.entry("assert", "org.bds.lang.nativeFunctions.FunctionNativeAssertIntNoMsg") //
+			, NativeLibrary.entry("assert", "org.bds.lang.nativeFunctions.FunctionNativeAssertString") //
+			, NativeLibrary.entry("assert", "org.bds.lang.nativeFunctions.FunctionNativeAssertStringNoMsg") //
 			//
 			// Math functions
-			, org.bds.lang.nativeFunctions.math.FunctionNative_abs_int.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_getExponent_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_round_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_abs_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_acos_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_asin_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_atan_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_atan2_real_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_cbrt_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_ceil_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_copySign_real_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_cos_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_cosh_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_exp_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_expm1_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_floor_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_hypot_real_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_IEEEremainder_real_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_log_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_log10_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_log1p_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_max_real_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_min_real_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_nextAfter_real_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_nextUp_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_pow_real_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_rint_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_scalb_real_int.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_signum_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_sin_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_sinh_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_sqrt_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_tan_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_tanh_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_toDegrees_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_toRadians_real.class //
-			, org.bds.lang.nativeFunctions.math.FunctionNative_ulp_real.class //
+			, NativeLibrary.entry("abs", "org.bds.lang.nativeFunctions.math.FunctionNative_abs_int") //
+			, NativeLibrary.entry("getExponent", "org.bds.lang.nativeFunctions.math.FunctionNative_getExponent_real") //
+			, NativeLibrary.entry("round", "org.bds.lang.nativeFunctions.math.FunctionNative_round_real") //
+			, NativeLibrary.entry("abs", "org.bds.lang.nativeFunctions.math.FunctionNative_abs_real") //
+			, NativeLibrary.entry("acos", "org.bds.lang.nativeFunctions.math.FunctionNative_acos_real") //
+			, NativeLibrary.entry("asin", "org.bds.lang.nativeFunctions.math.FunctionNative_asin_real") //
+			, NativeLibrary.entry("atan", "org.bds.lang.nativeFunctions.math.FunctionNative_atan_real") //
+			, NativeLibrary.entry("atan2", "org.bds.lang.nativeFunctions.math.FunctionNative_atan2_real_real") //
+			, NativeLibrary.entry("cbrt", "org.bds.lang.nativeFunctions.math.FunctionNative_cbrt_real") //
+			, NativeLibrary.entry("ceil", "org.bds.lang.nativeFunctions.math.FunctionNative_ceil_real") //
+			, NativeLibrary.entry("copySign", "org.bds.lang.nativeFunctions.math.FunctionNative_copySign_real_real") //
+			, NativeLibrary.entry("cos", "org.bds.lang.nativeFunctions.math.FunctionNative_cos_real") //
+			, NativeLibrary.entry("cosh", "org.bds.lang.nativeFunctions.math.FunctionNative_cosh_real") //
+			, NativeLibrary.entry("exp", "org.bds.lang.nativeFunctions.math.FunctionNative_exp_real") //
+			, NativeLibrary.entry("expm1", "org.bds.lang.nativeFunctions.math.FunctionNative_expm1_real") //
+			, NativeLibrary.entry("floor", "org.bds.lang.nativeFunctions.math.FunctionNative_floor_real") //
+			, NativeLibrary.entry("hypot", "org.bds.lang.nativeFunctions.math.FunctionNative_hypot_real_real") //
+			, NativeLibrary.entry("IEEEremainder", "org.bds.lang.nativeFunctions.math.FunctionNative_IEEEremainder_real_real") //
+			, NativeLibrary.entry("log", "org.bds.lang.nativeFunctions.math.FunctionNative_log_real") //
+			, NativeLibrary.entry("log10", "org.bds.lang.nativeFunctions.math.FunctionNative_log10_real") //
+			, NativeLibrary.entry("log1p", "org.bds.lang.nativeFunctions.math.FunctionNative_log1p_real") //
+			, NativeLibrary.entry("max", "org.bds.lang.nativeFunctions.math.FunctionNative_max_real_real") //
+			, NativeLibrary.entry("min", "org.bds.lang.nativeFunctions.math.FunctionNative_min_real_real") //
+			, NativeLibrary.entry("nextAfter", "org.bds.lang.nativeFunctions.math.FunctionNative_nextAfter_real_real") //
+			, NativeLibrary.entry("nextUp", "org.bds.lang.nativeFunctions.math.FunctionNative_nextUp_real") //
+			, NativeLibrary.entry("pow", "org.bds.lang.nativeFunctions.math.FunctionNative_pow_real_real") //
+			, NativeLibrary.entry("rint", "org.bds.lang.nativeFunctions.math.FunctionNative_rint_real") //
+			, NativeLibrary.entry("scalb", "org.bds.lang.nativeFunctions.math.FunctionNative_scalb_real_int") //
+			, NativeLibrary.entry("signum", "org.bds.lang.nativeFunctions.math.FunctionNative_signum_real") //
+			, NativeLibrary.entry("sin", "org.bds.lang.nativeFunctions.math.FunctionNative_sin_real") //
+			, NativeLibrary.entry("sinh", "org.bds.lang.nativeFunctions.math.FunctionNative_sinh_real") //
+			, NativeLibrary.entry("sqrt", "org.bds.lang.nativeFunctions.math.FunctionNative_sqrt_real") //
+			, NativeLibrary.entry("tan", "org.bds.lang.nativeFunctions.math.FunctionNative_tan_real") //
+			, NativeLibrary.entry("tanh", "org.bds.lang.nativeFunctions.math.FunctionNative_tanh_real") //
+			, NativeLibrary.entry("toDegrees", "org.bds.lang.nativeFunctions.math.FunctionNative_toDegrees_real") //
+			, NativeLibrary.entry("toRadians", "org.bds.lang.nativeFunctions.math.FunctionNative_toRadians_real") //
+			, NativeLibrary.entry("ulp", "org.bds.lang.nativeFunctions.math.FunctionNative_ulp_real") //
 	};
 
-	ArrayList<FunctionNative> functions;
-
-	@SuppressWarnings("rawtypes")
-	public NativeLibraryFunctions() {
-		try {
-			functions = new ArrayList<FunctionNative>();
-
-			for (Class c : classes)
-				functions.add((FunctionNative) c.newInstance());
-
-		} catch (Exception e) {
-			throw new RuntimeException("Error creating native library", e);
-		}
-	}
-
-	@Override
-	public String toString() {
-		StringBuilder sb = new StringBuilder();
-		sb.append(getClass().getSimpleName() + ":\n");
-		for (FunctionNative m : functions)
-			sb.append("\t" + m.getClass().getSimpleName() + "\n");
-		return sb.toString();
-	}
-
 }
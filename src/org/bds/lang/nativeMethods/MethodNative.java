@@ -93,9 +93,8 @@ public abstract class MethodNative extends MethodDeclaration {
 	}
 
 	@Override
-	public String serializeSave(BdsSerializer serializer) {
+	public void serializeSave(BdsSerializer serializer) {
 		// Nothing to do: Native methods are not serialized
-		return "";
 	}
 
 	@Override
@@ -0,0 +1,58 @@
+package org.bds.lang.nativeMethods.list;
+
+import org.bds.lang.FunctionDeclaration;
+import org.bds.lang.Type;
+
+/**
+ * Inline cache for a function applied to every element of a list
+ * (e.g. 'list.map(f)', 'list.filter(f)', 'list.foreach(f)')
+ *
+ * The function's return type is checked once per invocation (instead
+ * of once per element) and results are only cast when their class
+ * differs from the last class that did not require a cast.
+ *
+ * Note: A new cache is created for each invocation. Native methods are
+ * singletons shared by all call sites and threads, so storing the cache
+ * in the native method would be racy (and it would thrash when call
+ * sites use different functions).
+ *
+ * @author pcingola
+ */
+public class FunctionInlineCache {
+
+	final FunctionDeclaration function;
+	final Type resultType; // Type results are cast to (null if results are not cast)
+	final boolean canCastReturnType;
+	volatile Class<?> resultClassNoCast; // Result class that did not require a cast (parallel workers share the cache)
+
+	public FunctionInlineCache(FunctionDeclaration function, Type resultType) {
+		this.function = function;
+		this.resultType = resultType;
+		canCastReturnType = (resultType == null) || function.getReturnType().canCast(resultType);
+	}
+
+	/**
+	 * Cast a function's result to 'resultType'
+	 */
+	public Object cast(Object result) {
+		if (result == null || resultType == null) return result;
+		if (result.getClass() == resultClassNoCast) return result;
+
+		Object castResult = resultType.cast(result);
+		if (castResult == result) resultClassNoCast = result.getClass();
+		return castResult;
+	}
+
+	public boolean canCastReturnType() {
+		return canCastReturnType;
+	}
+
+	public FunctionDeclaration getFunction() {
+		return function;
+	}
+
+	@Override
+	public String toString() {
+		return "FunctionInlineCache: " + function.signature() + " -> " + resultType;
+	}
+}
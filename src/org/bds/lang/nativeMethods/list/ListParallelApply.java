@@ -0,0 +1,144 @@
+package org.bds.lang.nativeMethods.list;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.bds.compile.CompilerMessage.MessageType;
+import org.bds.compile.CompilerMessages;
+import org.bds.data.DataWriters;
+import org.bds.lang.Expression;
+import org.bds.lang.FunctionCall;
+import org.bds.lang.FunctionDeclaration;
+import org.bds.lang.ReferenceVar;
+import org.bds.run.BdsThread;
+import org.bds.run.BdsThreads;
+import org.bds.scope.Scope;
+import org.bds.scope.ScopeSymbol;
+
+/**
+ * Apply a function to all elements in a list, in parallel (e.g. 'list.pmap(f)')
+ *
+ * The list is split into chunks that are evaluated on a fork-join pool.
+ * Each chunk is evaluated by its own lightweight interpreter context
+ * (BdsThread), results are stored in the original list order.
+ *
+ * Only functions that do not create tasks, wait, checkpoint or assign
+ * non-local variables can be evaluated this way (see
+ * 'FunctionDeclaration.checkParallelSafe()')
+ *
+ * @author pcingola
+ */
+public class ListParallelApply {
+
+	public static final int CHUNKS_PER_CPU = 4;
+
+	private static ForkJoinPool forkJoinPool;
+	private static final Map<FunctionDeclaration, String> parallelSafeErrors = Collections.synchronizedMap(new WeakHashMap<FunctionDeclaration, String>()); // Functions already checked: Error message (empty if the function is safe)
+
+	/**
+	 * Apply function to all elements in 'list'
+	 * @return An array of results (already cast to the cache's result type), in the same order as 'list'
+	 */
+	@SuppressWarnings("rawtypes")
+	public static Object[] apply(BdsThread bdsThread, final List list, final FunctionInlineCache fcache) {
+		String err = checkParallelSafe(fcache.getFunction(), bdsThread.getScope());
+		if (err != null) throw new RuntimeException("Cannot evaluate function in parallel: " + err);
+
+		final int size = list.size();
+		final Object results[] = new Object[size];
+		if (size == 0) return results;
+
+		// Split into chunks
+		ForkJoinPool pool = getPool();
+		int numChunks = Math.min(size, pool.getParallelism() * CHUNKS_PER_CPU);
+		int chunkSize = (size + numChunks - 1) / numChunks;
+
+		List<Callable<Object>> chunks = new ArrayList<>();
+		final List<BdsThread> workers = new ArrayList<>();
+		for (int start = 0; start < size; start += chunkSize) {
+			final int chunkStart = start;
+			final int chunkEnd = Math.min(size, start + chunkSize);
+			final BdsThread worker = new BdsThread(bdsThread, bdsThread.getScope()); // Each chunk has its own interpreter context
+			workers.add(worker);
+
+			chunks.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					FunctionDeclaration function = fcache.getFunction();
+
+					// Natives use the current bdsThread (e.g. current dir). Note: The calling thread may run a chunk itself
+					BdsThread prev = BdsThreads.getInstance().get();
+					BdsThreads.getInstance().setCurrent(worker);
+					try {
+						for (int i = chunkStart; i < chunkEnd; i++)
+							results[i] = fcache.cast(function.apply(worker, list.get(i)));
+					} finally {
+						BdsThreads.getInstance().setCurrent(prev);
+
+						// Workers never 'run()', so close files opened for 'append' here
+						DataWriters.getInstance().closeAll(worker);
+					}
+					return null;
+				}
+			});
+		}
+
+		// Run and wait for all chunks to finish
+		try {
+			for (Future<Object> future : pool.invokeAll(chunks))
+				future.get();
+		} catch (ExecutionException e) {
+			// Workers do not report errors: Report the first one (only once) from the calling thread
+			for (BdsThread worker : workers)
+				if (worker.isFatalError()) throw new RuntimeException(worker.getFatalErrorMessage());
+			throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+
+		return results;
+	}
+
+	/**
+	 * Can the function be evaluated in parallel? (checked only once per function)
+	 * @return An error message or null if the function is safe
+	 */
+	static String checkParallelSafe(FunctionDeclaration function, Scope scope) {
+		String err = parallelSafeErrors.get(function);
+		if (err == null) {
+			err = function.checkParallelSafe(scope);
+			if (err == null) err = "";
+			parallelSafeErrors.put(function, err);
+		}
+		return err.isEmpty() ? null : err;
+	}
+
+	static synchronized ForkJoinPool getPool() {
+		if (forkJoinPool == null) forkJoinPool = new ForkJoinPool();
+		return forkJoinPool;
+	}
+
+	/**
+	 * Check (at compile time) that the function argument can be evaluated in parallel
+	 * Note: Function arguments that cannot be resolved at compile time are checked at run time
+	 */
+	public static void typeCheckCall(FunctionCall functionCall, Scope scope, CompilerMessages compilerMessages) {
+		Expression args[] = functionCall.getArgs().getArguments();
+		Expression exprFunc = args[args.length - 1];
+		if (!(exprFunc instanceof ReferenceVar)) return;
+
+		ScopeSymbol ss = ((ReferenceVar) exprFunc).getScopeSymbol(scope);
+		if (ss == null || !(ss.getValue() instanceof FunctionDeclaration)) return;
+
+		String err = ((FunctionDeclaration) ss.getValue()).checkParallelSafe(scope);
+		if (err != null) compilerMessages.add(functionCall, "Cannot use function in parallel method '" + functionCall.getFunctionName() + "': " + err, MessageType.ERROR);
+	}
+
+}
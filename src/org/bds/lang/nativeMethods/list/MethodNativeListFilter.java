@@ -24,24 +24,31 @@ public class MethodNativeListFilter extends MethodNativeList {
 	 * Find a function
 	 * TODO: Move this to Scope?
 	 */
-	protected FunctionDeclaration findFunction(BdsThread bdsThread, String fname) {
-		FunctionDeclaration function = (FunctionDeclaration) bdsThread.getObject("f");
+	protected FunctionInlineCache findFunction(BdsThread bdsThread, String fname) {
+		FunctionDeclaration function = (FunctionDeclaration) bdsThread.getObject(fname);
+
+		// Inline cache: Only check types once per invocation (not once per element)
+		FunctionInlineCache fcache = new FunctionInlineCache(function, Type.BOOL);
 
 		// Type checking
 		// TODO: This is awful to say the least!
 		//       Type checking should be done at compile time, not here
 		//       (this is supposed to be a statically typed language)
-		if (!function.getReturnType().canCast(Type.BOOL)) bdsThread.fatalError(this, "Cannot cast " + function.getReturnType() + " to " + Type.BOOL);
+		if (!fcache.canCastReturnType()) bdsThread.fatalError(this, "Cannot cast " + function.getReturnType() + " to " + Type.BOOL);
 
 		// TODO: Check that function should only have one argument
 		// TODO: Check List's elements should be 'castable' to function's argument
 
-		return function;
+		return fcache;
 	}
 
 	@Override
 	protected void initMethod(Type baseType) {
-		functionName = "filter";
+		initMethod(baseType, "filter");
+	}
+
+	protected void initMethod(Type baseType, String functionName) {
+		this.functionName = functionName;
 		classType = TypeList.get(baseType);
 		returnType = TypeList.get(baseType);;
 
@@ -57,14 +64,15 @@ public class MethodNativeListFilter extends MethodNativeList {
 	@Override
 	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
 		ArrayList list = (ArrayList) objThis;
-		ArrayList newList = new ArrayList();
+		ArrayList newList = ((TypeList) classType).newList(0);
 
 		// Get function
-		FunctionDeclaration function = findFunction(bdsThread, "f");
+		FunctionInlineCache fcache = findFunction(bdsThread, "f");
+		FunctionDeclaration function = fcache.getFunction();
 
 		for (Object val : list) {
 			Object ret = function.apply(bdsThread, val);
-			if ((Boolean) Type.BOOL.cast(ret)) newList.add(val);
+			if ((Boolean) fcache.cast(ret)) newList.add(val);
 		}
 
 		return newList;
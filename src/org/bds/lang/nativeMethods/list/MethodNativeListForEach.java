@@ -24,24 +24,25 @@ public class MethodNativeListForEach extends MethodNativeList {
 	 * Find a function
 	 * TODO: Move this to Scope?
 	 */
-	protected FunctionDeclaration findFunction(BdsThread bdsThread, String fname) {
-		FunctionDeclaration function = (FunctionDeclaration) bdsThread.getObject("f");
+	protected FunctionInlineCache findFunction(BdsThread bdsThread, String fname) {
+		FunctionDeclaration function = (FunctionDeclaration) bdsThread.getObject(fname);
 
-		// Type checking
-		// TODO: This is awful to say the least!
-		//       Type checking should be done at compile time, not here
-		//       (this is supposed to be a statically typed language)
-		//		if (!function.getReturnType().canCast(Type.BOOL)) bdsThread.fatalError(this, "Cannot cast " + function.getReturnType() + " to " + Type.BOOL);
+		// Inline cache: Results are discarded, so there is no type to check
+		FunctionInlineCache fcache = new FunctionInlineCache(function, null);
 
 		// TODO: Check that function should only have one argument
 		// TODO: Check List's elements should be 'castable' to function's argument
 
-		return function;
+		return fcache;
 	}
 
 	@Override
 	protected void initMethod(Type baseType) {
-		functionName = "foreach";
+		initMethod(baseType, "foreach");
+	}
+
+	protected void initMethod(Type baseType, String functionName) {
+		this.functionName = functionName;
 		classType = TypeList.get(baseType);
 		returnType = TypeList.get(baseType);;
 
@@ -59,7 +60,7 @@ public class MethodNativeListForEach extends MethodNativeList {
 		ArrayList list = (ArrayList) objThis;
 
 		// Get function
-		FunctionDeclaration function = findFunction(bdsThread, "f");
+		FunctionDeclaration function = findFunction(bdsThread, "f").getFunction();
 
 		for (Object val : list)
 			function.apply(bdsThread, val);
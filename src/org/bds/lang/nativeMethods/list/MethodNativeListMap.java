@@ -32,19 +32,22 @@ public class MethodNativeListMap extends MethodNativeList {
 	 * Find a function
 	 * TODO: Move this to Scope?
 	 */
-	protected FunctionDeclaration findFunction(BdsThread bdsThread, String fname) {
-		FunctionDeclaration function = (FunctionDeclaration) bdsThread.getObject("f");
+	protected FunctionInlineCache findFunction(BdsThread bdsThread, String fname) {
+		FunctionDeclaration function = (FunctionDeclaration) bdsThread.getObject(fname);
+
+		// Inline cache: Only check types once per invocation (not once per element)
+		FunctionInlineCache fcache = new FunctionInlineCache(function, returnBaseType);
 
 		// Type checking
 		// TODO: This is awful to say the least!
 		//       Type checking should be done at compile time, not here
 		//       (this is supposed to be a statically typed language)
-		if (!function.getReturnType().canCast(returnBaseType)) bdsThread.fatalError(this, "Cannot cast " + function.getReturnType() + " to " + returnBaseType);
+		if (!fcache.canCastReturnType()) bdsThread.fatalError(this, "Cannot cast " + function.getReturnType() + " to " + returnBaseType);
 
 		// TODO: Check that function should only have one argument
 		// TODO: Check List's elements should be 'castable' to function's argument
 
-		return function;
+		return fcache;
 	}
 
 	@Override
@@ -72,15 +75,16 @@ public class MethodNativeListMap extends MethodNativeList {
 		ArrayList list = (ArrayList) objThis;
 
 		// Get function
-		FunctionDeclaration function = findFunction(bdsThread, "f");
+		FunctionInlineCache fcache = findFunction(bdsThread, "f");
+		FunctionDeclaration function = fcache.getFunction();
 
 		// Map
-		ArrayList res = new ArrayList();
+		ArrayList res = ((TypeList) returnType).newList(list.size());
 		Object values[] = new Object[1];
 		for (Object o : list) {
 			values[0] = o;
 			Object r = function.apply(bdsThread, values); // Get result
-			Object ret = returnBaseType.cast(r); // Cast to list's type
+			Object ret = fcache.cast(r); // Cast to list's type
 			res.add(ret); // Add to list
 		}
 
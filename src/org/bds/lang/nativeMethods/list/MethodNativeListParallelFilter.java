@@ -0,0 +1,50 @@
+package org.bds.lang.nativeMethods.list;
+
+import java.util.ArrayList;
+
+import org.bds.compile.CompilerMessages;
+import org.bds.lang.FunctionCall;
+import org.bds.lang.Type;
+import org.bds.lang.TypeList;
+import org.bds.run.BdsThread;
+import org.bds.scope.Scope;
+
+/**
+ * Parallel filter: Filter elements form a list by applying a function
+ * that returns a 'bool', in parallel
+ *
+ * @author pcingola
+ */
+public class MethodNativeListParallelFilter extends MethodNativeListFilter {
+
+	public MethodNativeListParallelFilter(Type baseType) {
+		super(baseType);
+	}
+
+	@Override
+	protected void initMethod(Type baseType) {
+		initMethod(baseType, "pfilter");
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
+		ArrayList list = (ArrayList) objThis;
+
+		// Get function and evaluate all elements
+		FunctionInlineCache fcache = findFunction(bdsThread, "f");
+		Object results[] = ListParallelApply.apply(bdsThread, list, fcache);
+
+		ArrayList newList = ((TypeList) classType).newList(0);
+		for (int i = 0; i < results.length; i++)
+			if ((Boolean) results[i]) newList.add(list.get(i));
+
+		return newList;
+	}
+
+	@Override
+	public void typeCheckCall(FunctionCall functionCall, Scope scope, CompilerMessages compilerMessages) {
+		ListParallelApply.typeCheckCall(functionCall, scope, compilerMessages);
+	}
+
+}
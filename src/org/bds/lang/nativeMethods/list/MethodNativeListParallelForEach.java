@@ -0,0 +1,44 @@
+package org.bds.lang.nativeMethods.list;
+
+import java.util.ArrayList;
+
+import org.bds.compile.CompilerMessages;
+import org.bds.lang.FunctionCall;
+import org.bds.lang.Type;
+import org.bds.run.BdsThread;
+import org.bds.scope.Scope;
+
+/**
+ * Parallel foreach: Apply a function to all elements in the list, in parallel
+ *
+ * @author pcingola
+ */
+public class MethodNativeListParallelForEach extends MethodNativeListForEach {
+
+	public MethodNativeListParallelForEach(Type baseType) {
+		super(baseType);
+	}
+
+	@Override
+	protected void initMethod(Type baseType) {
+		initMethod(baseType, "pforeach");
+	}
+
+	@SuppressWarnings({ "rawtypes" })
+	@Override
+	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
+		ArrayList list = (ArrayList) objThis;
+
+		// Get function and apply to all elements
+		FunctionInlineCache fcache = findFunction(bdsThread, "f");
+		ListParallelApply.apply(bdsThread, list, fcache);
+
+		return list;
+	}
+
+	@Override
+	public void typeCheckCall(FunctionCall functionCall, Scope scope, CompilerMessages compilerMessages) {
+		ListParallelApply.typeCheckCall(functionCall, scope, compilerMessages);
+	}
+
+}
@@ -0,0 +1,43 @@
+package org.bds.lang.nativeMethods.list;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.bds.compile.CompilerMessages;
+import org.bds.lang.FunctionCall;
+import org.bds.lang.Type;
+import org.bds.lang.TypeList;
+import org.bds.run.BdsThread;
+import org.bds.scope.Scope;
+
+/**
+ * Parallel map: Apply a function to all elements in the list, in parallel
+ *
+ * @author pcingola
+ */
+public class MethodNativeListParallelMap extends MethodNativeListMap {
+
+	public MethodNativeListParallelMap(Type baseType) {
+		super(baseType, baseType, "pmap");
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
+		ArrayList list = (ArrayList) objThis;
+
+		// Get function and map
+		FunctionInlineCache fcache = findFunction(bdsThread, "f");
+		Object results[] = ListParallelApply.apply(bdsThread, list, fcache);
+
+		ArrayList res = ((TypeList) returnType).newList(results.length);
+		Collections.addAll(res, results);
+		return res;
+	}
+
+	@Override
+	public void typeCheckCall(FunctionCall functionCall, Scope scope, CompilerMessages compilerMessages) {
+		ListParallelApply.typeCheckCall(functionCall, scope, compilerMessages);
+	}
+
+}
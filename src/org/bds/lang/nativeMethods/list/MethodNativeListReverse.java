@@ -38,10 +38,10 @@ public class MethodNativeListReverse extends MethodNativeList {
 		ArrayList list = (ArrayList) objThis;
 
 		// Empty list? => Nothing to do
-		if (list.size() <= 0) return new ArrayList();
+		if (list.size() <= 0) return ((TypeList) classType).newList(0);
 
 		// Create new list and sort it
-		ArrayList newList = new ArrayList(list.size());
+		ArrayList newList = ((TypeList) classType).newList(list.size());
 		newList.addAll(list);
 		Collections.reverse(newList);
 
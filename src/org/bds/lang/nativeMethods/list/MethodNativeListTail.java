@@ -6,6 +6,7 @@ import org.bds.lang.Parameters;
 import org.bds.lang.Type;
 import org.bds.lang.TypeList;
 import org.bds.run.BdsThread;
+import org.bds.util.PersistentList;
 
 /**
  * Tail: Create a new list with all the elements but the first
@@ -36,10 +37,17 @@ public class MethodNativeListTail extends MethodNativeList {
 		ArrayList list = (ArrayList) objThis;
 
 		// Empty list or only one element? => Nothing to do
-		if (list.size() <= 1) return new ArrayList();
+		if (list.size() <= 1) return ((TypeList) classType).newList(0);
+
+		// Persistent list? Copy and remove first element, O(1)
+		if (list instanceof PersistentList) {
+			PersistentList newList = ((PersistentList) list).copy();
+			newList.remove(0);
+			return newList;
+		}
 
 		// Create new list
-		ArrayList newList = new ArrayList(list.size() - 1);
+		ArrayList newList = ((TypeList) classType).newList(list.size() - 1);
 
 		// Add all but first elements from list
 		int idx = 0;
@@ -9,6 +9,7 @@ import org.bds.lang.Type;
 import org.bds.lang.TypeList;
 import org.bds.lang.TypeMap;
 import org.bds.run.BdsThread;
+import org.bds.util.SortedKeysHashMap;
 
 /**
  * Return a list of keys
@@ -38,6 +39,8 @@ public class MethodNativeMapKeys extends MethodNativeMap {
 	@Override
 	protected Object runMethodNative(BdsThread csThread, Object objThis) {
 		HashMap map = (HashMap) objThis;
+		if (map instanceof SortedKeysHashMap) return ((SortedKeysHashMap) map).sortedKeys(); // Sorted keys are cached
+
 		ArrayList list = new ArrayList();
 		list.addAll(map.keySet());
 		Collections.sort(list);
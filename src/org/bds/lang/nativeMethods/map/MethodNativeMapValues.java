@@ -38,7 +38,7 @@ public class MethodNativeMapValues extends MethodNativeMap {
 	@Override
 	protected Object runMethodNative(BdsThread csThread, Object objThis) {
 		HashMap map = (HashMap) objThis;
-		ArrayList list = new ArrayList();
+		ArrayList list = ((TypeList) returnType).newList(map.size());
 		list.addAll(map.values());
 		Collections.sort(list);
 		return list;
@@ -0,0 +1,34 @@
+package org.bds.lang.nativeMethods.string;
+
+import org.bds.lang.Parameters;
+import org.bds.lang.Type;
+import org.bds.lang.nativeMethods.MethodNative;
+import org.bds.run.BdsThread;
+
+/**
+ * Append a line (i.e. a string and a new line) to a file
+ *
+ * @author pcingola
+ */
+public class MethodNative_string_appendLine_str extends MethodNative {
+	public MethodNative_string_appendLine_str() {
+		super();
+	}
+
+	@Override
+	protected void initMethod() {
+		functionName = "appendLine";
+		classType = Type.STRING;
+		returnType = Type.STRING;
+
+		String argNames[] = { "this", "str" };
+		Type argTypes[] = { Type.STRING, Type.STRING };
+		parameters = Parameters.get(argTypes, argNames);
+		addNativeMethodToClassScope();
+	}
+
+	@Override
+	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
+		return MethodNative_string_append_str.append(bdsThread, this, objThis.toString(), bdsThread.getString("str") + "\n");
+	}
+}
@@ -0,0 +1,46 @@
+package org.bds.lang.nativeMethods.string;
+
+import org.bds.data.Data;
+import org.bds.data.DataWriters;
+import org.bds.lang.Parameters;
+import org.bds.lang.Type;
+import org.bds.lang.nativeMethods.MethodNative;
+import org.bds.run.BdsThread;
+
+/**
+ * Append a string to a file (buffered, see DataWriters)
+ *
+ * @author pcingola
+ */
+public class MethodNative_string_append_str extends MethodNative {
+	public MethodNative_string_append_str() {
+		super();
+	}
+
+	/**
+	 * Append 'str' to file
+	 */
+	public static String append(BdsThread bdsThread, MethodNative node, String fileName, String str) {
+		// Note: We don't use 'bdsThread.data()' because it flushes the file's writer
+		Data data = Data.factory(fileName, bdsThread.getCurrentDir());
+		if (!DataWriters.getInstance().append(data, str, bdsThread, node)) return "";
+		return str;
+	}
+
+	@Override
+	protected void initMethod() {
+		functionName = "append";
+		classType = Type.STRING;
+		returnType = Type.STRING;
+
+		String argNames[] = { "this", "str" };
+		Type argTypes[] = { Type.STRING, Type.STRING };
+		parameters = Parameters.get(argTypes, argNames);
+		addNativeMethodToClassScope();
+	}
+
+	@Override
+	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
+		return append(bdsThread, this, objThis.toString(), bdsThread.getString("str"));
+	}
+}
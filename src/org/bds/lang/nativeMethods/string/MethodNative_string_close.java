@@ -0,0 +1,37 @@
+package org.bds.lang.nativeMethods.string;
+
+import org.bds.data.Data;
+import org.bds.data.DataWriters;
+import org.bds.lang.Parameters;
+import org.bds.lang.Type;
+import org.bds.lang.nativeMethods.MethodNative;
+import org.bds.run.BdsThread;
+
+/**
+ * Close a file opened by 'append' (remote files are uploaded)
+ *
+ * @author pcingola
+ */
+public class MethodNative_string_close extends MethodNative {
+	public MethodNative_string_close() {
+		super();
+	}
+
+	@Override
+	protected void initMethod() {
+		functionName = "close";
+		classType = Type.STRING;
+		returnType = Type.BOOL;
+
+		String argNames[] = { "this" };
+		Type argTypes[] = { Type.STRING };
+		parameters = Parameters.get(argTypes, argNames);
+		addNativeMethodToClassScope();
+	}
+
+	@Override
+	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
+		Data data = Data.factory(objThis.toString(), bdsThread.getCurrentDir());
+		return DataWriters.getInstance().close(data);
+	}
+}
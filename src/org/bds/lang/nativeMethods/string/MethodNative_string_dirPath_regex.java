@@ -1,7 +1,6 @@
 package org.bds.lang.nativeMethods.string;
 
 import java.io.File;
-import java.nio.file.FileSystems;
 import java.nio.file.PathMatcher;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -12,6 +11,7 @@ import org.bds.lang.Type;
 import org.bds.lang.TypeList;
 import org.bds.lang.nativeMethods.MethodNative;
 import org.bds.run.BdsThread;
+import org.bds.util.PatternCache;
 
 public class MethodNative_string_dirPath_regex extends MethodNative {
 
@@ -46,7 +46,7 @@ public class MethodNative_string_dirPath_regex extends MethodNative {
 		//---
 		// List all files, filtered by 'glob'
 		//---
-		final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+		final PathMatcher matcher = PatternCache.pathMatcher(glob);
 
 		String baseDirName = objThis.toString();
 		if (!baseDirName.endsWith("/")) baseDirName += "/";
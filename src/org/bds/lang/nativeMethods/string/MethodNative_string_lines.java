@@ -11,6 +11,7 @@ import org.bds.lang.nativeMethods.MethodNative;
 import org.bds.run.BdsThread;
 import org.bds.task.Task;
 import org.bds.util.Gpr;
+import org.bds.util.LazyListLines;
 
 public class MethodNative_string_lines extends MethodNative {
 	public MethodNative_string_lines() {
@@ -31,6 +32,6 @@ public class MethodNative_string_lines extends MethodNative {
 
 	@Override
 	protected Object runMethodNative(BdsThread csThread, Object objThis) {
-		return array2list( objThis.toString().split( "\n" ) );
+		return LazyListLines.string(objThis.toString());
 	}
 }
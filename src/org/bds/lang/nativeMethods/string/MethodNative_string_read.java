@@ -36,6 +36,6 @@ public class MethodNative_string_read extends MethodNative {
 		) return ""; // Download error
 
 		// Read local copy of the data
-		return Gpr.readFile(data.getLocalPath(), false);
+		return Gpr.readFileMapped(data.getLocalPath(), false);
 	}
 }
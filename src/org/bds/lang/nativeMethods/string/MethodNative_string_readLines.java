@@ -9,6 +9,7 @@ import org.bds.lang.TypeList;
 import org.bds.lang.nativeMethods.MethodNative;
 import org.bds.run.BdsThread;
 import org.bds.util.Gpr;
+import org.bds.util.LazyListLines;
 
 public class MethodNative_string_readLines extends MethodNative {
 	public MethodNative_string_readLines() {
@@ -41,8 +42,8 @@ public class MethodNative_string_readLines extends MethodNative {
 		// Local file doesn't exist? Return an empty list
 		if (!Gpr.exists(data.getLocalPath())) return new ArrayList<String>();
 
-		// Read file and split it
+		// Lines are read on demand (the file is not loaded into memory unless the list is modified or indexed)
 		// Note: If the file is empty, it should return a list with a single empty string (not an empty list)
-		return array2list(Gpr.readFile(data.getLocalPath(), false).split("\n"));
+		return LazyListLines.file(data.getLocalPath());
 	}
 }
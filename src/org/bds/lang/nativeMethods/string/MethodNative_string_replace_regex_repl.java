@@ -4,6 +4,7 @@ import org.bds.lang.Parameters;
 import org.bds.lang.Type;
 import org.bds.lang.nativeMethods.MethodNative;
 import org.bds.run.BdsThread;
+import org.bds.util.PatternCache;
 
 public class MethodNative_string_replace_regex_repl extends MethodNative {
 	public MethodNative_string_replace_regex_repl() {
@@ -24,6 +25,6 @@ public class MethodNative_string_replace_regex_repl extends MethodNative {
 
 	@Override
 	protected Object runMethodNative(BdsThread csThread, Object objThis) {
-		return objThis.toString().replaceAll(csThread.getString("regex"), csThread.getString("repl"));
+		return PatternCache.replaceAll(objThis.toString(), csThread.getString("regex"), csThread.getString("repl"));
 	}
 }
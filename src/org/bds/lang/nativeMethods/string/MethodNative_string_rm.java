@@ -1,5 +1,7 @@
 package org.bds.lang.nativeMethods.string;
 
+import org.bds.data.Data;
+import org.bds.data.DataWriters;
 import org.bds.lang.Parameters;
 import org.bds.lang.Type;
 import org.bds.lang.nativeMethods.MethodNative;
@@ -24,6 +26,8 @@ public class MethodNative_string_rm extends MethodNative {
 
 	@Override
 	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
-		return (bdsThread.data(objThis.toString())).delete();
+		Data data = bdsThread.data(objThis.toString());
+		DataWriters.getInstance().discard(data); // File opened for 'append'? Close it before deleting
+		return data.delete();
 	}
 }
@@ -7,6 +7,7 @@ import org.bds.lang.Type;
 import org.bds.lang.TypeList;
 import org.bds.lang.nativeMethods.MethodNative;
 import org.bds.run.BdsThread;
+import org.bds.util.PatternCache;
 
 public class MethodNative_string_split_regex extends MethodNative {
 	public MethodNative_string_split_regex() {
@@ -31,7 +32,7 @@ public class MethodNative_string_split_regex extends MethodNative {
 		if (str.isEmpty()) return new ArrayList<String>();
 		try {
 			String regex = csThread.getString("regex");
-			return array2list(str.split(regex, -1));
+			return array2list(PatternCache.split(str, regex, -1));
 		} catch (Throwable t) {
 			ArrayList<String> l = new ArrayList<>();
 			l.add(str);
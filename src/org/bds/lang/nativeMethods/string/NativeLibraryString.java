@@ -1,100 +1,78 @@
 package org.bds.lang.nativeMethods.string;
 
-import java.util.ArrayList;
-
-import org.bds.lang.nativeMethods.MethodNative;
+import org.bds.lang.NativeLibrary;
 
 /**
- * Loads all classes used for native library
+ * Native string methods library: Method names and classes
+ * Note: Methods are created only when they are used (see NativeLibrary)
+ *
  * @author pcingola
  *
  */
 public class NativeLibraryString {
 
-	public static String classNames[] = { "org.bds.lang.nativeMethods.string.MethodNative_string_length" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_toUpper" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_toLower" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_trim" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_substr_start_end" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_substr_start" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_split_regex" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_lines" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_isEmpty" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_startsWith_str" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_endsWith_str" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_indexOf_str" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_lastIndexOf_str" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_replace_str1_str2" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_parseInt" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_parseReal" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_parseBool" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_replace_regex_repl" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_path" //
+	public static NativeLibrary.Entry natives[] = { //
+			NativeLibrary.entry("length", "org.bds.lang.nativeMethods.string.MethodNative_string_length") //
+			, NativeLibrary.entry("toUpper", "org.bds.lang.nativeMethods.string.MethodNative_string_toUpper") //
+			, NativeLibrary.entry("toLower", "org.bds.lang.nativeMethods.string.MethodNative_string_toLower") //
+			, NativeLibrary.entry("trim", "org.bds.lang.nativeMethods.string.MethodNative_string_trim") //
+			, NativeLibrary.entry("substr", "org.bds.lang.nativeMethods.string.MethodNative_string_substr_start_end") //
+			, NativeLibrary.entry("substr", "org.bds.lang.nativeMethods.string.MethodNative_string_substr_start") //
+			, NativeLibrary.entry("split", "org.bds.lang.nativeMethods.string.MethodNative_string_split_regex") //
+			, NativeLibrary.entry("lines", "org.bds.lang.nativeMethods.string.MethodNative_string_lines") //
+			, NativeLibrary.entry("isEmpty", "org.bds.lang.nativeMethods.string.MethodNative_string_isEmpty") //
+			, NativeLibrary.entry("startsWith", "org.bds.lang.nativeMethods.string.MethodNative_string_startsWith_str") //
+			, NativeLibrary.entry("endsWith", "org.bds.lang.nativeMethods.string.MethodNative_string_endsWith_str") //
+			, NativeLibrary.entry("indexOf", "org.bds.lang.nativeMethods.string.MethodNative_string_indexOf_str") //
+			, NativeLibrary.entry("lastIndexOf", "org.bds.lang.nativeMethods.string.MethodNative_string_lastIndexOf_str") //
+			, NativeLibrary.entry("replace", "org.bds.lang.nativeMethods.string.MethodNative_string_replace_str1_str2") //
+			, NativeLibrary.entry("parseInt", "org.bds.lang.nativeMethods.string.MethodNative_string_parseInt") //
+			, NativeLibrary.entry("parseReal", "org.bds.lang.nativeMethods.string.MethodNative_string_parseReal") //
+			, NativeLibrary.entry("parseBool", "org.bds.lang.nativeMethods.string.MethodNative_string_parseBool") //
+			, NativeLibrary.entry("replaceAll", "org.bds.lang.nativeMethods.string.MethodNative_string_replace_regex_repl") //
+			, NativeLibrary.entry("path", "org.bds.lang.nativeMethods.string.MethodNative_string_path") //
 			// String as files
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_baseName" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_baseName_ext" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_canExec" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_canRead" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_canWrite" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_chdir" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_delete" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_dir" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_dir_regex" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_dirName" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_dirPath" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_dirPath_regex" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_download" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_download_localname" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_exists" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_extName" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_isDir" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_isFile" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_mkdir" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_pathName" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_read" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_readLines" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_removeExt" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_removeExt_ext" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_rm" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_rmOnExit" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_size" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_swapExt_extNew" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_swapExt_extOld_extNew" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_upload" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_upload_localname" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_write_str" //
+			, NativeLibrary.entry("append", "org.bds.lang.nativeMethods.string.MethodNative_string_append_str") //
+			, NativeLibrary.entry("appendLine", "org.bds.lang.nativeMethods.string.MethodNative_string_appendLine_str") //
+			, NativeLibrary.entry("baseName", "org.bds.lang.nativeMethods.string.MethodNative_string_baseName") //
+			, NativeLibrary.entry("baseName", "org.bds.lang.nativeMethods.string.MethodNative_string_baseName_ext") //
+			, NativeLibrary.entry("canExec", "org.bds.lang.nativeMethods.string.MethodNative_string_canExec") //
+			, NativeLibrary.entry("canRead", "org.bds.lang.nativeMethods.string.MethodNative_string_canRead") //
+			, NativeLibrary.entry("canWrite", "org.bds.lang.nativeMethods.string.MethodNative_string_canWrite") //
+			, NativeLibrary.entry("chdir", "org.bds.lang.nativeMethods.string.MethodNative_string_chdir") //
+			, NativeLibrary.entry("close", "org.bds.lang.nativeMethods.string.MethodNative_string_close") //
+			, NativeLibrary.entry("delete", "org.bds.lang.nativeMethods.string.MethodNative_string_delete") //
+			, NativeLibrary.entry("dir", "org.bds.lang.nativeMethods.string.MethodNative_string_dir") //
+			, NativeLibrary.entry("dir", "org.bds.lang.nativeMethods.string.MethodNative_string_dir_regex") //
+			, NativeLibrary.entry("dirName", "org.bds.lang.nativeMethods.string.MethodNative_string_dirName") //
+			, NativeLibrary.entry("dirPath", "org.bds.lang.nativeMethods.string.MethodNative_string_dirPath") //
+			, NativeLibrary.entry("dirPath", "org.bds.lang.nativeMethods.string.MethodNative_string_dirPath_regex") //
+			, NativeLibrary.entry("download", "org.bds.lang.nativeMethods.string.MethodNative_string_download") //
+			, NativeLibrary.entry("download", "org.bds.lang.nativeMethods.string.MethodNative_string_download_localname") //
+			, NativeLibrary.entry("exists", "org.bds.lang.nativeMethods.string.MethodNative_string_exists") //
+			, NativeLibrary.entry("extName", "org.bds.lang.nativeMethods.string.MethodNative_string_extName") //
+			, NativeLibrary.entry("isDir", "org.bds.lang.nativeMethods.string.MethodNative_string_isDir") //
+			, NativeLibrary.entry("isFile", "org.bds.lang.nativeMethods.string.MethodNative_string_isFile") //
+			, NativeLibrary.entry("mkdir", "org.bds.lang.nativeMethods.string.MethodNative_string_mkdir") //
+			, NativeLibrary.entry("pathName", "org.bds.lang.nativeMethods.string.MethodNative_string_pathName") //
+			, NativeLibrary.entry("read", "org.bds.lang.nativeMethods.string.MethodNative_string_read") //
+			, NativeLibrary.entry("readLines", "org.bds.lang.nativeMethods.string.MethodNative_string_readLines") //
+			, NativeLibrary.entry("removeExt", "org.bds.lang.nativeMethods.string.MethodNative_string_removeExt") //
+			, NativeLibrary.entry("removeExt", "org.bds.lang.nativeMethods.string.MethodNative_string_removeExt_ext") //
+			, NativeLibrary.entry("rm", "org.bds.lang.nativeMethods.string.MethodNative_string_rm") //
+			, NativeLibrary.entry("rmOnExit", "org.bds.lang.nativeMethods.string.MethodNative_string_rmOnExit") //
+			, NativeLibrary.entry("size", "org.bds.lang.nativeMethods.string.MethodNative_string_size") //
+			, NativeLibrary.entry("swapExt", "org.bds.lang.nativeMethods.string.MethodNative_string_swapExt_extNew") //
+			, NativeLibrary.entry("swapExt", "org.bds.lang.nativeMethods.string.MethodNative_string_swapExt_extOld_extNew") //
+			, NativeLibrary.entry("upload", "org.bds.lang.nativeMethods.string.MethodNative_string_upload") //
+			, NativeLibrary.entry("upload", "org.bds.lang.nativeMethods.string.MethodNative_string_upload_localname") //
+			, NativeLibrary.entry("write", "org.bds.lang.nativeMethods.string.MethodNative_string_write_str") //
 			// String as task
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_exitCode" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_isDone" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_isDoneOk" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_stdout" //
-			, "org.bds.lang.nativeMethods.string.MethodNative_string_stderr" //
-
+			, NativeLibrary.entry("exitCode", "org.bds.lang.nativeMethods.string.MethodNative_string_exitCode") //
+			, NativeLibrary.entry("isDone", "org.bds.lang.nativeMethods.string.MethodNative_string_isDone") //
+			, NativeLibrary.entry("isDoneOk", "org.bds.lang.nativeMethods.string.MethodNative_string_isDoneOk") //
+			, NativeLibrary.entry("stdout", "org.bds.lang.nativeMethods.string.MethodNative_string_stdout") //
+			, NativeLibrary.entry("stderr", "org.bds.lang.nativeMethods.string.MethodNative_string_stderr") //
 	};
 
-	ArrayList<MethodNative> methods;
-
-	@SuppressWarnings("rawtypes")
-	public NativeLibraryString() {
-		try {
-			methods = new ArrayList<MethodNative>();
-
-			for (String className : classNames) {
-				Class c = Class.forName(className);
-				methods.add((MethodNative) c.newInstance());
-			}
-		} catch (Exception e) {
-			throw new RuntimeException("Error creating native library", e);
-		}
-	}
-
-	@Override
-	public String toString() {
-		StringBuilder sb = new StringBuilder();
-		sb.append(getClass().getSimpleName() + ":\n");
-		for (MethodNative m : methods)
-			sb.append("\t" + m.getClass().getSimpleName() + "\n");
-		return sb.toString();
-	}
-
 }
@@ -434,7 +434,7 @@ public class Report {
 	String threadIdNum(BdsThread bdsThread) {
 		if (bdsThread == null) return "None";
 		if (bdsThread.getParent() == null) return "thread_Root";
-		return "thread_" + bdsThread.getId();
+		return "thread_" + bdsThread.getBdsThreadNum();
 	}
 
 }
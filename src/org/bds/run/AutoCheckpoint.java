@@ -0,0 +1,133 @@
+package org.bds.run;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bds.Config;
+import org.bds.lang.BdsNode;
+import org.bds.lang.Block;
+import org.bds.util.Timer;
+
+/**
+ * Automatic checkpoints: Create a checkpoint every N minutes and/or
+ * every M finished tasks, without 'checkpoint' statements in the program
+ *
+ * Checkpoints are only created at 'safe points': Before a statement in
+ * a block is executed by the root thread. Recovering from one of these
+ * checkpoints is the same as recovering from a 'checkpoint' statement
+ * at that point in the program (the statement is executed again).
+ *
+ * The interval between checkpoints is adapted to the time it takes to
+ * create them (i.e. the time the program is paused), so that creating
+ * checkpoints does not take more than 'maxOverhead' of the wall time.
+ *
+ * @author pcingola
+ */
+public class AutoCheckpoint {
+
+	public static final double MAX_OVERHEAD_DEFAULT = 5.0; // Maximum overhead (percent of wall time)
+	public static final long NANO_PER_MINUTE = 60L * 1000 * 1000 * 1000;
+
+	private static final AtomicLong tasksFinished = new AtomicLong(); // Number of tasks finished OK
+
+	long interval; // Time between checkpoints (nanoseconds), zero if disabled
+	long tasks; // Finished tasks between checkpoints, zero if disabled
+	double maxOverhead; // Maximum fraction of wall time used for checkpoints
+	long start; // Start time
+	long last; // Time when last checkpoint finished
+	long lastCost; // Time used to create last checkpoint
+	long totalCost; // Time used to create all checkpoints
+	long tasksLast; // Number of finished tasks when last checkpoint was created
+	int count; // Number of checkpoints created
+
+	/**
+	 * Create an AutoCheckpoint if enabled in config, otherwise null
+	 */
+	public static AutoCheckpoint factory(Config config) {
+		if (config.isNoCheckpoint()) return null;
+		if (config.getCheckpointInterval() <= 0 && config.getCheckpointTasks() <= 0) return null;
+		return new AutoCheckpoint(config.getCheckpointInterval(), config.getCheckpointTasks(), config.getCheckpointMaxOverhead());
+	}
+
+	/**
+	 * A task finished OK
+	 */
+	public static void taskFinished() {
+		tasksFinished.incrementAndGet();
+	}
+
+	/**
+	 * @param intervalMinutes : Minutes between checkpoints (zero to disable)
+	 * @param tasks : Number of finished tasks between checkpoints (zero to disable)
+	 * @param maxOverheadPercent : Maximum percentage of wall time used for checkpoints
+	 */
+	public AutoCheckpoint(double intervalMinutes, long tasks, double maxOverheadPercent) {
+		interval = (long) (intervalMinutes * NANO_PER_MINUTE);
+		this.tasks = tasks;
+		maxOverhead = (maxOverheadPercent > 0 ? maxOverheadPercent : MAX_OVERHEAD_DEFAULT) / 100.0;
+		start = last = System.nanoTime();
+		tasksLast = tasksFinished.get();
+	}
+
+	/**
+	 * Create a checkpoint if it is due
+	 * @return true if a checkpoint was created
+	 */
+	public boolean check(BdsThread bdsThread, BdsNode node) {
+		if (!isSafePoint(node)) return false;
+
+		long now = System.nanoTime();
+		if (!isDue(now)) return false;
+
+		// Create checkpoint and measure how long the program was paused
+		String checkpointFileName = bdsThread.checkpoint((String) null);
+		long end = System.nanoTime();
+		lastCost = end - now;
+		totalCost += lastCost;
+		last = end;
+		tasksLast = tasksFinished.get();
+		count++;
+
+		if (bdsThread.isVerbose()) Timer.showStdErr("Automatic checkpoint '" + checkpointFileName + "' (" + node.getFileName() + ":" + node.getLineNum() + "): " + (lastCost / 1000000) + " ms, next checkpoint in at least " + (minGap() / 1000000) + " ms");
+		return true;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public long getTotalCost() {
+		return totalCost;
+	}
+
+	/**
+	 * Is it time to create a checkpoint?
+	 */
+	boolean isDue(long now) {
+		long elapsed = now - last;
+		if (elapsed < minGap()) return false; // Too soon, overhead would be too high
+
+		if (interval > 0 && elapsed >= interval) return true;
+		if (tasks > 0 && (tasksFinished.get() - tasksLast) >= tasks) return true;
+		return false;
+	}
+
+	/**
+	 * Safe point: A statement in a block (not an expression being evaluated)
+	 */
+	boolean isSafePoint(BdsNode node) {
+		return node.getParent() instanceof Block;
+	}
+
+	/**
+	 * Minimum time between checkpoints, so that the overhead is at most 'maxOverhead'
+	 * Note: We use both the last checkpoint's cost and the total cost, so that
+	 *       a single fast checkpoint does not make the interval too short
+	 */
+	long minGap() {
+		if (count == 0) return 0;
+		long gapLast = (long) (lastCost / maxOverhead) - lastCost;
+		long gapTotal = (long) (totalCost / maxOverhead) - (last - start);
+		return Math.max(gapLast, gapTotal);
+	}
+
+}
@@ -4,6 +4,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Deque;
@@ -13,9 +14,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import org.bds.Config;
 import org.bds.data.Data;
+import org.bds.data.DataWriters;
 import org.bds.executioner.Executioner;
 import org.bds.executioner.Executioners;
 import org.bds.lang.BdsNode;
@@ -46,9 +49,12 @@ import org.bds.util.Timer;
  *
  * It has all information to run a program (scope, pc, run state, etc)
  *
+ * Note: A BdsThread is not a java.lang.Thread, it is run as a task
+ * on BdsThreads' executor (see 'start()' and 'join()')
+ *
  * @author pcingola
  */
-public class BdsThread extends Thread implements BdsSerialize {
+public class BdsThread implements Runnable, BdsSerialize {
 
 	public static final int MAX_TASK_FAILED_NAMES = 10; // Maximum number of failed tasks to show in summary
 	public static final int FROZEN_SLEEP_TIME = 25; // Sleep time when frozen (milliseconds)
@@ -62,11 +68,15 @@ public class BdsThread extends Thread implements BdsSerialize {
 	String statementNodeId; // Statement's ID, used only when un-serializing
 	ProgramCounter pc; // Program counter
 	RunState runState; // Latest RunState
+	String fatalErrorMessage; // Latest fatal error (file, line and message)
+	boolean parallelWorker; // Parallel function worker (see 'BdsThread(caller, scope)')
 	Object returnValue; // Latest return value (from a 'return' statement)
 	int exitValue; // Exit value
 	List<String> removeOnExit; // Files to be removed on exit
 	Timer timer; // Program timer
 	boolean freeze; // Freeze execution in next execution step
+	volatile boolean started; // Has this thread been started?
+	CountDownLatch finished = new CountDownLatch(1); // Released when 'run()' finishes
 
 	// Debug stuff
 	BufferedReader console; // Read debug commands from console
@@ -81,6 +91,7 @@ public class BdsThread extends Thread implements BdsSerialize {
 	// BdsThread
 	String currentDir; // Program's 'current directoy'
 	BdsThread parent; // Parent thread
+	AutoCheckpoint autoCheckpoint; // Create checkpoints automatically (only root thread)
 	String bdsThreadId; // BdsThread ID
 	int bdsThreadNum; // Thread number
 	Map<String, BdsThread> bdsChildThreadsById; // Child threads
@@ -97,7 +108,6 @@ public class BdsThread extends Thread implements BdsSerialize {
 	}
 
 	public BdsThread(Statement statement, BdsThread parent) {
-		super();
 		this.parent = parent;
 		bdsThreadNum = bigDataScriptThreadId();
 		pc = new ProgramCounter(parent.getPc());
@@ -120,7 +130,6 @@ public class BdsThread extends Thread implements BdsSerialize {
 	}
 
 	public BdsThread(Statement statement, Config config) {
-		super();
 		bdsThreadNum = bigDataScriptThreadId();
 		pc = new ProgramCounter();
 		scope = Scope.getGlobalScope();
@@ -139,6 +148,50 @@ public class BdsThread extends Thread implements BdsSerialize {
 		taskDependecies.setDebug(isDebug());
 	}
 
+	/**
+	 * Interpreter context used to evaluate constant expressions at
+	 * compile time (see ConstantFolding)
+	 *
+	 * It is neither started nor registered and it does not use a thread number
+	 */
+	public BdsThread(Config config) {
+		pc = new ProgramCounter();
+		scope = Scope.getGlobalScope();
+		stack = new LinkedList<>();
+		runState = RunState.OK;
+		this.config = config;
+		bdsChildThreadsById = new HashMap<>();
+		taskDependecies = new TaskDependecies();
+	}
+
+	/**
+	 * Lightweight interpreter context used to evaluate (pure) functions
+	 * in parallel, e.g. 'list.pmap(f)'
+	 *
+	 * It shares program, config and scope with 'caller', but it is
+	 * neither started nor registered as a child thread
+	 */
+	public BdsThread(BdsThread caller, Scope scope) {
+		parent = caller;
+		bdsThreadNum = caller.bdsThreadNum;
+		bdsThreadId = caller.bdsThreadId;
+		statement = caller.statement;
+		statementNodeId = caller.statementNodeId;
+		pc = new ProgramCounter(caller.getPc());
+		this.scope = scope;
+		stack = new LinkedList<>();
+		runState = RunState.OK;
+		config = caller.config;
+		random = caller.random;
+		removeOnExit = caller.removeOnExit;
+		currentDir = caller.currentDir;
+		debugMode = null; // Parallel workers are never debugged
+		parallelWorker = true;
+
+		bdsChildThreadsById = new HashMap<>();
+		taskDependecies = new TaskDependecies();
+	}
+
 	/**
 	 * Add a child task
 	 */
@@ -195,6 +248,10 @@ public class BdsThread extends Thread implements BdsSerialize {
 		// Skip checkpoint file?
 		if (Config.get().isNoCheckpoint()) return "";
 
+		// Node has no file information (e.g. native function)? Use the closest node that has it
+		node = getNodeFileLine(node);
+		if (node == null) return checkpoint((String) null);
+
 		// Create checkpoint
 		String programFile = statement.getFileNameCanonical();
 		String nodeFile = node.getFileNameCanonical();
@@ -240,7 +297,7 @@ public class BdsThread extends Thread implements BdsSerialize {
 		// Create ID
 		String name = Gpr.baseName(statement.getFileName());
 		if (isRoot()) bdsThreadId = String.format("%s.%2$tY%2$tm%2$td_%2$tH%2$tM%2$tS_%2$tL", name, Calendar.getInstance());
-		else bdsThreadId = parent.bdsThreadId + "_parallel_" + getId();
+		else bdsThreadId = parent.bdsThreadId + "_parallel_" + bdsThreadNum;
 	}
 
 	/**
@@ -259,7 +316,9 @@ public class BdsThread extends Thread implements BdsSerialize {
 	 * Create a new (and canonical) file relative to 'currentDir'
 	 */
 	public Data data(String fileName) {
-		return Data.factory(fileName, currentDir);
+		Data data = Data.factory(fileName, currentDir);
+		DataWriters.getInstance().flush(data.getLocalPath()); // Pending 'append' data must be written before using the file
+		return data;
 	}
 
 	/**
@@ -392,9 +451,15 @@ public class BdsThread extends Thread implements BdsSerialize {
 	public void fatalError(BdsNode bdsnode, String message) {
 		runState = RunState.FATAL_ERROR;
 		String filePos = getFileLinePos(bdsnode);
-		System.err.println("Fatal error: " //
-				+ filePos + (filePos.isEmpty() ? "" : ". ") //
-				+ message);
+		fatalErrorMessage = filePos + (filePos.isEmpty() ? "" : ". ") + message;
+
+		// Parallel worker: The error is reported by the calling thread (only once, even if many workers fail)
+		if (parallelWorker) {
+			setExitValue(1L);
+			return;
+		}
+
+		System.err.println("Fatal error: " + fatalErrorMessage);
 
 		// Show BDS stack trace
 		try {
@@ -420,7 +485,7 @@ public class BdsThread extends Thread implements BdsSerialize {
 		fatalError(bdsnode, t.getMessage());
 
 		// Show java stack trace
-		if ((config == null) || isVerbose()) t.printStackTrace();
+		if (((config == null) || isVerbose()) && !parallelWorker) t.printStackTrace();
 	}
 
 	/**
@@ -446,6 +511,10 @@ public class BdsThread extends Thread implements BdsSerialize {
 		return bdsThreadId;
 	}
 
+	public int getBdsThreadNum() {
+		return bdsThreadNum;
+	}
+
 	public List<BdsThread> getBdsThreads() {
 		List<BdsThread> list = new ArrayList<>();
 		list.addAll(bdsChildThreadsById.values());
@@ -488,18 +557,33 @@ public class BdsThread extends Thread implements BdsSerialize {
 		return exitValue;
 	}
 
+	public String getFatalErrorMessage() {
+		return fatalErrorMessage;
+	}
+
 	/**
 	 * Try to get file / line / pos information
 	 * Recurse to parent node if not found
 	 */
 	public String getFileLinePos(BdsNode bdsNode) {
+		BdsNode bn = getNodeFileLine(bdsNode);
+		if (bn == null) return "";
+
+		// Position is only shown if 'bdsNode' has file/line info
+		return bn.getFileName() //
+				+ ", line " + bn.getLineNum() //
+				+ (bn == bdsNode ? ", pos " + (bn.getCharPosInLine() + 1) : "") //
+		;
+	}
+
+	/**
+	 * Get a node having file / line information: Either 'bdsNode' or
+	 * the last node in the program counter that has it
+	 * @return A node or null if not found
+	 */
+	BdsNode getNodeFileLine(BdsNode bdsNode) {
 		// If the node has file/line info, we are done
-		if (bdsNode.getFileNameCanonical() != null) { //
-			return bdsNode.getFileName() //
-					+ ", line " + bdsNode.getLineNum() //
-					+ ", pos " + (bdsNode.getCharPosInLine() + 1) //
-			;
-		}
+		if (bdsNode.getFileNameCanonical() != null) return bdsNode;
 
 		// No file/line info in 'bdsNode'. we walk the program-counter
 		// form end to start and return the information from the
@@ -517,13 +601,11 @@ public class BdsThread extends Thread implements BdsSerialize {
 			int nodeId = pc.nodeId(idx);
 			BdsNode bn = nodesById.get(nodeId);
 
-			if (bn.getFileNameCanonical() != null) { //
-				return bn.getFileName() + ", line " + bn.getLineNum();
-			}
+			if (bn.getFileNameCanonical() != null) return bn;
 		}
 
-		// Nothing found? Return empty
-		return "";
+		// Nothing found
+		return null;
 	}
 
 	/**
@@ -550,6 +632,10 @@ public class BdsThread extends Thread implements BdsSerialize {
 		return getScope().getSymbol(varName).getValue();
 	}
 
+	public AutoCheckpoint getAutoCheckpoint() {
+		return autoCheckpoint;
+	}
+
 	public BdsThread getParent() {
 		return parent;
 	}
@@ -706,6 +792,13 @@ public class BdsThread extends Thread implements BdsSerialize {
 		return runState.isFinished();
 	}
 
+	/**
+	 * Has this thread been started and not finished running yet?
+	 */
+	public boolean isAlive() {
+		return started && finished.getCount() > 0;
+	}
+
 	/**
 	 * Is this thread frozen?
 	 */
@@ -732,6 +825,14 @@ public class BdsThread extends Thread implements BdsSerialize {
 		return config != null && config.isVerbose();
 	}
 
+	/**
+	 * Wait for this thread to finish running
+	 * Note: Returns immediately if the thread was not started
+	 */
+	public void join() throws InterruptedException {
+		if (started) finished.await();
+	}
+
 	/**
 	 * Kill: Stop execution of current thread
 	 */
@@ -781,6 +882,10 @@ public class BdsThread extends Thread implements BdsSerialize {
 		scope = scope.getParent();
 	}
 
+	public int getStackSize() {
+		return stack.size();
+	}
+
 	public Object peek() {
 		if (isCheckpointRecover()) return null;
 		return stack.peek();
@@ -914,116 +1019,140 @@ public class BdsThread extends Thread implements BdsSerialize {
 
 	@Override
 	public void run() {
-		timer = new Timer();
+		try {
+			timer = new Timer();
 
-		createLogDir(); // Create log dir
+			createLogDir(); // Create log dir
+			if (parent == null) autoCheckpoint = AutoCheckpoint.factory(config);
 
-		// Start child threads (e.g. when recovering)
-		for (BdsThread bth : bdsChildThreadsById.values()) {
-			if (!bth.isAlive() && !bth.isFinished()) bth.start();
-		}
+			// Start child threads (e.g. when recovering)
+			for (BdsThread bth : bdsChildThreadsById.values()) {
+				if (!bth.isAlive() && !bth.isFinished()) bth.start();
+			}
 
-		// Add this thread to collections
-		BdsThreads.getInstance().add(this);
+			// Add this thread to collections
+			BdsThreads.getInstance().add(this);
 
-		// Run statement (i.e. run program)
-		boolean ok = true;
-		runStatement();
+			// Run statement (i.e. run program)
+			boolean ok = true;
+			runStatement();
 
-		// We are done running
-		if (isDebug()) Timer.showStdErr("BdsThread finished: " + getBdsThreadId());
-		if (isFatalError()) {
-			// Error condition
-			ok = false;
-		} else {
-			// OK, we finished running
-			if (isVerbose()) Timer.showStdErr((isRoot() ? "Program" : "Parallel") + " '" + getBdsThreadId() + "' execution finished");
+			// We are done running
+			if (isDebug()) Timer.showStdErr("BdsThread finished: " + getBdsThreadId());
+			if (isFatalError()) {
+				// Error condition
+				ok = false;
+			} else {
+				// OK, we finished running
+				if (isVerbose()) Timer.showStdErr((isRoot() ? "Program" : "Parallel") + " '" + getBdsThreadId() + "' execution finished");
 
-			// Implicit 'wait' statement at the end of the program (only if the program finished 'naturally')
-			if (!isFatalError() && !isExit()) ok = waitAll();
-			else ok = false;
-		}
+				// Implicit 'wait' statement at the end of the program (only if the program finished 'naturally')
+				if (!isFatalError() && !isExit()) ok = waitAll();
+				else ok = false;
+			}
 
-		// All tasks in wait finished OK?
-		if (!ok) {
-			// Errors? Then set exit status appropriately
-			exitValue = 1;
-		} else {
-			Object ev = null;
+			// All tasks in wait finished OK?
+			if (!ok) {
+				// Errors? Then set exit status appropriately
+				exitValue = 1;
+			} else {
+				Object ev = null;
 
-			switch (runState) {
-			case EXIT:
-				ev = getExitValue();
-				break;
+				switch (runState) {
+				case EXIT:
+					ev = getExitValue();
+					break;
 
-			case RETURN:
-				ev = getReturnValue();
-				break;
+				case RETURN:
+					ev = getReturnValue();
+					break;
 
-			case FATAL_ERROR:
-			case THREAD_KILLED:
-				ev = 1L;
-				break;
+				case FATAL_ERROR:
+				case THREAD_KILLED:
+					ev = 1L;
+					break;
 
-			default:
-				ev = null;
-				break;
+				default:
+					ev = null;
+					break;
+				}
+
+				if (ev != null && ev instanceof Long) exitValue = (int) ((long) ((Long) ev)); // Yes, it's a very weird cast....
 			}
 
-			if (ev != null && ev instanceof Long) exitValue = (int) ((long) ((Long) ev)); // Yes, it's a very weird cast....
-		}
+			// We are completely done
+			runState = RunState.FINISHED;
 
-		// We are completely done
-		runState = RunState.FINISHED;
+			// Finish up
+			removeStaleData();
+			timer.end();
 
-		// Finish up
-		removeStaleData();
-		timer.end();
+			// Create reports? Only root thread creates reports
+			if (config != null && isRoot() && config.isLog()) {
+				// Note that some people may want both HTML and YAML reports
 
-		// Create reports? Only root thread creates reports
-		if (config != null && isRoot() && config.isLog()) {
-			// Note that some people may want both HTML and YAML reports
+				// Create HTML report?
+				if (config.isReportHtml()) {
+					Report report = new Report(this, false);
+					report.createReport();
+				}
 
-			// Create HTML report?
-			if (config.isReportHtml()) {
-				Report report = new Report(this, false);
-				report.createReport();
+				// Create YAML report?
+				if (config.isReportYaml()) {
+					Report report = new Report(this, true);
+					report.createReport();
+				}
 			}
 
-			// Create YAML report?
-			if (config.isReportYaml()) {
-				Report report = new Report(this, true);
-				report.createReport();
+			if (!isRoot()) parent.remove(this); // Remove this bdsThread from parent's threads
+
+			// OK, we are done
+			if (isVerbose()) {
+				// Root thread? Report all tasks
+				TaskDependecies td = isRoot() ? TaskDependecies.get() : taskDependecies;
+
+				Timer.showStdErr((isRoot() ? "Program" : "Parallel") + " " //
+						+ "'" + getBdsThreadId() + "'" //
+						+ " finished" //
+						+ (isDebug() ? ", run state: '" + runState + "'" : "") //
+						+ ", exit value: " + getExitValue() //
+						+ ", tasks executed: " + td.getTasks().size() //
+						+ ", tasks failed: " + td.countTaskFailed() //
+						+ ", tasks failed names: " + td.taskFailedNames(MAX_TASK_FAILED_NAMES, " , ") //
+						+ "." //
+				);
 			}
-		}
+		} finally {
+			// Close files opened for 'append' by this thread
+			DataWriters.getInstance().closeAll(this);
 
-		if (!isRoot()) parent.remove(this); // Remove this bdsThread from parent's threads
-
-		// OK, we are done
-		if (isVerbose()) {
-			// Root thread? Report all tasks
-			TaskDependecies td = isRoot() ? TaskDependecies.get() : taskDependecies;
-
-			Timer.showStdErr((isRoot() ? "Program" : "Parallel") + " " //
-					+ "'" + getBdsThreadId() + "'" //
-					+ " finished" //
-					+ (isDebug() ? ", run state: '" + runState + "'" : "") //
-					+ ", exit value: " + getExitValue() //
-					+ ", tasks executed: " + td.getTasks().size() //
-					+ ", tasks failed: " + td.countTaskFailed() //
-					+ ", tasks failed names: " + td.taskFailedNames(MAX_TASK_FAILED_NAMES, " , ") //
-					+ "." //
-			);
+			// Remove thread from "running threads"
+			BdsThreads.getInstance().remove();
+			finished.countDown();
 		}
-
-		// Remove thread from "running threads"
-		BdsThreads.getInstance().remove();
 	}
 
 	/**
 	 * Run this node
 	 */
 	public void run(BdsNode node) {
+		// Fast path: Normal execution (not recovering from a checkpoint)
+		if (runState == RunState.OK) {
+			runBegin(node);
+			if (freeze) freeze();
+			if (autoCheckpoint != null) autoCheckpoint.check(this, node);
+
+			try {
+				if (debugMode != null) debug(node);
+				node.runStep(this);
+			} catch (Throwable t) {
+				fatalError(node, t);
+			}
+
+			runEnd(node);
+			return;
+		}
+
 		// Before node execution
 		if (!isCheckpointRecover()) runBegin(node);
 
@@ -1123,91 +1252,82 @@ public class BdsThread extends Thread implements BdsSerialize {
 		currentDir = serializer.getNextFieldString();
 
 		// Stack
-		String b64 = serializer.getNextField();
-		stack = (b64 != null && !b64.isEmpty() ? (Deque<Object>) serializer.base64Decode(b64) : null);
+		stack = (Deque<Object>) serializer.getNextFieldObject();
 	}
 
 	@Override
-	public String serializeSave(BdsSerializer serializer) {
+	public void serializeSave(BdsSerializer serializer) {
 		// This 'serializeSave' method can be called form another thread
 		// We have to make sure that the thread is not running while
 		// serializing (otherwise we'll recover an inconsistent state)
 
 		// Set this thread to freeze (it will be frozen in the next 'run' call)
 		setFreeze(true);
-		String pcOld = pc.toString(); // Save current program counter
+		int pcOld[] = pc.snapshot(); // Save current program counter
 
-		// Serialize
-		String serStr = serializeSaveAll(serializer);
+		// Serialize (keep records in a buffer until we know they are consistent)
+		serializer.mark();
+		serializeSaveAll(serializer);
 
 		// Has program counter changed?
-		String pcNew = pc.toString();
-		if (!pcNew.equals(pcOld)) {
+		int pcNew[] = pc.snapshot();
+		if (!Arrays.equals(pcNew, pcOld)) {
 			// PC changed => We have to serialize again
 			// This time we are 'safe' because thread should be frozen
-			serStr = serializeSaveAll(serializer);
+			serializer.reset();
+			serializeSaveAll(serializer);
 		}
+		serializer.commit();
 
 		// Un-freeze
 		setFreeze(false);
-
-		return serStr.toString();
 	}
 
 	/**
 	 * Serialize main and data
 	 */
-	public String serializeSaveAll(BdsSerializer serializer) {
-		StringBuilder out = new StringBuilder();
-		out.append(serializeSaveThreadMain(serializer));
-		out.append("\n");
-		out.append(serializeSaveThreadData(serializer));
-		return out.toString();
+	public void serializeSaveAll(BdsSerializer serializer) {
+		serializer.startRecord(getClass().getSimpleName());
+		serializeSaveThreadMain(serializer);
+		serializer.endRecord();
+		serializeSaveThreadData(serializer);
 	}
 
 	/**
 	 * Save thread's data
 	 */
-	protected String serializeSaveThreadData(BdsSerializer serializer) {
-		StringBuilder out = new StringBuilder();
-
+	protected void serializeSaveThreadData(BdsSerializer serializer) {
 		// Save program counter
-		out.append(serializer.serializeSave(pc));
+		serializer.serializeSave(pc);
 
 		// Save scopes
-		out.append(serializer.serializeSave(scope));
+		serializer.serializeSave(scope);
 
 		// Save program nodes
-		out.append(serializer.serializeSave(statement));
+		serializer.serializeSave(statement);
 
 		// Save all tasks (in the same order that they were added)
 		for (Task task : taskDependecies.getTasks())
-			out.append(serializer.serializeSave(task));
+			serializer.serializeSave(task);
 
 		// Save all threads
 		for (BdsThread bdsTh : bdsChildThreadsById.values())
-			out.append(serializer.serializeSave(bdsTh));
-
-		return out.toString();
+			serializer.serializeSave(bdsTh);
 	}
 
 	/**
-	 * Save thread's main information
+	 * Save thread's main information (fields of this thread's record)
 	 */
-	protected String serializeSaveThreadMain(BdsSerializer serializer) {
-		StringBuilder out = new StringBuilder();
-
-		out.append(getClass().getSimpleName());
-		out.append("\t" + bdsThreadNum);
-		out.append("\t" + serializer.serializeSaveValue(removeOnExit));
-		out.append("\t" + serializer.serializeSaveValue(getBdsThreadId()));
-		out.append("\t" + serializer.serializeSaveValue(statement.getNodeId()));
-		out.append("\t" + serializer.serializeSaveValue(scope.getNodeId()));
-		out.append("\t" + serializer.serializeSaveValue(parent != null ? parent.getBdsThreadId() : ""));
-		out.append("\t" + serializer.serializeSaveValue(runState.toString()));
-		out.append("\t" + serializer.serializeSaveValue(currentDir));
-		out.append("\t" + serializer.base64encode(stack));
-		return out.toString();
+	protected void serializeSaveThreadMain(BdsSerializer serializer) {
+		serializer.writeInt(bdsThreadNum);
+		serializer.writeValue(removeOnExit);
+		serializer.writeString(getBdsThreadId());
+		serializer.writeString(statement.getNodeId());
+		serializer.writeString(scope.getNodeId());
+		serializer.writeString(parent != null ? parent.getBdsThreadId() : "");
+		serializer.writeString(runState.toString());
+		serializer.writeString(currentDir);
+		serializer.writeObject(stack);
 	}
 
 	public void setCurrentDir(String currentDir) {
@@ -1249,6 +1369,15 @@ public class BdsThread extends Thread implements BdsSerialize {
 		this.scope = scope;
 	}
 
+	/**
+	 * Start running this thread (as a task in BdsThreads' executor)
+	 */
+	public synchronized void start() {
+		if (started) throw new RuntimeException("BdsThread '" + getBdsThreadId() + "' already started");
+		started = true;
+		BdsThreads.getInstance().execute(this);
+	}
+
 	/**
 	 * Find and set statement
 	 */
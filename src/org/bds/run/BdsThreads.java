@@ -1,22 +1,35 @@
 package org.bds.run;
 
-import java.util.HashMap;
+import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.bds.data.Data;
 
 /**
  * All BdsThreads are tracked here
- * 
+ *
+ * BdsThreads are run on virtual threads when the JVM supports
+ * them (Java 21+). Otherwise each BdsThread runs on its own (daemon)
+ * thread, as in previous versions.
+ *
+ * Note: BdsThreads are never queued in a bounded pool, because a 'par'
+ * thread may block waiting for its own child threads.
+ *
  * @author pcingola
  */
 public class BdsThreads {
 
 	private static BdsThreads bdsThreads = new BdsThreads();
+	private static ExecutorService executor; // Virtual threads executor, shared by all instances (survives 'reset()')
+	private static boolean executorChecked; // Have we checked whether virtual threads are supported?
 
-	Map<Long, BdsThread> bdsThreadByThreadId = new HashMap<Long, BdsThread>();
+	ThreadLocal<BdsThread> bdsThreadCurrent = new ThreadLocal<BdsThread>();
+	Set<BdsThread> bdsThreadRunning = Collections.newSetFromMap(new ConcurrentHashMap<BdsThread, Boolean>());
 	Set<BdsThread> bdsThreadDone = new HashSet<BdsThread>();
 
 	/**
@@ -32,6 +45,18 @@ public class BdsThreads {
 		return bdsThread.data(url);
 	}
 
+	/**
+	 * Get (or create) the executor used to run BdsThreads
+	 * @return An executor or null if virtual threads are not supported by this JVM
+	 */
+	static synchronized ExecutorService getExecutor() {
+		if (!executorChecked) {
+			executor = newVirtualThreadExecutor();
+			executorChecked = true;
+		}
+		return executor;
+	}
+
 	/**
 	 * Get singleton
 	 */
@@ -39,6 +64,19 @@ public class BdsThreads {
 		return bdsThreads;
 	}
 
+	/**
+	 * Create a 'virtual thread per task' executor
+	 * @return An executor or null if virtual threads are not supported by this JVM
+	 */
+	static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
 	/**
 	 * Reset singleton
 	 */
@@ -47,38 +85,63 @@ public class BdsThreads {
 	}
 
 	/**
-	 * Add a bdsThread
+	 * Add a bdsThread (running in the current thread)
 	 */
-	public synchronized void add(BdsThread bdsThread) {
-		long id = Thread.currentThread().getId();
-		bdsThreadByThreadId.put(id, bdsThread);
+	public void add(BdsThread bdsThread) {
+		bdsThreadCurrent.set(bdsThread);
+		bdsThreadRunning.add(bdsThread);
 	}
 
 	/**
-	 * Get bdsThread
+	 * Run a bdsThread (on a virtual thread if supported, otherwise on a new thread)
 	 */
-	public synchronized BdsThread get() {
-		long id = Thread.currentThread().getId();
-		return bdsThreadByThreadId.get(id);
+	void execute(BdsThread bdsThread) {
+		ExecutorService executor = getExecutor();
+		if (executor != null) {
+			executor.execute(bdsThread);
+		} else {
+			Thread thread = new Thread(bdsThread, "BdsThread-" + bdsThread.getBdsThreadNum());
+			thread.setDaemon(true);
+			thread.start();
+		}
 	}
 
 	/**
-	 * Remove a bdsThread
+	 * Get bdsThread running in the current thread
 	 */
-	public synchronized void remove() {
-		long id = Thread.currentThread().getId();
+	public BdsThread get() {
+		return bdsThreadCurrent.get();
+	}
+
+	/**
+	 * Remove the bdsThread running in the current thread
+	 */
+	public void remove() {
 		BdsThread bdsThread = get();
-		if (bdsThreadByThreadId.get(id) == bdsThread) {
-			bdsThreadByThreadId.remove(id);
+		if (bdsThread == null) return;
+
+		// Clear the thread local (the java thread may run other code afterwards)
+		bdsThreadCurrent.remove();
+		bdsThreadRunning.remove(bdsThread);
+		synchronized (bdsThreadDone) {
 			bdsThreadDone.add(bdsThread);
-		} else throw new RuntimeException("Cannot remove thread '" + bdsThread.getBdsThreadId() + "'");
+		}
+	}
+
+	/**
+	 * Set the bdsThread for the current thread, without adding it to the running threads
+	 * (e.g. workers evaluating a function in parallel). Clear it if 'bdsThread' is null
+	 */
+	public void setCurrent(BdsThread bdsThread) {
+		if (bdsThread == null) bdsThreadCurrent.remove();
+		else bdsThreadCurrent.set(bdsThread);
 	}
 
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
-		for (Long thid : bdsThreadByThreadId.keySet())
-			sb.append(thid + "\t" + bdsThreadByThreadId.get(thid).getBdsThreadId() + "\n");
+		for (BdsThread bdsThread : bdsThreadRunning)
+			sb.append(bdsThread.getBdsThreadNum() + "\t" + bdsThread.getBdsThreadId() + "\n");
 		return sb.toString();
 	}
 }
@@ -66,29 +66,22 @@ public class FunctionCallThread extends BdsThread {
 		super.serializeParse(serializer);
 		functionCallNodeId = serializer.getNextFieldString();
 
-		// Arguments encoded as base64 object
-		String b64 = serializer.getNextField();
-		arguments = (Object[]) serializer.base64Decode(b64);
+		// Arguments (Java serialization)
+		arguments = (Object[]) serializer.getNextFieldObject();
 	}
 
 	/**
 	 * Save thread's main information
 	 */
 	@Override
-	protected String serializeSaveThreadMain(BdsSerializer serializer) {
-		StringBuilder sb = new StringBuilder();
-		sb.append(super.serializeSaveThreadMain(serializer));
+	protected void serializeSaveThreadMain(BdsSerializer serializer) {
+		super.serializeSaveThreadMain(serializer);
 
 		// Function call (nodeId)
-		sb.append("\t");
-		sb.append(serializer.serializeSaveValue(functionCallNodeId));
+		serializer.writeString(functionCallNodeId);
 
-		// Arguments encoded as base64 object
-		sb.append("\t");
-		String b64 = serializer.base64encode(arguments);
-		sb.append(b64);
-
-		return sb.toString();
+		// Arguments (Java serialization)
+		serializer.writeObject(arguments);
 	}
 
 	public void setFunctionCall(FunctionCall functionCall) {
@@ -0,0 +1,296 @@
+package org.bds.run;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.bds.lang.BdsNode;
+import org.bds.lang.BdsNodeFactory;
+import org.bds.lang.ExpressionSys;
+import org.bds.lang.FunctionCall;
+import org.bds.lang.Wait;
+import org.bds.util.Gpr;
+import org.bds.util.Timer;
+
+/**
+ * A sampling profiler for bds programs
+ *
+ * Every 'sampleInterval' milliseconds, the program counter of each
+ * running BdsThread is sampled. Samples are classified as 'interpreter'
+ * (running bds code), 'sys' (waiting for a 'sys' command to finish)
+ * or 'wait' (blocked in a 'wait' statement or waiting for tasks at
+ * the end of a thread).
+ *
+ * When the program finishes, two files are created:
+ *   - A collapsed stacks file ('frame1;frame2;...;frameN count'), that
+ *     can be used to create flame-graphs (e.g. 'flamegraph.pl')
+ *   - A table of samples per line and per function
+ *
+ * Note: Program counters are read without synchronization, so a sample
+ * can be slightly out of date. This is fine for a sampling profiler and
+ * avoids slowing down the interpreter.
+ *
+ * @author pcingola
+ */
+public class Profiler extends Thread {
+
+	public static final int SAMPLE_INTERVAL_DEFAULT = 10; // Sample interval in milliseconds
+	public static final int SHOW_MAX_ENTRIES = 50; // Maximum number of lines / functions shown in table
+
+	public static final String FRAME_END = "<end>";
+	public static final String FRAME_SYS = "[sys]";
+	public static final String FRAME_WAIT = "[wait]";
+
+	/**
+	 * Sample counts for a line or a function
+	 */
+	class ProfileEntry {
+		String name;
+		long interpreter, sys, wait; // Samples by state
+		long self; // Samples where the function is the innermost one (only for functions)
+
+		ProfileEntry(String name) {
+			this.name = name;
+		}
+
+		void add(State state) {
+			switch (state) {
+			case SYS:
+				sys++;
+				break;
+
+			case WAIT:
+				wait++;
+				break;
+
+			default:
+				interpreter++;
+			}
+		}
+
+		long total() {
+			return interpreter + sys + wait;
+		}
+	}
+
+	enum State {
+		INTERPRETER, SYS, WAIT
+	}
+
+	boolean running;
+	int sampleInterval;
+	long samples, samplesByState[];
+	Map<String, Long> stacks; // Collapsed stacks
+	Map<String, ProfileEntry> lines, functions;
+	Map<Integer, BdsNode> nodesById; // Cache node lookups
+
+	public Profiler() {
+		this(SAMPLE_INTERVAL_DEFAULT);
+	}
+
+	public Profiler(int sampleInterval) {
+		super("Profiler");
+		this.sampleInterval = sampleInterval;
+		stacks = new HashMap<>();
+		lines = new HashMap<>();
+		functions = new HashMap<>();
+		nodesById = new HashMap<>();
+		samplesByState = new long[State.values().length];
+		setDaemon(true);
+	}
+
+	/**
+	 * Frame name for a node, or null if the node does not create a frame
+	 */
+	String frame(BdsNode node) {
+		if (node instanceof FunctionCall) return ((FunctionCall) node).getFunctionName();
+		return null;
+	}
+
+	ProfileEntry getEntry(Map<String, ProfileEntry> entries, String name) {
+		ProfileEntry pe = entries.get(name);
+		if (pe == null) {
+			pe = new ProfileEntry(name);
+			entries.put(name, pe);
+		}
+		return pe;
+	}
+
+	BdsNode getNode(int nodeId) {
+		BdsNode node = nodesById.get(nodeId);
+		if (node == null && !nodesById.containsKey(nodeId)) {
+			node = BdsNodeFactory.get().getNode(nodeId);
+			nodesById.put(nodeId, node);
+		}
+		return node;
+	}
+
+	/**
+	 * Stop sampling
+	 */
+	public void kill() {
+		running = false;
+		interrupt();
+	}
+
+	/**
+	 * Source code position for a node
+	 */
+	String line(BdsNode node) {
+		String fileName = node.getFileName();
+		if (fileName == null) fileName = "";
+		return Gpr.baseName(fileName) + ":" + node.getLineNum();
+	}
+
+	@Override
+	public void run() {
+		running = true;
+		try {
+			while (running) {
+				sleep(sampleInterval);
+				sample();
+			}
+		} catch (InterruptedException e) {
+			// Killed
+		}
+	}
+
+	/**
+	 * Sample all running threads
+	 */
+	synchronized void sample() {
+		for (BdsThread bdsThread : BdsThreads.getInstance().bdsThreadRunning)
+			sample(bdsThread);
+	}
+
+	/**
+	 * Sample a thread's program counter
+	 */
+	void sample(BdsThread bdsThread) {
+		ProgramCounter pc = bdsThread.getPc();
+		if (pc == null) return;
+		int nodeIds[] = pc.snapshot();
+
+		// Collapsed stack: Function calls followed by innermost line
+		StringBuilder stack = new StringBuilder();
+		List<String> funcNames = new ArrayList<>();
+		BdsNode lineNode = null, top = null;
+		for (int nodeId : nodeIds) {
+			BdsNode node = getNode(nodeId);
+			if (node == null) continue;
+
+			top = node;
+			if (node.getLineNum() > 0) lineNode = node;
+
+			String frame = frame(node);
+			if (frame != null) {
+				// Use the line where the function is called as part of the frame
+				if (stack.length() > 0) stack.append(';');
+				stack.append(frame + " (" + line(node) + ")");
+				funcNames.add(frame);
+			}
+		}
+
+		// Classify sample
+		State state = State.INTERPRETER;
+		if (top == null || top instanceof Wait) state = State.WAIT;
+		else if (top instanceof ExpressionSys) state = State.SYS;
+
+		// Add innermost line and state
+		String line = (lineNode != null ? line(lineNode) : FRAME_END);
+		if (stack.length() > 0) stack.append(';');
+		stack.append(line);
+		if (state == State.SYS) stack.append(";" + FRAME_SYS);
+		else if (state == State.WAIT) stack.append(";" + FRAME_WAIT);
+
+		// Update counts
+		samples++;
+		samplesByState[state.ordinal()]++;
+
+		String stackStr = stack.toString();
+		Long count = stacks.get(stackStr);
+		stacks.put(stackStr, count != null ? count + 1 : 1L);
+
+		getEntry(lines, line).add(state);
+
+		// Functions: Count only once per sample (recursive calls)
+		for (String funcName : new HashSet<>(funcNames))
+			getEntry(functions, funcName).add(state);
+		if (!funcNames.isEmpty()) getEntry(functions, funcNames.get(funcNames.size() - 1)).self++;
+	}
+
+	/**
+	 * Save collapsed stacks and profile table
+	 * @param fileNamePrefix : Files 'fileNamePrefix.collapsed' and 'fileNamePrefix.txt' are created
+	 */
+	public synchronized void save(String fileNamePrefix) {
+		String collapsedFile = fileNamePrefix + ".collapsed";
+		String tableFile = fileNamePrefix + ".txt";
+		Gpr.toFile(collapsedFile, toStringCollapsed());
+		Gpr.toFile(tableFile, toString());
+		Timer.showStdErr("Profile: " + samples + " samples, collapsed stacks saved to '" + collapsedFile + "', table saved to '" + tableFile + "'");
+	}
+
+	double perc(long count) {
+		return samples > 0 ? 100.0 * count / samples : 0.0;
+	}
+
+	List<ProfileEntry> sort(Map<String, ProfileEntry> entries) {
+		List<ProfileEntry> list = new ArrayList<>(entries.values());
+		Collections.sort(list, new Comparator<ProfileEntry>() {
+			@Override
+			public int compare(ProfileEntry pe1, ProfileEntry pe2) {
+				int cmp = Long.compare(pe2.total(), pe1.total());
+				if (cmp != 0) return cmp;
+				return pe1.name.compareTo(pe2.name);
+			}
+		});
+		return list;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Profile: " + samples + " samples (" + sampleInterval + " ms interval)" //
+				+ ", interpreter: " + samplesByState[State.INTERPRETER.ordinal()] //
+				+ ", sys: " + samplesByState[State.SYS.ordinal()] //
+				+ ", wait: " + samplesByState[State.WAIT.ordinal()] //
+				+ "\n" //
+		);
+
+		sb.append("\nLines:\n");
+		sb.append(String.format("%8s\t%6s\t%10s\t%10s\t%10s\t%s\n", "samples", "%", "interp", "sys", "wait", "line"));
+		int count = 0;
+		for (ProfileEntry pe : sort(lines)) {
+			if (count++ >= SHOW_MAX_ENTRIES) break;
+			sb.append(String.format("%8d\t%6.2f\t%10d\t%10d\t%10d\t%s\n", pe.total(), perc(pe.total()), pe.interpreter, pe.sys, pe.wait, pe.name));
+		}
+
+		sb.append("\nFunctions:\n");
+		sb.append(String.format("%8s\t%6s\t%10s\t%10s\t%10s\t%10s\t%s\n", "samples", "%", "self", "interp", "sys", "wait", "function"));
+		count = 0;
+		for (ProfileEntry pe : sort(functions)) {
+			if (count++ >= SHOW_MAX_ENTRIES) break;
+			sb.append(String.format("%8d\t%6.2f\t%10d\t%10d\t%10d\t%10d\t%s\n", pe.total(), perc(pe.total()), pe.self, pe.interpreter, pe.sys, pe.wait, pe.name));
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Collapsed stacks (flame-graph format)
+	 */
+	public synchronized String toStringCollapsed() {
+		List<String> keys = new ArrayList<>(stacks.keySet());
+		Collections.sort(keys);
+
+		StringBuilder sb = new StringBuilder();
+		for (String stack : keys)
+			sb.append(stack + " " + stacks.get(stack) + "\n");
+		return sb.toString();
+	}
+}
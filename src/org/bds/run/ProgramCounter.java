@@ -1,7 +1,8 @@
 package org.bds.run;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Stack;
+import java.util.NoSuchElementException;
 
 import org.bds.lang.BdsNode;
 import org.bds.serialize.BdsSerialize;
@@ -11,32 +12,40 @@ import org.bds.util.Gpr;
 /**
  * Program counter: A 'stack' of nodes that we are currently executing
  *
+ * Note: Node IDs are stored in a growable 'int[]' (no boxing, no
+ * synchronization), since push / pop are invoked for every node executed
+ *
  * @author pcingola
  */
 public class ProgramCounter implements BdsSerialize, Iterable<Integer> {
 
+	public static final int INITIAL_CAPACITY = 64;
+
 	private static int programCounterNum = 0;
 
 	int id;
 	int checkPointRecoverNodeIdx; // Checkpoint recovery node index
 	int initialSize;
-	Stack<Integer> nodeIds;
+	int nodeIds[]; // Node IDs (only the first 'size' entries are valid)
+	int size;
 
 	protected static int nextId() {
 		return ++programCounterNum;
 	}
 
 	public ProgramCounter() {
-		nodeIds = new Stack<Integer>();
+		nodeIds = new int[INITIAL_CAPACITY];
+		size = 0;
 		id = nextId();
 		initialSize = 0;
 	}
 
 	public ProgramCounter(ProgramCounter pc) {
-		nodeIds = new Stack<Integer>();
-		nodeIds.addAll(pc.nodeIds);
+		int pcNodeIds[] = pc.snapshot();
+		nodeIds = Arrays.copyOf(pcNodeIds, Math.max(INITIAL_CAPACITY, 2 * pcNodeIds.length));
+		size = pcNodeIds.length;
 		id = nextId();
-		initialSize = pc.size();
+		initialSize = size;
 	}
 
 	/**
@@ -79,21 +88,38 @@ public class ProgramCounter implements BdsSerialize, Iterable<Integer> {
 
 	@Override
 	public Iterator<Integer> iterator() {
-		return nodeIds.iterator();
+		final int ids[] = snapshot();
+
+		return new Iterator<Integer>() {
+			int idx = 0;
+
+			@Override
+			public boolean hasNext() {
+				return idx < ids.length;
+			}
+
+			@Override
+			public Integer next() {
+				if (idx >= ids.length) throw new NoSuchElementException();
+				return ids[idx++];
+			}
+		};
 	}
 
 	/**
 	 * Get node ID for index 'idx'
 	 */
 	public int nodeId(int idx) {
-		return nodeIds.get(idx);
+		if (idx >= size) throw new ArrayIndexOutOfBoundsException("Index: " + idx + ", size: " + size);
+		return nodeIds[idx];
 	}
 
 	/**
-	 * Add to program counter
+	 * Remove from program counter
 	 */
 	public void pop(BdsNode bdsNode) {
-		int nodeId = nodeIds.pop();
+		if (size <= 0) throw new RuntimeException("Cannot pop from an empty program counter. Node ID: " + bdsNode.getId());
+		int nodeId = nodeIds[--size];
 
 		// Sanity check
 		if (nodeId != bdsNode.getId()) {
@@ -109,40 +135,48 @@ public class ProgramCounter implements BdsSerialize, Iterable<Integer> {
 	 * Add to program counter
 	 */
 	public void push(BdsNode bdsNode) {
-		nodeIds.push(bdsNode.getId());
+		push(bdsNode.getId());
+	}
+
+	void push(int nodeId) {
+		if (size >= nodeIds.length) nodeIds = Arrays.copyOf(nodeIds, 2 * nodeIds.length);
+		nodeIds[size++] = nodeId;
 	}
 
 	@Override
 	public void serializeParse(BdsSerializer serializer) {
 		initialSize = (int) serializer.getNextFieldInt();
 
-		for (int i = 1; i < serializer.getFields().length - 1; i++)
-			nodeIds.push((int) serializer.getNextFieldInt());
+		while (serializer.hasNextField())
+			push((int) serializer.getNextFieldInt());
 	}
 
 	@Override
-	public String serializeSave(BdsSerializer serializer) {
-		StringBuilder out = new StringBuilder();
-		out.append(getClass().getSimpleName() + "\t");
-		out.append(initialSize + "\t");
-
-		for (int nn : nodeIds)
-			out.append(nn + "\t");
+	public void serializeSave(BdsSerializer serializer) {
+		serializer.startRecord(getClass().getSimpleName());
+		serializer.writeInt(initialSize);
 
-		out.deleteCharAt(out.length() - 1); // Remove last tab
-		out.append("\n");
+		for (int nn : snapshot())
+			serializer.writeInt(nn);
 
-		return out.toString();
+		serializer.endRecord();
 	}
 
 	public int size() {
-		return nodeIds.size();
+		return size;
+	}
+
+	/**
+	 * A copy of the current node IDs (e.g. to detect PC changes while creating a checkpoint)
+	 */
+	public int[] snapshot() {
+		return Arrays.copyOf(nodeIds, size);
 	}
 
 	@Override
 	public String toString() {
 		StringBuilder pc = new StringBuilder();
-		for (int nn : nodeIds)
+		for (int nn : snapshot())
 			pc.append((pc.length() > 0 ? " -> " : "") + nn);
 
 		return "PC: size " + size() + " / " + initialSize //
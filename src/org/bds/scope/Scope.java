@@ -11,6 +11,7 @@ import java.util.List;
 import org.bds.lang.Args;
 import org.bds.lang.BdsNode;
 import org.bds.lang.BdsNodeFactory;
+import org.bds.lang.NativeLibrary;
 import org.bds.lang.ParentNode;
 import org.bds.lang.Type;
 import org.bds.lang.TypeFunc;
@@ -56,13 +57,16 @@ public class Scope implements BdsSerialize, Iterable<String> {
 	HashMap<String, ScopeSymbol> symbols;
 	AutoHashMap<String, List<ScopeSymbol>> functions; // Functions can have more than one item under the same name. E.g.: f(int x), f(string s), f(int x, int y), all are called 'f'
 	BdsNode node;
+	Type classType; // Class scopes: Class type
 
 	/**
 	 * Class scope
 	 */
 	public static Scope getClassScope(Type type) {
 		if (type == null) return null;
-		return classScope.getOrCreate(type.toString());
+		Scope scope = classScope.getOrCreate(type.toString());
+		scope.classType = type;
+		return scope;
 	}
 
 	/**
@@ -107,14 +111,18 @@ public class Scope implements BdsSerialize, Iterable<String> {
 		if (node != null) copy(node.getScope()); // Copy symbols from other scope
 	}
 
-	public synchronized void add(ScopeSymbol symbol) {
-		if (symbol.isFunction()) {
-			// Create hash?
-			if (functions == null) functions = new AutoHashMap<String, List<ScopeSymbol>>(new LinkedList<ScopeSymbol>());
+	public void add(ScopeSymbol symbol) {
+		if (symbol.isFunction()) createNatives(symbol.getName()); // Natives having the same name are added first
 
-			// Add function by name
-			functions.getOrCreate(symbol.getName()).add(symbol);
-		} else symbols.put(symbol.getName(), symbol);
+		synchronized (this) {
+			if (symbol.isFunction()) {
+				// Create hash?
+				if (functions == null) functions = new AutoHashMap<String, List<ScopeSymbol>>(new LinkedList<ScopeSymbol>());
+
+				// Add function by name
+				functions.getOrCreate(symbol.getName()).add(symbol);
+			} else symbols.put(symbol.getName(), symbol);
+		}
 	}
 
 	/**
@@ -133,6 +141,14 @@ public class Scope implements BdsSerialize, Iterable<String> {
 		}
 	}
 
+	/**
+	 * Create native functions or methods named 'functionName' (they are added to this scope)
+	 */
+	void createNatives(String functionName) {
+		if (this == globalScope) NativeLibrary.get().create(null, functionName);
+		else if (classType != null) NativeLibrary.get().create(classType, functionName);
+	}
+
 	/**
 	 * Find a function that matches a function call
 	 */
@@ -211,6 +227,7 @@ public class Scope implements BdsSerialize, Iterable<String> {
 	}
 
 	public List<ScopeSymbol> getFunctionsLocal(String functionName) {
+		createNatives(functionName);
 		if (functions == null) return null;
 		return functions.get(functionName);
 	}
@@ -334,23 +351,27 @@ public class Scope implements BdsSerialize, Iterable<String> {
 	}
 
 	@Override
-	public String serializeSave(BdsSerializer serializer) {
-		StringBuilder out = new StringBuilder();
-		out.append("Scope");
-		out.append("\t" + serializer.serializeSaveValue(id));
-		out.append("\t" + serializer.serializeSaveValue(parent != null ? parent.getNodeId() : ""));
-		out.append("\t" + serializer.serializeSaveValue(node));
-		out.append("\n");
+	public void serializeSave(BdsSerializer serializer) {
+		serializer.mark();
+		serializer.startRecord("Scope");
+		serializer.writeInt(id);
+		serializer.writeString(parent != null ? parent.getNodeId() : "");
+		serializer.writeNode(node);
+		serializer.endRecord();
 
 		for (ScopeSymbol ss : symbols.values()) {
 			if (ss.getType().isNative()) {
 				; // Do not save native functions
-			} else out.append(serializer.serializeSave(ss));
+			} else {
+				// Only write symbols that changed since previous checkpoint segment
+				serializer.mark();
+				serializer.serializeSave(ss);
+				serializer.commitIfChanged(ss, BdsSerializer.referenceId(this, ss));
+			}
 		}
+		serializer.commitIfChanged(this); // Only write if it changed since previous checkpoint segment
 
-		if (parent != null) out.append(serializer.serializeSave(parent));
-
-		return out.toString();
+		if (parent != null) serializer.serializeSave(parent);
 	}
 
 	public void setParent(Scope parent) {
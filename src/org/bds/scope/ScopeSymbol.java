@@ -1,11 +1,11 @@
 package org.bds.scope;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.bds.lang.Type;
+import org.bds.lang.TypeList;
+import org.bds.lang.TypeMap;
 import org.bds.serialize.BdsSerialize;
 import org.bds.serialize.BdsSerializer;
 import org.bds.util.Gpr;
@@ -94,12 +94,12 @@ public class ScopeSymbol implements BdsSerialize, Comparable<ScopeSymbol> {
 	}
 
 	@Override
-	public String serializeSave(BdsSerializer serializer) {
-		return getClass().getSimpleName() //
-				+ "\t" + serializer.serializeSaveValue(name) //
-				+ "\t" + BdsSerializer.TYPE_IDENTIFIER + type.toStringSerializer() //
-				+ "\t" + serializer.serializeSaveValue(value) //
-				+ "\n";
+	public void serializeSave(BdsSerializer serializer) {
+		serializer.startRecord(getClass().getSimpleName());
+		serializer.writeString(name);
+		serializer.writeType(type);
+		serializer.writeValue(value);
+		serializer.endRecord();
 	}
 
 	public void setConstant(boolean constant) {
@@ -112,16 +112,10 @@ public class ScopeSymbol implements BdsSerialize, Comparable<ScopeSymbol> {
 
 		if (type.isList()) {
 			// Assign the whole list? => Create a new copy
-			this.value = new ArrayList<>();
-			((List) this.value).addAll((List) value);
+			this.value = ((TypeList) type).copyList((List) value);
 		} else if (type.isMap()) {
 			// Assign the whole map? => Create a new copy
-			this.value = new HashMap();
-			Map mapNew = ((Map) this.value);
-			Map mapOri = ((Map) value);
-			for (Object key : mapOri.keySet()) {
-				mapNew.put(key, mapOri.get(key));
-			}
+			this.value = ((TypeMap) type).copyMap((Map) value);
 		} else {
 			// Assign value
 			this.value = value;
@@ -5,13 +5,13 @@ public interface BdsSerialize {
 	public String getNodeId();
 
 	/**
-	 * Parse a line from a serialized file
+	 * Parse a record from a serialized file
 	 */
 	public void serializeParse(BdsSerializer serializer);
 
 	/**
-	 * Create a string to serialize to a file
+	 * Write record/s to a serialized file
 	 */
-	public String serializeSave(BdsSerializer serializer);
+	public void serializeSave(BdsSerializer serializer);
 
 }
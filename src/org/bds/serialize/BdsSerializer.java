@@ -1,29 +1,31 @@
 package org.bds.serialize;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.PrintStream;
 import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.zip.GZIPOutputStream;
 
-import org.apache.commons.lang3.StringEscapeUtils;
 import org.bds.Bds;
 import org.bds.Config;
 import org.bds.lang.BdsNode;
 import org.bds.lang.BdsNodeFactory;
 import org.bds.lang.BlockWithFile;
-import org.bds.lang.PrePostOperation;
-import org.bds.lang.PrimitiveType;
+import org.bds.lang.ProgramUnit;
 import org.bds.lang.Type;
 import org.bds.lang.TypeList;
 import org.bds.lang.TypeMap;
@@ -34,30 +36,73 @@ import org.bds.scope.Scope;
 import org.bds.scope.ScopeSymbol;
 import org.bds.task.Task;
 import org.bds.util.Gpr;
-import org.bds.util.GprString;
 
 /**
  * Serialize elemnts to (and from) a file
  *
+ * Records are written (and read) one by one, using either a binary
+ * format (default) or a text format (human readable, useful for
+ * debugging, see Config.isCheckpointText). The format is detected
+ * automatically when loading.
+ *
+ * A file consists of one or more segments, each one starting with a
+ * 'Bds' record. Only the first segment contains the program tree,
+ * the following ones only contain dynamic state (see SerializerSession).
+ * Tasks finished in a previous segment are not written again, they are
+ * added to the thread with the same ID when loading.
+ *
  * @author pcingola
  */
 public class BdsSerializer {
 
-	public static final String LIST_IDENTIFIER = "list:";
-	public static final String MAP_IDENTIFIER = "map:";
-	public static final String NODE_IDENTIFIER = "node:";
-	public static final String TYPE_IDENTIFIER = "type:";
+	public static final int BUFFER_SIZE = 64 * 1024;
+	public static final String REFERENCE = "Ref"; // Reference to an object written in a previous segment
 
 	public static boolean debug = false;
 
+	/**
+	 * A reference to a node that has not been loaded yet
+	 */
+	class NodeReference {
+		Object object;
+		Field field;
+		int idx; // Array index (negative if the field is not an array)
+		int nodeId;
+
+		NodeReference(Object object, Field field, int idx, int nodeId) {
+			this.object = object;
+			this.field = field;
+			this.idx = idx;
+			this.nodeId = nodeId;
+		}
+
+		void resolve() {
+			BdsNode node = BdsNodeFactory.get().getNode(nodeId);
+			if (node == null) throw new RuntimeException("Cannot find node '" + nodeId + "'");
+
+			try {
+				if (idx < 0) field.set(object, node);
+				else Array.set(field.get(object), idx, node);
+			} catch (Exception e) {
+				throw new RuntimeException("Error setting field '" + field.getName() + "' from class '" + object.getClass().getCanonicalName() + "'", e);
+			}
+		}
+	}
+
 	String fileName;
-	int lineNum;
-	String line;
-	int parsedField;
-	String fields[];
 	Config config;
+	SerializerInput in;
+	SerializerOutput out;
 	Set<BdsSerialize> serializedNodes;
+	Deque<List<BdsSerialize>> serializedNodesMarked; // Nodes serialized since each 'mark()'
+	List<NodeReference> nodeReferences;
 	Map<String, BdsThread> threadsById;
+	ByteArrayOutputStream snapshot; // Checkpoint data (not compressed)
+	BdsThread bdsThread; // Root thread being saved
+	ProgramUnit programUnit; // First program unit loaded
+	SerializerSession session; // Objects written in previous segments (null if there are no previous segments)
+	Set<BdsSerialize> savedFinished; // Objects that will not change (they don't need to be written in the next segment)
+	Map<BdsSerialize, byte[]> digests; // Digest of records written for objects that may change (see 'commitIfChanged')
 	boolean extractSource;
 
 	public BdsSerializer(String fileName, Config config) {
@@ -65,198 +110,174 @@ public class BdsSerializer {
 		this.config = config;
 		extractSource = (config != null && config.isExtractSource());
 		serializedNodes = new HashSet<BdsSerialize>();
+		serializedNodesMarked = new ArrayDeque<>();
+		nodeReferences = new ArrayList<>();
 		threadsById = new HashMap<String, BdsThread>();
+		savedFinished = new HashSet<BdsSerialize>();
+		digests = new HashMap<BdsSerialize, byte[]>();
 	}
 
 	public boolean add(BdsSerialize node) {
-		return serializedNodes.add(node);
+		if (!serializedNodes.add(node)) return false;
+		if (!serializedNodesMarked.isEmpty()) serializedNodesMarked.peek().add(node);
+		return true;
 	}
 
 	/**
-	 * Read the object from Base64 string.
+	 * Add a task to a thread (the same task in a later segment replaces the previous one)
 	 */
-	public Object base64Decode(String s) {
-		try {
-			byte[] data = Base64Coder.decode(s);
-			ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data));
-			Object o = ois.readObject();
-			ois.close();
-			return o;
-		} catch (Exception e) {
-			throw new RuntimeException(e);
+	void addTask(Map<String, Map<String, Task>> tasksByThreadId, BdsThread bdsThread, Task task) {
+		Map<String, Task> tasks = tasksByThreadId.get(bdsThread.getBdsThreadId());
+		if (tasks == null) {
+			tasks = new LinkedHashMap<String, Task>(); // Keep tasks in the order they were added
+			tasksByThreadId.put(bdsThread.getBdsThreadId(), tasks);
 		}
+		tasks.put(task.getId(), task);
 	}
 
 	/**
-	 * Write the object to a Base64 string.
+	 * Set a field to a node that may not have been loaded yet
+	 * (references are resolved once all records are loaded)
+	 * @param idx : Array index (negative if the field is not an array)
 	 */
-	public String base64encode(Object o) {
+	public void addNodeReference(Object object, Field field, int idx, int nodeId) {
+		nodeReferences.add(new NodeReference(object, field, idx, nodeId));
+	}
+
+	/**
+	 * Write all records since last 'mark()'
+	 */
+	public void commit() {
+		out.commit();
+		List<BdsSerialize> nodes = serializedNodesMarked.pop();
+		if (!serializedNodesMarked.isEmpty()) serializedNodesMarked.peek().addAll(nodes);
+	}
+
+	/**
+	 * Write all records since last 'mark()', unless they are the same
+	 * records written for 'bdsSer' in the previous segment (in that
+	 * case, only a reference is written)
+	 */
+	public void commitIfChanged(BdsSerialize bdsSer) {
+		commitIfChanged(bdsSer, bdsSer.getNodeId());
+	}
+
+	/**
+	 * Same as 'commitIfChanged(bdsSer)', using 'referenceId' as reference
+	 */
+	public void commitIfChanged(BdsSerialize bdsSer, String referenceId) {
+		byte digest[] = digest(out.getMarked());
+		byte digestPrev[] = (session != null ? session.getDigest(bdsSer) : null);
+		digests.put(bdsSer, digest);
+
+		if (Arrays.equals(digest, digestPrev)) {
+			reset();
+			commit();
+			writeReference(referenceId);
+		} else commit();
+	}
+
+	/**
+	 * Digest of a record (used to check whether it changed since the previous segment)
+	 */
+	byte[] digest(byte bytes[]) {
 		try {
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			ObjectOutputStream oos = new ObjectOutputStream(baos);
-			oos.writeObject(o);
-			oos.close();
-			return new String(Base64Coder.encode(baos.toByteArray()));
-		} catch (Exception e) {
+			return MessageDigest.getInstance("MD5").digest(bytes);
+		} catch (NoSuchAlgorithmException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
-	public BdsThread getBdsThread(String bdsThreadId) {
-		return threadsById.get(bdsThreadId);
+	public void endRecord() {
+		out.endRecord();
 	}
 
-	public String getCurrField() {
-		if (fields.length < parsedField) return "";
-		return fields[parsedField];
+	public BdsThread getBdsThread(String bdsThreadId) {
+		return threadsById.get(bdsThreadId);
 	}
 
-	public String[] getFields() {
-		return fields;
+	public String getFileName() {
+		return fileName;
 	}
 
 	public String getNextField() {
-		if (fields.length <= parsedField) return "";
-		return fields[parsedField++];
+		return in.getNextField();
 	}
 
 	/**
 	 * Get next field as a given 'type'
 	 */
 	public Object getNextField(Type type) {
-		switch (type.getPrimitiveType()) {
-		case VOID:
-			return null;
-
-		case BOOL:
-			return getNextFieldBool();
-
-		case INT:
-			return getNextFieldInt();
-
-		case REAL:
-			return getNextFieldReal();
-
-		case STRING:
-			return getNextFieldString();
-
-		case LIST:
-			return getNextFieldList((TypeList) type);
-
-		case MAP:
-			return getNextFieldMap((TypeMap) type);
-
-		default:
-			throw new RuntimeException("Cannot parse type '" + type + "'");
-		}
+		return in.getNextField(type);
 	}
 
 	public boolean getNextFieldBool() {
-		return Gpr.parseBoolSafe(getNextField());
+		return in.getNextFieldBool();
 	}
 
 	public long getNextFieldInt() {
-		return Gpr.parseLongSafe(getNextField());
+		return in.getNextFieldInt();
 	}
 
-	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@SuppressWarnings("rawtypes")
 	public ArrayList getNextFieldList(TypeList type) {
-		ArrayList list = new ArrayList();
-
-		// Sanity check: Is it a list?
-		String nextField = getNextField();
-		if (nextField.equals("null")) return null;
-		if (!nextField.startsWith(LIST_IDENTIFIER)) throw new RuntimeException("Serialization error: '" + LIST_IDENTIFIER + "' expected instead of '" + nextField + "'");
-
-		// Parse list size
-		String sizeStr = nextField.substring(LIST_IDENTIFIER.length());
-		int size = Gpr.parseIntSafe(sizeStr);
-
-		for (int i = 0; i < size; i++) {
-			Object value = getNextField(type.getBaseType());
-			list.add(value);
-		}
-
-		return list;
+		return in.getNextFieldList(type);
 	}
 
-	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@SuppressWarnings("rawtypes")
 	public HashMap getNextFieldMap(TypeMap type) {
-		HashMap map = new HashMap();
-
-		// Sanity check: Is it a list?
-		String nextField = getNextField();
-		if (!nextField.startsWith(MAP_IDENTIFIER)) throw new RuntimeException("Serialization error: '" + MAP_IDENTIFIER + "' expected instead of '" + nextField + "'");
-
-		// Parse list size
-		String sizeStr = nextField.substring(MAP_IDENTIFIER.length());
-		int size = Gpr.parseIntSafe(sizeStr);
+		return in.getNextFieldMap(type);
+	}
 
-		for (int i = 0; i < size; i++) {
-			Object key = getNextFieldString();
-			Object value = getNextField(type.getBaseType());
-			map.put(key, value);
-		}
+	/**
+	 * Get a node ID (zero for null nodes)
+	 */
+	public int getNextFieldNodeId() {
+		return in.getNextFieldNodeId();
+	}
 
-		return map;
+	/**
+	 * Get an array of node IDs (null for null arrays)
+	 */
+	public int[] getNextFieldNodeIds() {
+		return in.getNextFieldNodeIds();
 	}
 
 	/**
-	 * Get nodeId from next field.
-	 * Format : "node:ID_NUM"
-	 * E.g.   : "node:42"
+	 * Get an object serialized using Java serialization
 	 */
-	public int getNextFieldNodeId() {
-		return parseNodeId(getNextField());
+	public Object getNextFieldObject() {
+		return in.getNextFieldObject();
 	}
 
 	public double getNextFieldReal() {
-		return Gpr.parseDoubleSafe(getNextField());
+		return in.getNextFieldReal();
 	}
 
 	public String getNextFieldString() {
-		String str = getNextField();
-		return parseString(str);
+		return in.getNextFieldString();
 	}
 
 	public String[] getNextFieldStringArray() {
-		String str = getNextField();
-		return parseStringArray(str);
+		return in.getNextFieldStringArray();
 	}
 
 	public Type getNextFieldType() {
-		String typeStr = getNextField();
-
-		if (typeStr.equals("null")) return null;
-
-		if (!typeStr.startsWith(TYPE_IDENTIFIER)) throw new RuntimeException("Serialized Type expected, found '" + typeStr + "'");
-		typeStr = typeStr.substring(TYPE_IDENTIFIER.length());
-
-		String fields[] = typeStr.split(":");
-
-		// Base type?
-		if (fields.length == 1) return Type.get(fields[0]);
-
-		// List
-		if (fields[0].equals(PrimitiveType.LIST.toString())) {
-			Type baseType = Type.get(fields[1]);
-			return TypeList.get(baseType);
-		} else if (fields[0].equals(PrimitiveType.MAP.toString())) {
-			Type baseType = Type.get(fields[1]);
-			return TypeMap.get(baseType);
-		}
+		return in.getNextFieldType();
+	}
 
-		// Error
-		throw new RuntimeException("Cannot parse type '" + typeStr + "'");
+	/**
+	 * Size of the checkpoint snapshot (not compressed)
+	 */
+	public long getSnapshotSize() {
+		return snapshot != null ? snapshot.size() : 0;
 	}
 
 	/**
-	 * Is the nexf field a node?
+	 * Are there more fields in the current record?
 	 */
-	public boolean isNextFieldNode() {
-		String nextVal = "";
-		if (fields.length > parsedField) nextVal = fields[parsedField];
-		return nextVal.startsWith(NODE_IDENTIFIER);
+	public boolean hasNextField() {
+		return in.hasNextField();
 	}
 
 	public boolean isSerialized(BdsSerialize node) {
@@ -267,72 +288,44 @@ public class BdsSerializer {
 	 * Load from a file
 	 */
 	public List<BdsThread> load() {
-		// Read the whole file
-		String file = Gpr.read(Gpr.reader(fileName, true));
-		if ((file == null) || file.isEmpty()) throw new RuntimeException("Cannot read file '" + fileName + "'");
-
-		// Split file into lines
-		String lines[] = file.split("\n");
+		in = SerializerInput.open(fileName);
 
 		// Parse everything else
 		Scope.resetGlobalScope();
 
-		List<BdsThread> bdsThreads = parseLines(lines, null);
-		return bdsThreads;
+		try {
+			return parse();
+		} finally {
+			in.close();
+		}
 	}
 
 	/**
-	 * Parse a value
-	 * @param fieldClass : Class of field to parse
-	 * @param componentType : Component class (in case of an array)
+	 * Load a program tree saved using 'saveProgram()'
 	 */
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	public Object parse(Class fieldClass, Class componentType) {
-		if (fieldClass.isArray()) {
-
-			if (componentType == String.class) return getNextFieldStringArray();
-
-			// Create a list
-			ArrayList list = new ArrayList();
-
-			// Add all nodes to array
-			String arrayVal = getNextField();
-			if (arrayVal != null && !arrayVal.isEmpty()) {
-				for (String nodeNum : arrayVal.split(",")) {
-					BdsNode csnode = BdsNodeFactory.get().factory(componentType.getCanonicalName(), null, null);
-					csnode.setFakeId(parseNodeId(nodeNum));
-					list.add(csnode);
-				}
-			}
+	public ProgramUnit loadProgram() {
+		in = SerializerInput.open(fileName);
 
-			// Create array
-			Object[] array = (Object[]) Array.newInstance(componentType, 0);
-			return list.toArray(array);
-		} else if (fieldClass == PrePostOperation.class) return PrePostOperation.valueOf(getNextField());
-		else if (fieldClass == PrimitiveType.class) return PrimitiveType.valueOf(getNextField());
-		else if (fieldClass.getCanonicalName().startsWith(Type.class.getCanonicalName())) {
-			return getNextFieldType();
-		} else if (fieldClass.getCanonicalName().startsWith(BdsNodeFactory.get().packageName())) {
-			BdsNode csnode = BdsNodeFactory.get().factory(fieldClass.getCanonicalName(), null, null);
-			csnode.setFakeId(getNextFieldNodeId());
-			return csnode;
-		} else if (fieldClass == Scope.class) return null; // Nothing to do (this only happens in ProgramUnit class
-		else if (fieldClass == String.class) return getNextFieldString();
-		else if ((fieldClass == Boolean.class) || (fieldClass == boolean.class)) return getNextFieldBool();
-		else if ((fieldClass == Integer.class) || (fieldClass == int.class)) return (int) getNextFieldInt();
-		else if ((fieldClass == Long.class) || (fieldClass == long.class)) return getNextFieldInt();
-		else if ((fieldClass == Double.class) || (fieldClass == double.class)) return getNextFieldReal();
-
-		throw new RuntimeException("Cannot load class " + fieldClass.getCanonicalName());
+		try {
+			parse();
+			return programUnit;
+		} finally {
+			in.close();
+		}
 	}
 
 	/**
-	 * Parse lines
-	 *
-	 * @param lines
-	 * @param classNameFilter : If not null, only parse lines matching this className
+	 * Keep records in a buffer until 'commit()' or 'reset()'
+	 */
+	public void mark() {
+		out.mark();
+		serializedNodesMarked.push(new ArrayList<BdsSerialize>());
+	}
+
+	/**
+	 * Parse all records
 	 */
-	List<BdsThread> parseLines(String lines[], String classNameFilter) {
+	List<BdsThread> parse() {
 		// Set fake IDs on
 		BdsNodeFactory.get().setCreateFakeIds(true);
 
@@ -342,102 +335,117 @@ public class BdsSerializer {
 		Scope currScope = null;
 		ArrayList<Scope> scopes = new ArrayList<Scope>();
 		Map<String, BdsSerialize> nodesById = new HashMap<String, BdsSerialize>();
+		Map<String, Map<String, Task>> tasksByThreadId = new HashMap<String, Map<String, Task>>(); // Tasks from all segments
+
+		// Parse records
+		while (in.nextRecord()) {
+			String clazz = in.getClassName();
+
+			// Object to un-serialize
+			BdsSerialize bdsSerialize = null;
+
+			//---
+			// Create class (before parsing it)
+			//---
+			if (clazz.equals(Bds.class.getSimpleName())) {
+				// Check version number
+				double version = Gpr.parseDoubleSafe(in.getNextField());
+				double versionThis = Gpr.parseDoubleSafe(Bds.VERSION_MAJOR);
+				if (versionThis < version) throw new RuntimeException("Version numbers do not match.\n\tThis version: " + versionThis + "\n\tFile's version: " + version);
+
+				// New segment: Replaces all threads and scopes from previous segments
+				bdsThreads.clear();
+				threadsById.clear();
+				scopes.clear();
+				currBdsThread = null;
+				currScope = null;
+				bdsSerialize = null; // Nothing to parse
+			} else if (clazz.equals(REFERENCE)) {
+				// Reference to an object from a previous segment
+				String id = in.getNextFieldString();
+				BdsSerialize ref = nodesById.get(id);
+				if (ref == null) throw new RuntimeException("Cannot find reference '" + id + "'");
+
+				if (ref instanceof Task) {
+					addTask(tasksByThreadId, currBdsThread, (Task) ref);
+				} else if (ref instanceof Scope) {
+					currScope = (Scope) ref;
+					scopes.add(currScope);
+				} else if (ref instanceof ScopeSymbol) {
+					currScope.add((ScopeSymbol) ref);
+				}
+				bdsSerialize = null; // Nothing to parse
+			} else if (clazz.equals(BdsThread.class.getSimpleName())) {
+				// Parse BigDataScriptThread
+				BdsThread bdsThread = new BdsThread(null, config);
+				currBdsThread = bdsThread;
+				currBdsThread.setScope(null);
+				currScope = null;
+
+				bdsSerialize = bdsThread;
+			} else if (clazz.equals(FunctionCallThread.class.getSimpleName())) {
+				// Parse BigDataScriptThread
+				FunctionCallThread fcallThread = new FunctionCallThread(config);
+				currBdsThread = fcallThread;
+				currBdsThread.setScope(null);
+				currScope = null;
+
+				bdsSerialize = fcallThread;
+			} else if (clazz.equals(ProgramCounter.class.getSimpleName())) {
+				// Parse ProgramCounter
+				bdsSerialize = new ProgramCounter();
+			} else if (clazz.equals(Scope.class.getSimpleName())) {
+				// Parse Scope
+				Scope scope = new Scope();
+				if (currScope != null) currScope.setParent(scope);
+				currScope = scope;
+				scopes.add(scope);
+				bdsSerialize = currScope;
+			} else if (clazz.equals(ScopeSymbol.class.getSimpleName())) {
+				// Parse ScopeSymbol
+				bdsSerialize = new ScopeSymbol();
+			} else if (clazz.equals(Task.class.getSimpleName())) {
+				// Parse Task
+				bdsSerialize = new Task();
+			} else {
+				// Everything else has been parsed, this must be a BigDataScriptNode
+				bdsSerialize = BdsNodeFactory.get().factory(clazz, null, null);
+			}
 
-		// Parse lines
-		for (int i = 0; i < lines.length; i++) {
-			// Update line info
-			lineNum = i + 1;
-			line = lines[i];
-			fields = line.split("\t");
-
-			// Fields parsed
-			String clazz = fields[0];
-			parsedField = 1;
-
-			if ((classNameFilter == null) || (classNameFilter.equals(clazz))) {
-				// Object to un-serialize
-				BdsSerialize bdsSerialize = null;
-
-				//---
-				// Create class (before parsing it)
-				//---
-				if (clazz.equals(Bds.class.getSimpleName())) {
-					// Check version number
-					double version = Gpr.parseDoubleSafe(fields[1]);
-					double versionThis = Gpr.parseDoubleSafe(Bds.VERSION_MAJOR);
-					if (versionThis < version) throw new RuntimeException("Version numbers do not match.\n\tThis version: " + versionThis + "\n\tFile's version: " + version);
-					bdsSerialize = null; // Nothing to parse
-				} else if (clazz.equals(BdsThread.class.getSimpleName())) {
-					// Parse BigDataScriptThread
-					BdsThread bdsThread = new BdsThread(null, config);
-					currBdsThread = bdsThread;
-					currBdsThread.setScope(null);
-					currScope = null;
-
-					bdsSerialize = bdsThread;
-				} else if (clazz.equals(FunctionCallThread.class.getSimpleName())) {
-					// Parse BigDataScriptThread
-					FunctionCallThread fcallThread = new FunctionCallThread(config);
-					currBdsThread = fcallThread;
-					currBdsThread.setScope(null);
-					currScope = null;
-
-					bdsSerialize = fcallThread;
-				} else if (clazz.equals(ProgramCounter.class.getSimpleName())) {
-					// Parse ProgramCounter
-					bdsSerialize = new ProgramCounter();
-				} else if (clazz.equals(Scope.class.getSimpleName())) {
-					// Parse Scope
-					Scope scope = new Scope();
-					if (currScope != null) currScope.setParent(scope);
-					currScope = scope;
-					scopes.add(scope);
-					bdsSerialize = currScope;
-				} else if (clazz.equals(ScopeSymbol.class.getSimpleName())) {
-					// Parse ScopeSymbol
-					bdsSerialize = new ScopeSymbol();
-				} else if (clazz.equals(Task.class.getSimpleName())) {
-					// Parse Task
-					bdsSerialize = new Task();
-				} else {
-					// Everything else has been parsed, this must be a BigDataScriptNode
-					String className = BdsNodeFactory.get().packageName() + clazz;
-					bdsSerialize = BdsNodeFactory.get().factory(className, null, null);
+			//---
+			// Parsing and additional tasks after parsing
+			//---
+			if (bdsSerialize != null) {
+				// De-serialize
+				bdsSerialize.serializeParse(this);
+				nodesById.put(bdsSerialize.getNodeId(), bdsSerialize);
+
+				// Extract source code files?
+				if (extractSource && bdsSerialize instanceof BlockWithFile) {
+					((BlockWithFile) bdsSerialize).save(true);
 				}
 
-				//---
-				// Parsing and additional tasks after parsing
-				//---
-				if (bdsSerialize != null) {
-					// De-serialize
-					bdsSerialize.serializeParse(this);
-					nodesById.put(bdsSerialize.getNodeId(), bdsSerialize);
-
-					// Extract source code files?
-					if (extractSource && bdsSerialize instanceof BlockWithFile) {
-						((BlockWithFile) bdsSerialize).save(true);
-					}
-
-					// Post processing
-					if (bdsSerialize instanceof BdsThread) {
-						// Restore a thread
-						BdsThread bdsThread = (BdsThread) bdsSerialize;
-						bdsThreads.add(bdsThread);
-						threadsById.put(bdsThread.getBdsThreadId(), bdsThread);
-					} else if (bdsSerialize instanceof ScopeSymbol) {
-						// Add symbol to current scope
-						currScope.add((ScopeSymbol) bdsSerialize);
-					} else if (bdsSerialize instanceof ProgramCounter) {
-						// Set PC
-						currBdsThread.setPc((ProgramCounter) bdsSerialize);
-					} else if (bdsSerialize instanceof Task) {
-						Task task = (Task) bdsSerialize;
-						currBdsThread.addUnserialized(task);
-					} else if (bdsSerialize instanceof BdsNode) {
-						// UnSerialize
-						BdsNode csnode = (BdsNode) bdsSerialize;
-						serializedNodes.add(csnode);
-					}
+				// Post processing
+				if (bdsSerialize instanceof BdsThread) {
+					// Restore a thread
+					BdsThread bdsThread = (BdsThread) bdsSerialize;
+					bdsThreads.add(bdsThread);
+					threadsById.put(bdsThread.getBdsThreadId(), bdsThread);
+				} else if (bdsSerialize instanceof ScopeSymbol) {
+					// Add symbol to current scope
+					ScopeSymbol ss = (ScopeSymbol) bdsSerialize;
+					currScope.add(ss);
+					nodesById.put(referenceId(currScope, ss), ss);
+				} else if (bdsSerialize instanceof ProgramCounter) {
+					// Set PC
+					currBdsThread.setPc((ProgramCounter) bdsSerialize);
+				} else if (bdsSerialize instanceof Task) {
+					addTask(tasksByThreadId, currBdsThread, (Task) bdsSerialize);
+				} else if (bdsSerialize instanceof BdsNode) {
+					// UnSerialize
+					BdsNode csnode = (BdsNode) bdsSerialize;
+					serializedNodes.add(csnode);
+					if (programUnit == null && csnode instanceof ProgramUnit) programUnit = (ProgramUnit) csnode;
 				}
 			}
 		}
@@ -446,10 +454,11 @@ public class BdsSerializer {
 		BdsNodeFactory.get().setCreateFakeIds(false);
 
 		//---
-		// Replace fake nodes by real nodes
+		// Set references to nodes
 		//---
-		for (BdsSerialize bdsNode : serializedNodes)
-			if (bdsNode != null && bdsNode instanceof BdsNode) ((BdsNode) bdsNode).replaceFake();
+		for (NodeReference nodeRef : nodeReferences)
+			nodeRef.resolve();
+		nodeReferences.clear();
 
 		for (Scope scope : scopes)
 			scope.replaceFake();
@@ -469,9 +478,16 @@ public class BdsSerializer {
 		}
 
 		//---
-		// Set scope and statement for each bdsThread
+		// Set scope, statement and tasks for each bdsThread
 		//---
 		for (BdsThread bth : bdsThreads) {
+			// Add tasks (including the ones finished in previous segments)
+			Map<String, Task> tasks = tasksByThreadId.get(bth.getBdsThreadId());
+			if (tasks != null) {
+				for (Task task : tasks.values())
+					bth.addUnserialized(task);
+			}
+
 			// Set statement
 			bth.setStatement(nodesById);
 			bth.checkpointRecoverReset(); // Checkpoint starts recovering node from 'statement' (instead of 'programUnit')
@@ -485,100 +501,188 @@ public class BdsSerializer {
 		return bdsThreads;
 	}
 
-	public int parseNodeId(String fielsVal) {
-		if (fielsVal.equals("null")) return 0; // null node
-		String str[] = fielsVal.split(":");
-		return Gpr.parseIntSafe(str[1]);
+	/**
+	 * ID used to reference a scope symbol written in a previous segment
+	 * Note: Symbol IDs are not serialized, so we use scope's ID and symbol's name
+	 */
+	public static String referenceId(Scope scope, ScopeSymbol ss) {
+		return scope.getNodeId() + "/" + ss.getName();
 	}
 
-	public String parseString(String str) {
-		if (str.equals("null")) return null;
-		str = StringEscapeUtils.unescapeJava(str); // Un-escape
-		str = str.substring(1, str.length() - 1); // Remove quotes
-		return str;
+	/**
+	 * Discard all records since last 'mark()'
+	 */
+	public void reset() {
+		out.reset();
+		List<BdsSerialize> nodes = serializedNodesMarked.peek();
+		serializedNodes.removeAll(nodes);
+		nodes.clear();
 	}
 
-	public String[] parseStringArray(String strArray) {
-		String splitted[] = GprString.splitCsv(strArray);
+	/**
+	 * Save data to file
+	 *
+	 * A snapshot is created in memory (by this thread), the file is
+	 * written in the background (see CheckpointWriter).
+	 *
+	 * If this thread already saved a checkpoint to the same file, only
+	 * a segment with the dynamic state is appended
+	 */
+	public void save(BdsThread bdsThread) {
+		// Wait for previous checkpoint to be written
+		CheckpointWriter checkpointWriter = CheckpointWriter.get();
+		checkpointWriter.waitIdle();
 
-		for (int i = 0; i < splitted.length; i++) {
-			if (splitted[i].equals("null")) splitted[i] = null;
-			else splitted[i] = StringEscapeUtils.unescapeJava(splitted[i]); // Un-escape
-		}
+		long start = System.nanoTime();
+		this.bdsThread = bdsThread;
+		session = SerializerSession.get(fileName, bdsThread);
+
+		// Create snapshot
+		snapshot = new ByteArrayOutputStream(BUFFER_SIZE);
+		boolean text = (config != null && config.isCheckpointText());
+		out = (text ? new SerializerOutputText(snapshot) : new SerializerOutputBinary(snapshot));
 
-		return splitted;
+		// Save version
+		saveVersion();
+
+		// Save main thread
+		serializeSave(bdsThread);
+		out.close();
+
+		// Program nodes and finished tasks do not need to be saved again
+		for (BdsSerialize bdsSer : serializedNodes)
+			if (bdsSer instanceof BdsNode) savedFinished.add(bdsSer);
+
+		// Write in the background
+		checkpointWriter.add(this, System.nanoTime() - start);
 	}
 
 	/**
-	 * Save data to file
+	 * Save a program tree (only program nodes: no threads, scopes or tasks)
+	 * The file is written immediately (not in the background)
 	 */
-	public void save(BdsThread bdsThread) {
-		try {
-			// Open compressed output file
-			PrintStream outFile = new PrintStream(new GZIPOutputStream(new FileOutputStream(fileName)));
+	public void saveProgram(ProgramUnit programUnit) {
+		snapshot = new ByteArrayOutputStream(BUFFER_SIZE);
+		out = new SerializerOutputBinary(snapshot);
+		saveVersion();
+		serializeSave(programUnit);
+		out.close();
+		writeSnapshot(false);
+		snapshot = null;
+	}
 
-			// Save version
-			outFile.print(Bds.class.getSimpleName() + "\t" + Bds.VERSION_SHORT + "\n");
+	void saveVersion() {
+		out.startRecord(Bds.class.getSimpleName());
+		out.writeRaw(Bds.VERSION_SHORT);
+		out.endRecord();
+	}
 
-			// Save main thread
-			outFile.print(this.serializeSave(bdsThread));
-			outFile.close();
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
+	/**
+	 * Serialize a node (unless it has already been serialized)
+	 */
+	public void serializeSave(BdsSerialize bdsSer) {
+		if (!add(bdsSer)) return;
+
+		// Already saved in a previous segment? (program nodes and finished tasks)
+		if (session != null && session.contains(bdsSer)) return;
+
+		// Finished tasks will not change
+		if ((bdsSer instanceof Task) && ((Task) bdsSer).isStateFinished()) savedFinished.add(bdsSer);
+
+		bdsSer.serializeSave(this);
+	}
+
+	public void startRecord(String className) {
+		out.startRecord(className);
 	}
 
 	/**
-	 * Serialize a node
+	 * Compress and write snapshot to file
+	 * Note: This is invoked from the CheckpointWriter thread
 	 */
-	public String serializeSave(BdsSerialize bdsSer) {
-		if (add(bdsSer)) return bdsSer.serializeSave(this);
-		return "";
+	void write() {
+		// A new 'gzip member' is appended for each segment
+		writeSnapshot(session != null);
+		SerializerSession.update(fileName, bdsThread, session != null, savedFinished, digests);
+		snapshot = null;
 	}
 
 	/**
-	 * Serialize a value
+	 * Compress snapshot and write it to file (sync to disk)
 	 */
-	@SuppressWarnings("rawtypes")
-	public String serializeSaveValue(Object value) {
-		if (value == null) return "null";
+	void writeSnapshot(boolean append) {
+		try {
+			FileOutputStream fos = new FileOutputStream(fileName, append);
+			GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(fos, BUFFER_SIZE), BUFFER_SIZE);
+			snapshot.writeTo(gzip);
+			gzip.finish();
+			gzip.flush();
+			fos.getFD().sync();
+			gzip.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
 
-		if (value instanceof Type) return TYPE_IDENTIFIER + ((Type) value).toStringSerializer();
+	public void writeBool(boolean value) {
+		out.writeBool(value);
+	}
 
-		if (value instanceof BdsNode) return NODE_IDENTIFIER + ((BdsNode) value).getId();
+	public void writeInt(long value) {
+		out.writeInt(value);
+	}
 
-		if (value instanceof String) {
-			String escapedStr = StringEscapeUtils.escapeJava(value.toString());
-			return "\"" + escapedStr + "\"";
-		}
+	public void writeNode(BdsNode node) {
+		out.writeNode(node);
+	}
 
-		if (value instanceof List) {
-			List list = (List) value;
-			StringBuilder sb = new StringBuilder(LIST_IDENTIFIER + list.size());
-			for (Object o : list)
-				sb.append("\t" + serializeSaveValue(o));
+	public void writeNodes(BdsNode nodes[]) {
+		out.writeNodes(nodes);
+	}
 
-			return sb.toString();
-		}
+	/**
+	 * Write an object using Java serialization
+	 */
+	public void writeObject(Object value) {
+		out.writeObject(value);
+	}
 
-		if (value instanceof Map) {
-			Map map = (Map) value;
-			StringBuilder sb = new StringBuilder(MAP_IDENTIFIER + map.size());
-			for (Object o : map.keySet()) {
-				sb.append("\t" + serializeSaveValue(o));
-				sb.append("\t" + serializeSaveValue(map.get(o)));
-			}
+	/**
+	 * Write a string that needs no escaping (e.g. an ID)
+	 */
+	public void writeRaw(String value) {
+		out.writeRaw(value);
+	}
 
-			return sb.toString();
-		}
+	public void writeReal(double value) {
+		out.writeReal(value);
+	}
+
+	public void writeString(String value) {
+		out.writeString(value);
+	}
+
+	/**
+	 * Write a reference to an object saved in a previous segment
+	 */
+	void writeReference(String referenceId) {
+		out.startRecord(REFERENCE);
+		out.writeString(referenceId);
+		out.endRecord();
+	}
 
-		// All other values: use default
-		return value.toString();
+	public void writeStrings(String values[]) {
+		out.writeStrings(values);
 	}
 
-	public String serializeSaveValue(String str) {
-		if (str == null) return "null";
-		String escapedStr = StringEscapeUtils.escapeJava(str);
-		return "\"" + escapedStr + "\"";
+	public void writeType(Type type) {
+		out.writeType(type);
+	}
+
+	/**
+	 * Write a value (bool, int, real, string, list or map)
+	 */
+	public void writeValue(Object value) {
+		out.writeValue(value);
 	}
 }
@@ -0,0 +1,137 @@
+package org.bds.serialize;
+
+/**
+ * Write checkpoint files in the background
+ *
+ * A checkpoint is created in two steps:
+ *   1) Snapshot: All records are encoded into a memory buffer. This is
+ *      done by the thread creating the checkpoint, while the bds threads
+ *      are paused (see BdsThread.serializeSave).
+ *   2) Write: Compress the buffer, write it to the file and sync it to
+ *      disk. This is done by this thread, so the program can continue
+ *      running in the meantime.
+ *
+ * Only one checkpoint is written at a time: Creating a new checkpoint
+ * blocks until the previous one has been written.
+ *
+ * Write errors are reported to the thread that waits for the writer
+ * (i.e. when creating the next checkpoint or when the program finishes).
+ *
+ * @author pcingola
+ */
+public class CheckpointWriter extends Thread {
+
+	private static CheckpointWriter checkpointWriter;
+
+	BdsSerializer pending; // Checkpoint being written
+	RuntimeException error; // Error writing last checkpoint (not reported yet)
+	long pauseTime; // Last checkpoint: Time to create the snapshot (nanoseconds)
+	long writeTime; // Last checkpoint: Time to compress and write the file (nanoseconds)
+	long size; // Last checkpoint: Snapshot size in bytes (before compression)
+
+	/**
+	 * Get (or start) the writer thread
+	 */
+	public static synchronized CheckpointWriter get() {
+		if (checkpointWriter == null || !checkpointWriter.isAlive()) {
+			checkpointWriter = new CheckpointWriter();
+			checkpointWriter.start();
+		}
+		return checkpointWriter;
+	}
+
+	/**
+	 * Wait until all checkpoints have been written (if there is a writer)
+	 * Throws an exception if a checkpoint could not be written
+	 */
+	public static void waitFinished() {
+		CheckpointWriter cw;
+		synchronized (CheckpointWriter.class) {
+			cw = checkpointWriter;
+		}
+		if (cw != null) cw.waitIdle();
+	}
+
+	CheckpointWriter() {
+		super("CheckpointWriter");
+		setDaemon(true);
+	}
+
+	/**
+	 * Write a checkpoint snapshot in the background
+	 */
+	public synchronized void add(BdsSerializer bdsSerializer, long pauseTime) {
+		waitIdle();
+		this.pauseTime = pauseTime;
+		size = bdsSerializer.getSnapshotSize();
+		pending = bdsSerializer;
+		notifyAll();
+	}
+
+	public long getPauseTime() {
+		return pauseTime;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public long getWriteTime() {
+		return writeTime;
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			BdsSerializer bdsSerializer;
+			synchronized (this) {
+				while (pending == null) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				bdsSerializer = pending;
+			}
+
+			// Write file (do not hold the lock while writing)
+			long start = System.nanoTime();
+			RuntimeException err = null;
+			try {
+				bdsSerializer.write();
+			} catch (RuntimeException e) {
+				err = new RuntimeException("Error writing checkpoint file '" + bdsSerializer.getFileName() + "': " + e.getMessage(), e);
+			}
+
+			synchronized (this) {
+				if (err != null) error = err;
+				writeTime = System.nanoTime() - start;
+				pending = null;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Wait until the pending checkpoint (if any) has been written
+	 * Throws an exception if the last checkpoint could not be written
+	 * (the error is only reported once)
+	 */
+	public synchronized void waitIdle() {
+		while (pending != null) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		if (error != null) {
+			RuntimeException err = error;
+			error = null;
+			throw err;
+		}
+	}
+
+}
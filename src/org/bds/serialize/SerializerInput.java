@@ -0,0 +1,196 @@
+package org.bds.serialize;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.GZIPInputStream;
+
+import org.bds.lang.PrimitiveType;
+import org.bds.lang.Type;
+import org.bds.lang.TypeList;
+import org.bds.lang.TypeMap;
+
+/**
+ * Read serialized records from a stream (see SerializerOutput)
+ *
+ * Records are read one at a time, the whole file is never loaded into memory
+ *
+ * @author pcingola
+ */
+public abstract class SerializerInput {
+
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	protected String className; // Current record's class name
+
+	/**
+	 * Open a file, detect compression and format
+	 */
+	public static SerializerInput open(String fileName) {
+		try {
+			InputStream is = new BufferedInputStream(new FileInputStream(fileName), BUFFER_SIZE);
+
+			// Compressed?
+			is.mark(2);
+			boolean gzip = (is.read() == 0x1f) && (is.read() == 0x8b);
+			is.reset();
+			if (gzip) is = new BufferedInputStream(new GZIPInputStream(is, BUFFER_SIZE), BUFFER_SIZE);
+
+			// Binary or text format?
+			byte magic[] = new byte[SerializerOutputBinary.MAGIC.length];
+			is.mark(magic.length);
+			int len = is.read(magic);
+			is.reset();
+			if (len == magic.length && Arrays.equals(magic, SerializerOutputBinary.MAGIC)) return new SerializerInputBinary(is);
+			return new SerializerInputText(is);
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot read file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Parse a type
+	 */
+	public static Type parseType(String typeStr) {
+		String fields[] = typeStr.split(":");
+
+		// Base type?
+		if (fields.length == 1) return Type.get(fields[0]);
+
+		// List
+		if (fields[0].equals(PrimitiveType.LIST.toString())) {
+			Type baseType = Type.get(fields[1]);
+			return TypeList.get(baseType);
+		} else if (fields[0].equals(PrimitiveType.MAP.toString())) {
+			Type baseType = Type.get(fields[1]);
+			return TypeMap.get(baseType);
+		}
+
+		// Error
+		throw new RuntimeException("Cannot parse type '" + typeStr + "'");
+	}
+
+	public abstract void close();
+
+	public String getClassName() {
+		return className;
+	}
+
+	/**
+	 * Get next field as a string
+	 */
+	public abstract String getNextField();
+
+	/**
+	 * Get next field as a given 'type'
+	 */
+	public Object getNextField(Type type) {
+		switch (type.getPrimitiveType()) {
+		case VOID:
+			return null;
+
+		case BOOL:
+			return getNextFieldBool();
+
+		case INT:
+			return getNextFieldInt();
+
+		case REAL:
+			return getNextFieldReal();
+
+		case STRING:
+			return getNextFieldString();
+
+		case LIST:
+			return getNextFieldList((TypeList) type);
+
+		case MAP:
+			return getNextFieldMap((TypeMap) type);
+
+		default:
+			throw new RuntimeException("Cannot parse type '" + type + "'");
+		}
+	}
+
+	public abstract boolean getNextFieldBool();
+
+	public abstract long getNextFieldInt();
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public ArrayList getNextFieldList(TypeList type) {
+		int size = getNextFieldListSize();
+		if (size < 0) return null;
+
+		ArrayList list = type.newList(size);
+		for (int i = 0; i < size; i++) {
+			Object value = getNextField(type.getBaseType());
+			list.add(value);
+		}
+
+		return list;
+	}
+
+	/**
+	 * Get list size (negative for null lists)
+	 */
+	protected abstract int getNextFieldListSize();
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public HashMap getNextFieldMap(TypeMap type) {
+		int size = getNextFieldMapSize();
+		if (size < 0) return null;
+
+		HashMap map = type.newMap(size);
+		for (int i = 0; i < size; i++) {
+			Object key = getNextFieldString();
+			Object value = getNextField(type.getBaseType());
+			map.put(key, value);
+		}
+
+		return map;
+	}
+
+	/**
+	 * Get map size (negative for null maps)
+	 */
+	protected abstract int getNextFieldMapSize();
+
+	/**
+	 * Get a node ID (zero for null nodes)
+	 */
+	public abstract int getNextFieldNodeId();
+
+	/**
+	 * Get an array of node IDs (null for null arrays)
+	 */
+	public abstract int[] getNextFieldNodeIds();
+
+	/**
+	 * Get an object serialized using Java serialization
+	 */
+	public abstract Object getNextFieldObject();
+
+	public abstract double getNextFieldReal();
+
+	public abstract String getNextFieldString();
+
+	public abstract String[] getNextFieldStringArray();
+
+	public abstract Type getNextFieldType();
+
+	/**
+	 * Are there more fields in the current record?
+	 */
+	public abstract boolean hasNextField();
+
+	/**
+	 * Read next record
+	 * @return false if there are no more records
+	 */
+	public abstract boolean nextRecord();
+
+}
@@ -0,0 +1,305 @@
+package org.bds.serialize;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bds.lang.Type;
+
+/**
+ * Read serialized records in binary format (see SerializerOutputBinary)
+ *
+ * @author pcingola
+ */
+public class SerializerInputBinary extends SerializerInput {
+
+	DataInputStream in;
+	int tag; // Tag of the next value to read
+
+	public SerializerInputBinary(InputStream is) {
+		in = new DataInputStream(is);
+		try {
+			in.readFully(new byte[SerializerOutputBinary.MAGIC.length]);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		tag = SerializerOutputBinary.TAG_END;
+	}
+
+	@Override
+	public void close() {
+		try {
+			in.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public String getNextField() {
+		Object value = readValue();
+		return value != null ? value.toString() : "";
+	}
+
+	@Override
+	public boolean getNextFieldBool() {
+		Object value = readValue();
+		if (value instanceof Boolean) return (Boolean) value;
+		return value != null && Boolean.parseBoolean(value.toString());
+	}
+
+	@Override
+	public long getNextFieldInt() {
+		Object value = readValue();
+		if (value instanceof Long) return (Long) value;
+		if (value instanceof Double) return ((Double) value).longValue();
+		return value != null ? Long.parseLong(value.toString()) : 0;
+	}
+
+	@Override
+	protected int getNextFieldListSize() {
+		if (tag == SerializerOutputBinary.TAG_NULL) {
+			readValue();
+			return -1;
+		}
+
+		if (tag != SerializerOutputBinary.TAG_LIST) throw new RuntimeException("Serialization error: List expected, found tag " + tag);
+		return readSize();
+	}
+
+	@Override
+	protected int getNextFieldMapSize() {
+		if (tag == SerializerOutputBinary.TAG_NULL) {
+			readValue();
+			return -1;
+		}
+
+		if (tag != SerializerOutputBinary.TAG_MAP) throw new RuntimeException("Serialization error: Map expected, found tag " + tag);
+		return readSize();
+	}
+
+	@Override
+	public int getNextFieldNodeId() {
+		Object value = readValue();
+		return value != null ? (Integer) value : 0;
+	}
+
+	@Override
+	public int[] getNextFieldNodeIds() {
+		return (int[]) readValue();
+	}
+
+	@Override
+	public Object getNextFieldObject() {
+		byte bytes[] = (byte[]) readValue();
+		if (bytes == null) return null;
+
+		try {
+			ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+			Object o = ois.readObject();
+			ois.close();
+			return o;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public double getNextFieldReal() {
+		Object value = readValue();
+		if (value instanceof Number) return ((Number) value).doubleValue();
+		return value != null ? Double.parseDouble(value.toString()) : 0.0;
+	}
+
+	@Override
+	public String getNextFieldString() {
+		Object value = readValue();
+		return value != null ? value.toString() : null;
+	}
+
+	@Override
+	public String[] getNextFieldStringArray() {
+		return (String[]) readValue();
+	}
+
+	@Override
+	public Type getNextFieldType() {
+		if (tag == SerializerOutputBinary.TAG_NULL) {
+			readValue();
+			return null;
+		}
+
+		if (tag != SerializerOutputBinary.TAG_TYPE) throw new RuntimeException("Serialized Type expected, found tag " + tag);
+		return parseType((String) readValue());
+	}
+
+	@Override
+	public boolean hasNextField() {
+		return tag != SerializerOutputBinary.TAG_END;
+	}
+
+	@Override
+	public boolean nextRecord() {
+		try {
+			// Skip any fields not read from previous record
+			while (tag != SerializerOutputBinary.TAG_END)
+				readValue();
+
+			int t = in.read();
+			if (t < 0) return false; // End of file
+
+			// Start of a new segment?
+			if (t == SerializerOutputBinary.MAGIC[0]) {
+				in.readFully(new byte[SerializerOutputBinary.MAGIC.length - 1]);
+				t = in.read();
+			}
+
+			if (t != SerializerOutputBinary.TAG_RECORD) throw new RuntimeException("Serialization error: Record expected, found tag " + t);
+
+			className = readString();
+			tag = in.readByte();
+			return true;
+		} catch (EOFException e) {
+			return false;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Read the size of a list or map (and the first element's tag)
+	 */
+	int readSize() {
+		try {
+			int size = (int) readVarInt();
+			tag = in.readByte();
+			return size;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	String readString() throws IOException {
+		int len = (int) readVarInt();
+		byte bytes[] = new byte[len];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Read a value
+	 * Strings and types are returned as String, ints as Long, nodes as Integer
+	 * (node ID), node arrays as int[] and serialized objects as byte[]
+	 */
+	Object readValue() {
+		try {
+			Object value;
+			int size;
+
+			switch (tag) {
+			case SerializerOutputBinary.TAG_NULL:
+				value = null;
+				break;
+
+			case SerializerOutputBinary.TAG_FALSE:
+				value = Boolean.FALSE;
+				break;
+
+			case SerializerOutputBinary.TAG_TRUE:
+				value = Boolean.TRUE;
+				break;
+
+			case SerializerOutputBinary.TAG_INT:
+				value = readVarInt();
+				break;
+
+			case SerializerOutputBinary.TAG_REAL:
+				value = in.readDouble();
+				break;
+
+			case SerializerOutputBinary.TAG_STRING:
+			case SerializerOutputBinary.TAG_TYPE:
+				value = readString();
+				break;
+
+			case SerializerOutputBinary.TAG_NODE:
+				value = (int) readVarInt();
+				break;
+
+			case SerializerOutputBinary.TAG_NODES:
+				size = (int) readVarInt();
+				int nodeIds[] = new int[size];
+				for (int i = 0; i < size; i++)
+					nodeIds[i] = (int) readVarInt();
+				value = nodeIds;
+				break;
+
+			case SerializerOutputBinary.TAG_STRINGS:
+				size = (int) readVarInt();
+				String strs[] = new String[size];
+				for (int i = 0; i < size; i++)
+					if (in.readByte() == SerializerOutputBinary.TAG_STRING) strs[i] = readString();
+				value = strs;
+				break;
+
+			case SerializerOutputBinary.TAG_OBJECT:
+				byte bytes[] = new byte[(int) readVarInt()];
+				in.readFully(bytes);
+				value = bytes;
+				break;
+
+			case SerializerOutputBinary.TAG_LIST:
+				size = readSize();
+				List<Object> list = new ArrayList<>(size);
+				for (int i = 0; i < size; i++)
+					list.add(readValue());
+				return list; // Note: Tag has already been updated
+
+			case SerializerOutputBinary.TAG_MAP:
+				size = readSize();
+				Map<Object, Object> map = new HashMap<>();
+				for (int i = 0; i < size; i++) {
+					Object key = readValue();
+					map.put(key, readValue());
+				}
+				return map; // Note: Tag has already been updated
+
+			case SerializerOutputBinary.TAG_END:
+				throw new RuntimeException("Serialization error: Trying to read past the end of record '" + className + "'");
+
+			default:
+				throw new RuntimeException("Serialization error: Unknown tag " + tag + ", record '" + className + "'");
+			}
+
+			tag = in.readByte();
+			return value;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Read a variable length integer (see SerializerOutputBinary.varInt)
+	 */
+	long readVarInt() throws IOException {
+		long v = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readByte();
+			v |= ((long) (b & 0x7F)) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+}
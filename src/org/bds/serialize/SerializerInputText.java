@@ -0,0 +1,198 @@
+package org.bds.serialize;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.bds.lang.Type;
+import org.bds.util.Gpr;
+import org.bds.util.GprString;
+
+/**
+ * Read serialized records in text format (see SerializerOutputText)
+ *
+ * @author pcingola
+ */
+public class SerializerInputText extends SerializerInput {
+
+	BufferedReader reader;
+	int lineNum;
+	int parsedField;
+	String fields[];
+
+	public SerializerInputText(InputStream is) {
+		reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+
+	/**
+	 * Read the object from Base64 string.
+	 */
+	Object base64Decode(String s) {
+		try {
+			byte[] data = Base64Coder.decode(s);
+			ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data));
+			Object o = ois.readObject();
+			ois.close();
+			return o;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			reader.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public String getNextField() {
+		if (fields.length <= parsedField) return "";
+		return fields[parsedField++];
+	}
+
+	@Override
+	public boolean getNextFieldBool() {
+		return Gpr.parseBoolSafe(getNextField());
+	}
+
+	@Override
+	public long getNextFieldInt() {
+		return Gpr.parseLongSafe(getNextField());
+	}
+
+	@Override
+	protected int getNextFieldListSize() {
+		// Sanity check: Is it a list?
+		String nextField = getNextField();
+		if (nextField.equals("null")) return -1;
+		if (!nextField.startsWith(SerializerOutputText.LIST_IDENTIFIER)) throw new RuntimeException("Serialization error: '" + SerializerOutputText.LIST_IDENTIFIER + "' expected instead of '" + nextField + "'");
+
+		// Parse list size
+		String sizeStr = nextField.substring(SerializerOutputText.LIST_IDENTIFIER.length());
+		return Gpr.parseIntSafe(sizeStr);
+	}
+
+	@Override
+	protected int getNextFieldMapSize() {
+		// Sanity check: Is it a map?
+		String nextField = getNextField();
+		if (nextField.equals("null")) return -1;
+		if (!nextField.startsWith(SerializerOutputText.MAP_IDENTIFIER)) throw new RuntimeException("Serialization error: '" + SerializerOutputText.MAP_IDENTIFIER + "' expected instead of '" + nextField + "'");
+
+		// Parse map size
+		String sizeStr = nextField.substring(SerializerOutputText.MAP_IDENTIFIER.length());
+		return Gpr.parseIntSafe(sizeStr);
+	}
+
+	/**
+	 * Get nodeId from next field.
+	 * Format : "node:ID_NUM"
+	 * E.g.   : "node:42"
+	 */
+	@Override
+	public int getNextFieldNodeId() {
+		return parseNodeId(getNextField());
+	}
+
+	@Override
+	public int[] getNextFieldNodeIds() {
+		String arrayVal = getNextField();
+		if (arrayVal.equals("null")) return null;
+		if (arrayVal.isEmpty()) return new int[0];
+
+		String nodeNums[] = arrayVal.split(",");
+		int nodeIds[] = new int[nodeNums.length];
+		for (int i = 0; i < nodeNums.length; i++)
+			nodeIds[i] = parseNodeId(nodeNums[i]);
+		return nodeIds;
+	}
+
+	@Override
+	public Object getNextFieldObject() {
+		String b64 = getNextField();
+		return (b64 != null && !b64.isEmpty() ? base64Decode(b64) : null);
+	}
+
+	@Override
+	public double getNextFieldReal() {
+		return Gpr.parseDoubleSafe(getNextField());
+	}
+
+	@Override
+	public String getNextFieldString() {
+		return parseString(getNextField());
+	}
+
+	@Override
+	public String[] getNextFieldStringArray() {
+		return parseStringArray(getNextField());
+	}
+
+	@Override
+	public Type getNextFieldType() {
+		String typeStr = getNextField();
+
+		if (typeStr.equals("null")) return null;
+
+		if (!typeStr.startsWith(SerializerOutputText.TYPE_IDENTIFIER)) throw new RuntimeException("Serialized Type expected, found '" + typeStr + "'");
+		return parseType(typeStr.substring(SerializerOutputText.TYPE_IDENTIFIER.length()));
+	}
+
+	@Override
+	public boolean hasNextField() {
+		return parsedField < fields.length;
+	}
+
+	@Override
+	public boolean nextRecord() {
+		try {
+			String line;
+			do {
+				line = reader.readLine();
+				lineNum++;
+				if (line == null) return false;
+			} while (line.isEmpty());
+
+			fields = line.split("\t");
+			className = fields[0];
+			parsedField = 1;
+			return true;
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading line " + lineNum, e);
+		}
+	}
+
+	int parseNodeId(String fielsVal) {
+		if (fielsVal.equals("null")) return 0; // null node
+		String str[] = fielsVal.split(":");
+		return Gpr.parseIntSafe(str[1]);
+	}
+
+	String parseString(String str) {
+		if (str.equals("null")) return null;
+		str = StringEscapeUtils.unescapeJava(str); // Un-escape
+		str = str.substring(1, str.length() - 1); // Remove quotes
+		return str;
+	}
+
+	String[] parseStringArray(String strArray) {
+		String splitted[] = GprString.splitCsv(strArray);
+
+		for (int i = 0; i < splitted.length; i++) {
+			if (splitted[i].equals("null")) splitted[i] = null;
+			else splitted[i] = StringEscapeUtils.unescapeJava(splitted[i]); // Un-escape
+		}
+
+		return splitted;
+	}
+
+}
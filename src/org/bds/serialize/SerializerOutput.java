@@ -0,0 +1,138 @@
+package org.bds.serialize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.bds.lang.BdsNode;
+import org.bds.lang.Type;
+
+/**
+ * Write serialized records to a stream
+ *
+ * A record is a class name followed by a number of fields. Records
+ * are written as soon as they are complete (nothing is accumulated
+ * in memory), except when the output is 'marked', in which case records
+ * are kept in a buffer until they are either committed or discarded
+ * (see 'mark', 'commit' and 'reset').
+ *
+ * @author pcingola
+ */
+public abstract class SerializerOutput {
+
+	protected DataOutputStream out; // Current output (it can be a buffer, see 'mark()')
+	Deque<DataOutputStream> outs; // Outputs before 'mark()'
+	Deque<ByteArrayOutputStream> buffers; // Buffers created by 'mark()'
+
+	public SerializerOutput(OutputStream os) {
+		out = new DataOutputStream(os);
+		outs = new ArrayDeque<>();
+		buffers = new ArrayDeque<>();
+	}
+
+	public void close() {
+		try {
+			while (!buffers.isEmpty())
+				commit();
+			out.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Write all records since last 'mark()'
+	 */
+	public void commit() {
+		try {
+			ByteArrayOutputStream buffer = buffers.pop();
+			out.flush();
+			out = outs.pop();
+			buffer.writeTo(out);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * End current record
+	 */
+	public abstract void endRecord();
+
+	/**
+	 * Get all records since last 'mark()'
+	 */
+	public byte[] getMarked() {
+		try {
+			out.flush();
+			return buffers.peek().toByteArray();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Keep records in a buffer until 'commit()' or 'reset()'
+	 * Note: Marks can be nested
+	 */
+	public void mark() {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		buffers.push(buffer);
+		outs.push(out);
+		out = new DataOutputStream(buffer);
+	}
+
+	/**
+	 * Discard all records since last 'mark()'
+	 */
+	public void reset() {
+		buffers.peek().reset();
+		out = new DataOutputStream(buffers.peek());
+	}
+
+	/**
+	 * Start a new record
+	 */
+	public abstract void startRecord(String className);
+
+	public abstract void writeBool(boolean value);
+
+	public abstract void writeInt(long value);
+
+	/**
+	 * Write a node reference
+	 */
+	public abstract void writeNode(BdsNode node);
+
+	/**
+	 * Write an array of node references
+	 */
+	public abstract void writeNodes(BdsNode nodes[]);
+
+	/**
+	 * Write an object using Java serialization
+	 */
+	public abstract void writeObject(Object value);
+
+	/**
+	 * Write a string that needs no escaping (e.g. an ID)
+	 */
+	public abstract void writeRaw(String value);
+
+	public abstract void writeReal(double value);
+
+	public abstract void writeString(String value);
+
+	public abstract void writeStrings(String values[]);
+
+	public abstract void writeType(Type type);
+
+	/**
+	 * Write a value (bool, int, real, string, list or map)
+	 */
+	public abstract void writeValue(Object value);
+
+}
@@ -0,0 +1,243 @@
+package org.bds.serialize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.bds.lang.BdsNode;
+import org.bds.lang.Type;
+
+/**
+ * Write serialized records in binary format
+ *
+ * Format:
+ *   - File starts with MAGIC
+ *   - Each record: RECORD, class name (string), fields, END
+ *   - Each field: A tag followed by its value
+ *       - Integers are encoded as variable length (zig-zag) numbers
+ *       - Strings are encoded as length (variable length) and UTF-8 bytes
+ *       - Lists and maps: number of elements followed by each element (or key-value pair)
+ *
+ * Strings are not escaped and lists / maps are not converted to text,
+ * so this format is much faster (and smaller) than the text format
+ *
+ * @author pcingola
+ */
+public class SerializerOutputBinary extends SerializerOutput {
+
+	public static final byte MAGIC[] = { 0, 'B', 'D', 'S', 'C', 'H', 'P', 1 };
+
+	public static final byte TAG_END = 0;
+	public static final byte TAG_RECORD = 1;
+	public static final byte TAG_NULL = 2;
+	public static final byte TAG_FALSE = 3;
+	public static final byte TAG_TRUE = 4;
+	public static final byte TAG_INT = 5;
+	public static final byte TAG_REAL = 6;
+	public static final byte TAG_STRING = 7;
+	public static final byte TAG_NODE = 8;
+	public static final byte TAG_NODES = 9;
+	public static final byte TAG_STRINGS = 10;
+	public static final byte TAG_TYPE = 11;
+	public static final byte TAG_LIST = 12;
+	public static final byte TAG_MAP = 13;
+	public static final byte TAG_OBJECT = 14;
+
+	public SerializerOutputBinary(OutputStream os) {
+		super(os);
+		try {
+			out.write(MAGIC);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void endRecord() {
+		tag(TAG_END);
+	}
+
+	@Override
+	public void startRecord(String className) {
+		tag(TAG_RECORD);
+		string(className);
+	}
+
+	/**
+	 * Write a string (without tag)
+	 */
+	void string(String str) {
+		byte bytes[] = str.getBytes(StandardCharsets.UTF_8);
+		varInt(bytes.length);
+		try {
+			out.write(bytes);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	void tag(byte tag) {
+		try {
+			out.writeByte(tag);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Write a variable length integer (zig-zag encoding, so
+	 * that small negative numbers are also short)
+	 */
+	void varInt(long value) {
+		long v = (value << 1) ^ (value >> 63);
+		try {
+			while ((v & ~0x7FL) != 0) {
+				out.writeByte((int) ((v & 0x7F) | 0x80));
+				v >>>= 7;
+			}
+			out.writeByte((int) v);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void writeBool(boolean value) {
+		tag(value ? TAG_TRUE : TAG_FALSE);
+	}
+
+	@Override
+	public void writeInt(long value) {
+		tag(TAG_INT);
+		varInt(value);
+	}
+
+	@Override
+	public void writeNode(BdsNode node) {
+		if (node == null) {
+			tag(TAG_NULL);
+			return;
+		}
+
+		tag(TAG_NODE);
+		varInt(node.getId());
+	}
+
+	@Override
+	public void writeNodes(BdsNode nodes[]) {
+		if (nodes == null) {
+			tag(TAG_NULL);
+			return;
+		}
+
+		tag(TAG_NODES);
+		varInt(nodes.length);
+		for (BdsNode node : nodes)
+			varInt(node != null ? node.getId() : 0);
+	}
+
+	@Override
+	public void writeObject(Object value) {
+		if (value == null) {
+			tag(TAG_NULL);
+			return;
+		}
+
+		try {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(baos);
+			oos.writeObject(value);
+			oos.close();
+
+			tag(TAG_OBJECT);
+			varInt(baos.size());
+			baos.writeTo(out);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void writeRaw(String value) {
+		writeString(value);
+	}
+
+	@Override
+	public void writeReal(double value) {
+		tag(TAG_REAL);
+		try {
+			out.writeDouble(value);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void writeString(String value) {
+		if (value == null) {
+			tag(TAG_NULL);
+			return;
+		}
+
+		tag(TAG_STRING);
+		string(value);
+	}
+
+	@Override
+	public void writeStrings(String values[]) {
+		if (values == null) {
+			tag(TAG_NULL);
+			return;
+		}
+
+		tag(TAG_STRINGS);
+		varInt(values.length);
+		for (String str : values) {
+			tag(str != null ? TAG_STRING : TAG_NULL);
+			if (str != null) string(str);
+		}
+	}
+
+	@Override
+	public void writeType(Type type) {
+		if (type == null) {
+			tag(TAG_NULL);
+			return;
+		}
+
+		tag(TAG_TYPE);
+		string(type.toStringSerializer());
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void writeValue(Object value) {
+		if (value == null) writeString(null);
+		else if (value instanceof Boolean) writeBool((Boolean) value);
+		else if (value instanceof Long || value instanceof Integer) writeInt(((Number) value).longValue());
+		else if (value instanceof Double) writeReal((Double) value);
+		else if (value instanceof String) writeString((String) value);
+		else if (value instanceof Type) writeType((Type) value);
+		else if (value instanceof BdsNode) writeNode((BdsNode) value);
+		else if (value instanceof List) {
+			List list = (List) value;
+			tag(TAG_LIST);
+			varInt(list.size());
+			for (Object o : list)
+				writeValue(o);
+		} else if (value instanceof Map) {
+			Map map = (Map) value;
+			tag(TAG_MAP);
+			varInt(map.size());
+			for (Object o : map.keySet()) {
+				writeValue(o);
+				writeValue(map.get(o));
+			}
+		} else writeString(value.toString()); // All other values: use default
+	}
+
+}
@@ -0,0 +1,185 @@
+package org.bds.serialize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.bds.lang.BdsNode;
+import org.bds.lang.Type;
+
+/**
+ * Write serialized records as text: One record per line, tab separated fields
+ *
+ * This is the original checkpoint format. It is slower and larger than the
+ * binary format, but it is human readable, so it is useful for debugging
+ *
+ * @author pcingola
+ */
+public class SerializerOutputText extends SerializerOutput {
+
+	public static final String LIST_IDENTIFIER = "list:";
+	public static final String MAP_IDENTIFIER = "map:";
+	public static final String NODE_IDENTIFIER = "node:";
+	public static final String TYPE_IDENTIFIER = "type:";
+
+	StringBuilder record;
+
+	public SerializerOutputText(OutputStream os) {
+		super(os);
+		record = new StringBuilder();
+	}
+
+	/**
+	 * Encode an object using Java serialization and Base64
+	 */
+	String base64encode(Object o) {
+		try {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(baos);
+			oos.writeObject(o);
+			oos.close();
+			return new String(Base64Coder.encode(baos.toByteArray()));
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void endRecord() {
+		record.append('\n');
+		try {
+			out.write(record.toString().getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		record.setLength(0);
+	}
+
+	void field(String str) {
+		record.append('\t');
+		record.append(str);
+	}
+
+	@Override
+	public void startRecord(String className) {
+		record.setLength(0);
+		record.append(className);
+	}
+
+	/**
+	 * Serialize a value
+	 */
+	@SuppressWarnings("rawtypes")
+	String value(Object value) {
+		if (value == null) return "null";
+
+		if (value instanceof Type) return TYPE_IDENTIFIER + ((Type) value).toStringSerializer();
+
+		if (value instanceof BdsNode) return NODE_IDENTIFIER + ((BdsNode) value).getId();
+
+		if (value instanceof String) return value((String) value);
+
+		if (value instanceof List) {
+			List list = (List) value;
+			StringBuilder sb = new StringBuilder(LIST_IDENTIFIER + list.size());
+			for (Object o : list)
+				sb.append("\t" + value(o));
+
+			return sb.toString();
+		}
+
+		if (value instanceof Map) {
+			Map map = (Map) value;
+			StringBuilder sb = new StringBuilder(MAP_IDENTIFIER + map.size());
+			for (Object o : map.keySet()) {
+				sb.append("\t" + value(o));
+				sb.append("\t" + value(map.get(o)));
+			}
+
+			return sb.toString();
+		}
+
+		// All other values: use default
+		return value.toString();
+	}
+
+	String value(String str) {
+		if (str == null) return "null";
+		String escapedStr = StringEscapeUtils.escapeJava(str);
+		return "\"" + escapedStr + "\"";
+	}
+
+	@Override
+	public void writeBool(boolean value) {
+		field(Boolean.toString(value));
+	}
+
+	@Override
+	public void writeInt(long value) {
+		field(Long.toString(value));
+	}
+
+	@Override
+	public void writeNode(BdsNode node) {
+		field(value(node));
+	}
+
+	@Override
+	public void writeNodes(BdsNode nodes[]) {
+		if (nodes == null) {
+			field("null");
+			return;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (BdsNode node : nodes)
+			sb.append((sb.length() > 0 ? "," : "") + value(node));
+		field(sb.toString());
+	}
+
+	@Override
+	public void writeObject(Object value) {
+		field(base64encode(value));
+	}
+
+	@Override
+	public void writeRaw(String value) {
+		field(value);
+	}
+
+	@Override
+	public void writeReal(double value) {
+		field(Double.toString(value));
+	}
+
+	@Override
+	public void writeString(String value) {
+		field(value(value));
+	}
+
+	@Override
+	public void writeStrings(String values[]) {
+		StringBuilder sb = new StringBuilder();
+		if (values != null) {
+			for (String str : values)
+				sb.append((sb.length() > 0 ? "," : "") + value(str));
+		}
+		field(sb.toString());
+	}
+
+	@Override
+	public void writeType(Type type) {
+		field(value(type));
+	}
+
+	@Override
+	public void writeValue(Object value) {
+		field(value(value));
+	}
+
+}
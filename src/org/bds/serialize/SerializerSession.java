@@ -0,0 +1,99 @@
+package org.bds.serialize;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.bds.run.BdsThread;
+
+/**
+ * Objects already written to a checkpoint file during this run
+ *
+ * The first checkpoint to a file writes the whole program tree. Further
+ * checkpoints to the same file (by the same program run) append a new
+ * segment that only contains dynamic state (threads, program counters,
+ * scopes, symbols and tasks that are not finished yet). Objects that
+ * have not changed are either skipped (program nodes and finished tasks)
+ * or written as a reference (scopes and symbols that did not change).
+ *
+ * Once the appended segments are larger than the first one, the next
+ * checkpoint re-writes the file from scratch (so the file does not grow
+ * without limits).
+ *
+ * Note: Only a digest of the last records written for each object is kept
+ * (see 'BdsSerializer.commitIfChanged'), not the records themselves.
+ *
+ * @author pcingola
+ */
+public class SerializerSession {
+
+	private static final Map<String, SerializerSession> sessions = new HashMap<String, SerializerSession>();
+
+	String fileName;
+	BdsThread bdsThread; // Root thread that created the session
+	long baseSize; // File size after the first segment was written
+	long fileSize; // File size after last segment was written
+	Set<BdsSerialize> saved; // Objects that do not need to be written again
+	Map<BdsSerialize, byte[]> digests; // Digest of the records written in the last segment for objects that may change
+
+	/**
+	 * Get a session to append a new segment to 'fileName'
+	 * @return A session or null if the file has to be written from scratch
+	 */
+	public static synchronized SerializerSession get(String fileName, BdsThread bdsThread) {
+		SerializerSession session = sessions.get(key(fileName));
+		if (session != null && session.isValid(bdsThread)) return session;
+		return null;
+	}
+
+	static String key(String fileName) {
+		return new File(fileName).getAbsolutePath();
+	}
+
+	/**
+	 * Update (or create) session after a segment has been written
+	 * @param append : Was the segment appended to the file? (otherwise the file was written from scratch)
+	 */
+	public static synchronized void update(String fileName, BdsThread bdsThread, boolean append, Set<BdsSerialize> saved, Map<BdsSerialize, byte[]> digests) {
+		SerializerSession session = sessions.get(key(fileName));
+		if (!append || session == null || session.bdsThread != bdsThread) {
+			session = new SerializerSession(fileName, bdsThread);
+			sessions.put(key(fileName), session);
+		}
+
+		session.saved.addAll(saved);
+		session.digests = digests; // Only the last segment's digests are needed
+		session.fileSize = new File(fileName).length();
+		if (!append) session.baseSize = session.fileSize;
+	}
+
+	SerializerSession(String fileName, BdsThread bdsThread) {
+		this.fileName = fileName;
+		this.bdsThread = bdsThread;
+		saved = new HashSet<BdsSerialize>();
+		digests = new HashMap<BdsSerialize, byte[]>();
+	}
+
+	public boolean contains(BdsSerialize bdsSerialize) {
+		return saved.contains(bdsSerialize);
+	}
+
+	public byte[] getDigest(BdsSerialize bdsSerialize) {
+		return digests.get(bdsSerialize);
+	}
+
+	/**
+	 * Can we append a segment to this file?
+	 * Only if it is the same program run, the file has not been changed
+	 * and the appended segments are not larger than the first one
+	 */
+	boolean isValid(BdsThread bdsThread) {
+		if (this.bdsThread != bdsThread) return false;
+		if (fileSize - baseSize > baseSize) return false; // Too many changes: Re-write the file
+		File file = new File(fileName);
+		return file.exists() && (file.length() == fileSize);
+	}
+
+}
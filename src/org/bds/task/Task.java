@@ -13,6 +13,7 @@ import org.bds.cluster.host.HostResources;
 import org.bds.lang.Expression;
 import org.bds.lang.Type;
 import org.bds.lang.TypeList;
+import org.bds.run.AutoCheckpoint;
 import org.bds.serialize.BdsSerialize;
 import org.bds.serialize.BdsSerializer;
 import org.bds.util.Gpr;
@@ -537,30 +538,30 @@ public class Task implements BdsSerialize {
 	}
 
 	@Override
-	public String serializeSave(BdsSerializer serializer) {
-		return getClass().getSimpleName() //
-				+ "\t" + id //
-				+ "\t" + serializer.serializeSaveValue(bdsFileName) //
-				+ "\t" + bdsLineNum //
-				+ "\t" + dependency //
-				+ "\t" + canFail //
-				+ "\t" + allowEmpty //
-				+ "\t" + serializer.serializeSaveValue(taskState.toString()) //
-				+ "\t" + exitValue //
-				+ "\t" + serializer.serializeSaveValue(node) //
-				+ "\t" + serializer.serializeSaveValue(queue) //
-				+ "\t" + serializer.serializeSaveValue(programFileName) //
-				+ "\t" + serializer.serializeSaveValue(programTxt) //
-				+ "\t" + serializer.serializeSaveValue(stdoutFile) //
-				+ "\t" + serializer.serializeSaveValue(stderrFile) //
-				+ "\t" + serializer.serializeSaveValue(exitCodeFile) //
-				+ "\t" + serializer.serializeSaveValue(currentDir) //
-				+ "\t" + serializer.serializeSaveValue(taskDependency.getInputs()) //
-				+ "\t" + serializer.serializeSaveValue(taskDependency.getOutputs()) //
-				+ "\t" + serializer.serializeSave(resources) //
-				+ "\n";
+	public void serializeSave(BdsSerializer serializer) {
+		serializer.startRecord(getClass().getSimpleName());
+		serializer.writeRaw(id);
+		serializer.writeString(bdsFileName);
+		serializer.writeInt(bdsLineNum);
+		serializer.writeBool(dependency);
+		serializer.writeBool(canFail);
+		serializer.writeBool(allowEmpty);
+		serializer.writeString(taskState.toString());
+		serializer.writeInt(exitValue);
+		serializer.writeString(node);
+		serializer.writeString(queue);
+		serializer.writeString(programFileName);
+		serializer.writeString(programTxt);
+		serializer.writeString(stdoutFile);
+		serializer.writeString(stderrFile);
+		serializer.writeString(exitCodeFile);
+		serializer.writeString(currentDir);
+		serializer.writeValue(taskDependency.getInputs());
+		serializer.writeValue(taskDependency.getOutputs());
+		resources.serializeSave(serializer);
+		serializer.endRecord();
 		// TODO: Add tasks by ID. Make sure all tasks are stored before this one
-		//				+ "\t" + serializer.serializeSaveValue(taskDependency.getTasksIds()) //
+		//		serializer.writeValue(taskDependency.getTasksIds());
 	}
 
 	public void setAllowEmpty(boolean allowEmpty) {
@@ -613,6 +614,11 @@ public class Task implements BdsSerialize {
 
 	private void setState(TaskState taskState) {
 		this.taskState = taskState;
+
+		// Log state change
+		TaskJournal taskJournal = TaskJournal.get();
+		if (taskJournal != null) taskJournal.add(this);
+		if (taskState.isFinished()) AutoCheckpoint.taskFinished();
 	}
 
 	public void setTaskDependency(TaskDependency taskDependency) {
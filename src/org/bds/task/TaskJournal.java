@@ -0,0 +1,237 @@
+package org.bds.task;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bds.data.Data;
+import org.bds.util.Gpr;
+import org.bds.util.Timer;
+
+/**
+ * Task journal: An append-only log of task state changes
+ *
+ * If a program crashes (or is killed) the journal is kept, so when
+ * the program is run again, tasks that already finished successfully
+ * are not executed again (even if there were no checkpoints).
+ *
+ * Tasks are identified by program file, line number, commands and
+ * number of times the same task was executed (so that tasks in loops
+ * get different identifiers).
+ *
+ * Entries are written by a background thread using 'group commits':
+ * All entries added while the previous write was being done are
+ * written (and synced to disk) together, so the cost per task is small.
+ *
+ * Format: One line per entry, tab separated fields
+ *     key    state    taskId    outputFiles (comma separated, only for finished tasks)
+ *
+ * @author pcingola
+ */
+public class TaskJournal extends Thread {
+
+	public static final String JOURNAL_EXT = ".journal";
+
+	private static TaskJournal taskJournal;
+
+	String fileName;
+	FileOutputStream fos;
+	Map<String, String> keyByTaskId; // Task ID to journal key
+	Map<String, Integer> keyCount; // Number of tasks using the same key
+	Map<String, String[]> finished; // Tasks finished in previous runs (key => output files)
+	List<String> pending; // Entries to write
+	boolean closed;
+	long entries, commits; // Number of entries and commits (writes)
+
+	/**
+	 * Finish journal
+	 * @param ok : Program finished OK, delete journal file
+	 */
+	public static void finish(boolean ok) {
+		TaskJournal tj;
+		synchronized (TaskJournal.class) {
+			tj = taskJournal;
+			taskJournal = null;
+		}
+		if (tj != null) tj.close(ok);
+	}
+
+	/**
+	 * Get journal (null if journal is not enabled)
+	 */
+	public static synchronized TaskJournal get() {
+		return taskJournal;
+	}
+
+	/**
+	 * Load journal (if any) and start writer thread
+	 */
+	public static synchronized TaskJournal start(String fileName) {
+		if (taskJournal != null) taskJournal.close(false);
+		taskJournal = new TaskJournal(fileName);
+		taskJournal.load();
+		taskJournal.open();
+		taskJournal.start();
+		return taskJournal;
+	}
+
+	TaskJournal(String fileName) {
+		super("TaskJournal");
+		setDaemon(true);
+		this.fileName = fileName;
+		keyByTaskId = new HashMap<>();
+		keyCount = new HashMap<>();
+		finished = new HashMap<>();
+		pending = new ArrayList<>();
+	}
+
+	/**
+	 * Add a journal entry
+	 */
+	public void add(Task task) {
+		TaskState state = task.getTaskState();
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(key(task) + "\t" + state + "\t" + task.getId() + "\t");
+		if (state.isFinished() && task.getOutputs() != null) sb.append(String.join(",", task.getOutputs()));
+		sb.append('\n');
+
+		synchronized (this) {
+			if (closed) return;
+			pending.add(sb.toString());
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Write all pending entries and close the file
+	 */
+	void close(boolean delete) {
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+
+		try {
+			join();
+			fos.close();
+		} catch (InterruptedException | IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		if (delete) new File(fileName).delete();
+	}
+
+	public long getCommits() {
+		return commits;
+	}
+
+	public long getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Did this task finish successfully in a previous run?
+	 * Note: Output files must also exist
+	 */
+	public boolean isFinished(Task task) {
+		String outputs[] = finished.get(key(task));
+		if (outputs == null) return false;
+
+		for (String out : outputs)
+			if (!out.isEmpty() && !Data.factory(out, task.getCurrentDir()).exists()) return false;
+
+		return true;
+	}
+
+	/**
+	 * Journal key for a task
+	 */
+	synchronized String key(Task task) {
+		String key = keyByTaskId.get(task.getId());
+		if (key != null) return key;
+
+		String keyBase = task.getBdsFileName() + ":" + task.getBdsLineNum() + ":" + Integer.toHexString(task.getProgramTxt().hashCode());
+		Integer count = keyCount.get(keyBase);
+		count = (count == null ? 1 : count + 1);
+		keyCount.put(keyBase, count);
+
+		key = keyBase + ":" + count;
+		keyByTaskId.put(task.getId(), key);
+		return key;
+	}
+
+	/**
+	 * Load entries from previous runs
+	 */
+	void load() {
+		if (!Gpr.exists(fileName)) return;
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8))) {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				String fields[] = line.split("\t", -1);
+				if (fields.length < 4) continue; // Incomplete line (e.g. program crashed while writing)
+
+				String key = fields[0];
+				if (fields[1].equals(TaskState.FINISHED.toString())) finished.put(key, fields[3].split(","));
+				else finished.remove(key);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading journal file '" + fileName + "'", e);
+		}
+
+		if (!finished.isEmpty()) Timer.showStdErr("Task journal '" + fileName + "': " + finished.size() + " tasks finished in previous runs will not be executed again");
+	}
+
+	void open() {
+		try {
+			fos = new FileOutputStream(fileName, true);
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening journal file '" + fileName + "'", e);
+		}
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			List<String> batch;
+			synchronized (this) {
+				while (pending.isEmpty() && !closed) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+
+				if (pending.isEmpty()) return; // Closed and nothing else to write
+				batch = pending;
+				pending = new ArrayList<>();
+			}
+
+			// Group commit: Write all entries at once
+			StringBuilder sb = new StringBuilder();
+			for (String entry : batch)
+				sb.append(entry);
+
+			try {
+				fos.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+				fos.getChannel().force(false);
+			} catch (IOException e) {
+				Timer.showStdErr("Error writing journal file '" + fileName + "': " + e.getMessage());
+			}
+
+			entries += batch.size();
+			commits++;
+		}
+	}
+
+}
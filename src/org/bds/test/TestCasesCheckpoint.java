@@ -4,7 +4,16 @@ import java.io.File;
 import java.util.List;
 
 import org.bds.Bds;
+import org.bds.Config;
+import org.bds.lang.ForLoop;
+import org.bds.run.AutoCheckpoint;
 import org.bds.run.BdsThread;
+import org.bds.scope.Scope;
+import org.bds.scope.ScopeSymbol;
+import org.bds.serialize.BdsSerializer;
+import org.bds.serialize.CheckpointWriter;
+import org.bds.serialize.SerializerInput;
+import org.bds.serialize.SerializerInputText;
 import org.bds.util.Gpr;
 import org.junit.Assert;
 import org.junit.Test;
@@ -274,4 +283,146 @@ public class TestCasesCheckpoint extends TestCasesBase {
 		}
 	}
 
+	@Test
+	public void test24_primitive_lists() {
+		Gpr.debug("Test");
+		runAndCheckpoint("test/checkpoint_24.bds", "test/checkpoint_24.chp", "ok", "true");
+	}
+
+	@Test
+	public void test25_checkpoint_text() {
+		Gpr.debug("Test");
+		String args[] = { "-chpText" };
+		BdsTest bdsTest = new BdsTest("test/checkpoint_25.bds", args, verbose, debug);
+		bdsTest.runAndCheckpoint("test/checkpoint_25.chp", "ok", "true", null);
+
+		// Checkpoint should be in text format
+		SerializerInput in = SerializerInput.open("test/checkpoint_25.chp");
+		Assert.assertTrue(in instanceof SerializerInputText);
+		in.close();
+	}
+
+	@Test
+	public void test26_checkpoint_segments() {
+		Gpr.debug("Test");
+		runAndCheckpoint("test/checkpoint_26.bds", "test/checkpoint_26.chp", "after", "3");
+
+		// Last segment should be used: Checkpoint from last iteration
+		BdsSerializer bdsSerializer = new BdsSerializer("test/checkpoint_26.chp", Config.get());
+		List<BdsThread> bdsThreads = bdsSerializer.load();
+		Assert.assertEquals(1, bdsThreads.size());
+		Assert.assertEquals("2", bdsThreads.get(0).getScope().getSymbol("i").getValue().toString());
+
+		// Three segments: Program nodes only in the first one, unchanged objects are referenced
+		int segments = 0, refs = 0, forLoops = 0, symbolsFirst = 0, symbolsOthers = 0;
+		SerializerInput in = SerializerInput.open("test/checkpoint_26.chp");
+		while (in.nextRecord()) {
+			String className = in.getClassName();
+			if (className.equals(Bds.class.getSimpleName())) segments++;
+			else if (className.equals(BdsSerializer.REFERENCE)) refs++;
+			else if (className.equals(ForLoop.class.getSimpleName())) forLoops++;
+			else if (className.equals(ScopeSymbol.class.getSimpleName())) {
+				if (segments == 1) symbolsFirst++;
+				else symbolsOthers++;
+			}
+		}
+		in.close();
+
+		Assert.assertEquals(3, segments);
+		Assert.assertEquals(1, forLoops);
+		Assert.assertTrue(refs > 0);
+		Assert.assertTrue(symbolsOthers < symbolsFirst);
+	}
+
+	@Test
+	public void test27_checkpoint_async() {
+		Gpr.debug("Test");
+		runAndCheckpoint("test/checkpoint_27.bds", "test/checkpoint_27.chp", "ok", "true");
+
+		// Pause time (snapshot) vs checkpoint size (the file is compressed and written in the background)
+		CheckpointWriter checkpointWriter = CheckpointWriter.get();
+		long size = checkpointWriter.getSize();
+		double pauseMs = checkpointWriter.getPauseTime() / 1000000.0;
+		double writeMs = checkpointWriter.getWriteTime() / 1000000.0;
+		Gpr.debug("Checkpoint size: " + size + " bytes, pause: " + pauseMs + " ms (" + (size / (1024.0 * pauseMs)) + " KB/ms), background write: " + writeMs + " ms");
+
+		Assert.assertTrue(size > 1024 * 1024);
+		Assert.assertTrue(pauseMs > 0);
+		Assert.assertTrue(writeMs > 0);
+	}
+
+	@Test
+	public void test28_checkpoint_auto() {
+		Gpr.debug("Test");
+		String chpFile = "test/checkpoint_28.bds.chp";
+		new File(chpFile).delete();
+
+		// Checkpoint every 30ms (there are no 'checkpoint' statements in the program)
+		String args[] = { "-chpInterval", "0.0005" };
+		BdsTest bdsTest = new BdsTest("test/checkpoint_28.bds", args, verbose, debug);
+		bdsTest.runAndCheckpoint(chpFile, "sum", "190", null);
+
+		AutoCheckpoint autoCheckpoint = bdsTest.bds.getBigDataScriptThread().getAutoCheckpoint();
+		Gpr.debug("Automatic checkpoints: " + autoCheckpoint.getCount() + ", total time: " + (autoCheckpoint.getTotalCost() / 1000000) + " ms");
+		Assert.assertTrue(autoCheckpoint.getCount() > 0);
+
+		// Checkpoint was created while running the loop
+		BdsSerializer bdsSerializer = new BdsSerializer(chpFile, Config.get());
+		List<BdsThread> bdsThreads = bdsSerializer.load();
+		ScopeSymbol ssym = bdsThreads.get(0).getScope().getSymbol("i");
+		Assert.assertTrue(ssym != null);
+		Assert.assertTrue(Integer.parseInt(ssym.getValue().toString()) > 0);
+	}
+
+	@Test
+	public void test29_checkpoint_natives() {
+		Gpr.debug("Test");
+		runAndCheckpoint("test/checkpoint_29.bds", "test/checkpoint_29.chp", "ok", "true");
+	}
+
+	@Test
+	public void test30_checkpoint_write_error() {
+		Gpr.debug("Test");
+		runAndCheckExit("test/checkpoint_30.bds", 1);
+	}
+
+	@Test
+	public void test31_checkpoint_segments_symbols() {
+		Gpr.debug("Test");
+		runAndCheckpoint("test/checkpoint_31.bds", "test/checkpoint_31.chp", "ok", "true");
+
+		// Last segment is restored (unchanged symbols are read from previous segments)
+		BdsSerializer bdsSerializer = new BdsSerializer("test/checkpoint_31.chp", Config.get());
+		List<BdsThread> bdsThreads = bdsSerializer.load();
+		Scope scope = bdsThreads.get(0).getScope();
+		Assert.assertEquals("10", scope.getSymbol("count").getValue().toString());
+		Assert.assertEquals(100000, ((List<?>) scope.getSymbol("big").getValue()).size());
+
+		// Ten segments, but the large list is only written once
+		int segments = 0, bigSymbols = 0;
+		SerializerInput in = SerializerInput.open("test/checkpoint_31.chp");
+		while (in.nextRecord()) {
+			String className = in.getClassName();
+			if (className.equals(Bds.class.getSimpleName())) segments++;
+			else if (className.equals(ScopeSymbol.class.getSimpleName()) && in.getNextField().equals("big")) bigSymbols++;
+		}
+		in.close();
+		Assert.assertEquals(10, segments);
+		Assert.assertEquals(1, bigSymbols);
+
+		// List changes every time: File is re-written instead of growing with each segment
+		String chpFile = "test/checkpoint_31_changes.chp";
+		segments = 0;
+		in = SerializerInput.open(chpFile);
+		while (in.nextRecord())
+			if (in.getClassName().equals(Bds.class.getSimpleName())) segments++;
+		in.close();
+		Assert.assertTrue(segments < 10);
+
+		bdsSerializer = new BdsSerializer(chpFile, Config.get());
+		bdsThreads = bdsSerializer.load();
+		Assert.assertEquals(100010, ((List<?>) bdsThreads.get(0).getScope().getSymbol("big").getValue()).size());
+		new File(chpFile).delete();
+	}
+
 }
@@ -356,4 +356,25 @@ public class TestCasesLang extends TestCasesBase {
 		compileErrors("test/test51.bds", errs);
 	}
 
+	@Test
+	public void test52() {
+		Gpr.debug("Test");
+		String errs = "ERROR [ file 'test/test52.bds', line 15 ] :	Cannot use function in parallel method 'pmap': Function 'setGlobal' assigns non-local variable 'g'";
+		compileErrors("test/test52.bds", errs);
+	}
+
+	@Test
+	public void test53() {
+		Gpr.debug("Test");
+		String errs = "ERROR [ file 'test/test53.bds', line 11 ] :	Cannot use function in parallel method 'pmap': Function 'addGlobal' modifies non-local variable 'g'";
+		compileErrors("test/test53.bds", errs);
+	}
+
+	@Test
+	public void test54() {
+		Gpr.debug("Test");
+		String errs = "ERROR [ file 'test/test54.bds', line 9 ] :	Cannot use function in parallel method 'pmap': Function 'inDir' changes the current directory ('chdir')";
+		compileErrors("test/test54.bds", errs);
+	}
+
 }
@@ -6,6 +6,20 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.bds.lang.BdsNode;
+import org.bds.lang.BdsNodeFactory;
+import org.bds.lang.Expression;
+import org.bds.lang.If;
+import org.bds.lang.Literal;
+import org.bds.lang.LiteralBool;
+import org.bds.lang.LiteralInt;
+import org.bds.lang.LiteralReal;
+import org.bds.lang.LiteralString;
+import org.bds.lang.NativeLibrary;
+import org.bds.lang.ProgramUnit;
+import org.bds.lang.VariableInit;
+import org.bds.lang.While;
+import org.bds.task.TaskJournal;
 import org.bds.util.Gpr;
 import org.junit.Test;
 
@@ -608,4 +622,379 @@ public class TestCasesRun2 extends TestCasesBase {
 		}
 	}
 
+	@Test
+	public void test145_parallel_map_filter() {
+		Gpr.debug("Test");
+
+		HashMap<String, Object> expectedValues = new HashMap<String, Object>();
+		expectedValues.put("mapOk", "true");
+		expectedValues.put("filterOk", "true");
+		expectedValues.put("pm", "2,4,6");
+		expectedValues.put("pl", "2,2");
+		expectedValues.put("dirOk", "true");
+		expectedValues.put("pdir", "tmp_run_145_dir");
+
+		runAndCheck("test/run_145.bds", expectedValues);
+	}
+
+	@Test
+	public void test146_interpolate_template() {
+		Gpr.debug("Test");
+
+		HashMap<String, Object> expectedValues = new HashMap<String, Object>();
+		expectedValues.put("s1", "Hello world, n=3");
+		expectedValues.put("s2", "l[1]=b, m{k}=v, l=[a, b, c]");
+		expectedValues.put("s3", "Escaped $name, tab:\tworld");
+		expectedValues.put("str", "0:world;1:world;2:world;");
+		expectedValues.put("cmd", "world 3 c");
+
+		runAndCheck("test/run_146.bds", expectedValues);
+	}
+
+	@Test
+	public void test147_lazy_lists() {
+		Gpr.debug("Test");
+
+		HashMap<String, Object> expectedValues = new HashMap<String, Object>();
+		expectedValues.put("sum", "500000500000");
+		expectedValues.put("r0", "5");
+		expectedValues.put("rs", "0,5,10,99");
+		expectedValues.put("lines", "<x><><y><z>");
+		expectedValues.put("numLines", "4");
+		expectedValues.put("numStrLines", "3");
+		expectedValues.put("iters", "20000");
+		expectedValues.put("numLinesAppend", "40000");
+
+		runAndCheck("test/run_147.bds", expectedValues);
+	}
+
+	@Test
+	public void test148_primitive_lists() {
+		Gpr.debug("Test");
+
+		HashMap<String, Object> expectedValues = new HashMap<String, Object>();
+		expectedValues.put("li", "[5, 4, 3, 2, 1, 0, 0, 8]");
+		expectedValues.put("lis", "[0, 0, 1, 2, 3, 4, 5, 8]");
+		expectedValues.put("lit", "[4, 3, 2, 1, 0, 0, 8]");
+		expectedValues.put("has3", "true");
+		expectedValues.put("idx3", "2");
+		expectedValues.put("lrs", "[1.5, 2.0, 3.5]");
+		expectedValues.put("lbs", "[false, true, true]");
+		expectedValues.put("lim", "[10, 8, 6, 4, 2, 0, 0, 16]");
+		expectedValues.put("lic", "[5, 4, 3, 2, 1, 0, 0, 8, 100, 200]");
+		expectedValues.put("ls", "[1, 2, 3, 1, 2, 3]");
+
+		runAndCheck("test/run_148.bds", expectedValues);
+	}
+
+	@Test
+	public void test149_persistent_lists() {
+		Gpr.debug("Test");
+
+		HashMap<String, Object> expectedValues = new HashMap<String, Object>();
+		expectedValues.put("len", "100");
+		expectedValues.put("last", "s99");
+		expectedValues.put("ltFirst", "s1");
+		expectedValues.put("ltLen", "99");
+		expectedValues.put("lsFirst", "s0");
+		expectedValues.put("lsLen", "100");
+		expectedValues.put("lcFirst", "changed");
+		expectedValues.put("lcLen", "101");
+		expectedValues.put("popped", "d");
+		expectedValues.put("lp", "[b, c, , , e]");
+		expectedValues.put("lqFirst", "s90");
+		expectedValues.put("lqLen", "11");
+		expectedValues.put("lqLast", "end");
+
+		runAndCheck("test/run_149.bds", expectedValues);
+	}
+
+	@Test
+	public void test150_list_index() {
+		Gpr.debug("Test");
+
+		HashMap<String, Object> expectedValues = new HashMap<String, Object>();
+		expectedValues.put("len", "300");
+		expectedValues.put("idx", "123");
+		expectedValues.put("idxOld", "-1");
+		expectedValues.put("idxNew", "123");
+		expectedValues.put("idxAdd", "300");
+		expectedValues.put("idxInt", "42");
+		expectedValues.put("hasInt", "false");
+		expectedValues.put("pidxOk", "true");
+		expectedValues.put("pidx", "200");
+
+		runAndCheck("test/run_150.bds", expectedValues);
+	}
+
+	@Test
+	public void test151_append() {
+		Gpr.debug("Test");
+
+		HashMap<String, Object> expectedValues = new HashMap<String, Object>();
+		expectedValues.put("len", "1001");
+		expectedValues.put("first", "line 0");
+		expectedValues.put("last", "last");
+		expectedValues.put("sysLines", "1000");
+		expectedValues.put("closed", "true");
+		expectedValues.put("closedAgain", "false");
+		expectedValues.put("len2", "1002");
+		expectedValues.put("lenRm", "1");
+
+		runAndCheck("test/run_151.bds", expectedValues);
+
+		// Lines appended by 'pmap' workers are written when the program finishes
+		String pmapFile = "tmp_run_151_pmap.txt";
+		Assert.assertEquals(100, Gpr.readFile(pmapFile).split("\n").length);
+		new File(pmapFile).delete();
+	}
+
+	@Test
+	public void test152_read_mapped() {
+		Gpr.debug("Test");
+
+		HashMap<String, Object> expectedValues = new HashMap<String, Object>();
+		expectedValues.put("len", "2288895");
+		expectedValues.put("numLines", "200000");
+		expectedValues.put("last", "line 200000");
+
+		runAndCheck("test/run_152.bds", expectedValues);
+	}
+
+	@Test
+	public void test153_map_sorted_keys() {
+		Gpr.debug("Test");
+
+		HashMap<String, Object> expectedValues = new HashMap<String, Object>();
+		expectedValues.put("first", "k0");
+		expectedValues.put("len", "100");
+		expectedValues.put("first2", "a");
+		expectedValues.put("second2", "k1");
+		expectedValues.put("len2", "100");
+		expectedValues.put("len3", "100");
+		expectedValues.put("firstCopy", "0");
+		expectedValues.put("firstOri", "a");
+		expectedValues.put("sum", "485300");
+
+		runAndCheck("test/run_153.bds", expectedValues);
+	}
+
+	@Test
+	public void test154_constant_folding() {
+		Gpr.debug("Test");
+
+		HashMap<String, Object> expectedValues = new HashMap<String, Object>();
+		expectedValues.put("giga", "" + (2L * 1024 * 1024 * 1024));
+		expectedValues.put("mixed", "13");
+		expectedValues.put("half", "0.5");
+		expectedValues.put("cmp", "true");
+		expectedValues.put("str", "prefix_suffix");
+		expectedValues.put("bits", "23");
+		expectedValues.put("ifTrue", "1");
+		expectedValues.put("ifFalse", "2");
+		expectedValues.put("whileFalse", "0");
+		expectedValues.put("notFolded", "15");
+		expectedValues.put("localK", "6");
+
+		runAndCheck("test/run_154.bds", expectedValues);
+
+		// Check that expressions are replaced by literals having the original ID and line number
+		BdsTest bdsTest = new BdsTest("test/run_154.bds", verbose, debug);
+		Assert.assertTrue(bdsTest.compile());
+		ProgramUnit pu = bdsTest.bds.getProgramUnit();
+
+		HashMap<String, VariableInit> varInits = new HashMap<String, VariableInit>();
+		for (BdsNode node : pu.findNodes(VariableInit.class, true)) {
+			VariableInit vi = (VariableInit) node;
+			varInits.put(vi.getVarName(), vi);
+		}
+
+		String names[] = { "giga", "mixed", "half", "cmp", "str", "bits", "ifTrue" };
+		Class<?> literalClasses[] = { LiteralInt.class, LiteralInt.class, LiteralReal.class, LiteralBool.class, LiteralString.class, LiteralInt.class };
+		for (int i = 0; i < literalClasses.length; i++) {
+			VariableInit vi = varInits.get(names[i]);
+			Expression expr = vi.getExpression();
+			Assert.assertEquals("Variable '" + names[i] + "'", literalClasses[i], expr.getClass());
+			Assert.assertEquals("Variable '" + names[i] + "'", 4 + i, expr.getLineNum());
+
+			// Original ID: Assigned while parsing the same statement (i.e. before parsing the next one)
+			int nextId = varInits.get(names[i + 1]).getId();
+			Assert.assertTrue("Variable '" + names[i] + "', ID " + expr.getId(), vi.getId() < expr.getId() && expr.getId() < nextId);
+			Assert.assertSame(expr, BdsNodeFactory.get().getNode(expr.getId()));
+		}
+		Assert.assertEquals(2L * 1024 * 1024 * 1024, ((LiteralInt) varInits.get("giga").getExpression()).getValue());
+		Assert.assertFalse(varInits.get("notFolded").getExpression() instanceof Literal);
+
+		// Dead branches are removed
+		List<BdsNode> ifs = pu.findNodes(If.class, true);
+		Assert.assertEquals(2, ifs.size());
+		for (BdsNode node : ifs) {
+			If ifNode = (If) node;
+			Assert.assertTrue(ifNode.getCondition() instanceof LiteralBool);
+			if (((LiteralBool) ifNode.getCondition()).isValue()) {
+				Assert.assertNotNull(ifNode.getStatement());
+				Assert.assertNull(ifNode.getElseStatement());
+			} else {
+				Assert.assertEquals(17, ifNode.getCondition().getLineNum());
+				Assert.assertNull(ifNode.getStatement());
+				Assert.assertNotNull(ifNode.getElseStatement());
+			}
+		}
+
+		List<BdsNode> whiles = pu.findNodes(While.class, true);
+		Assert.assertEquals(1, whiles.size());
+		While whileNode = (While) whiles.get(0);
+		Assert.assertTrue(whileNode.getCondition() instanceof LiteralBool);
+		Assert.assertNull(whileNode.getStatement());
+	}
+
+	@Test
+	public void test155_profiler() {
+		Gpr.debug("Test");
+
+		String args[] = { "-profile" };
+		runAndCheck("test/run_155.bds", args, "f", "6765");
+
+		// Check profiler output files
+		String collapsedFile = "test/run_155.bds.profile.collapsed";
+		String tableFile = "test/run_155.bds.profile.txt";
+		String collapsed = Gpr.readFile(collapsedFile);
+		String table = Gpr.readFile(tableFile);
+		if (verbose) System.err.println("Collapsed stacks:\n" + collapsed + "\nTable:\n" + table);
+		new File(collapsedFile).delete();
+		new File(tableFile).delete();
+
+		Assert.assertTrue("Missing 'sys' samples in collapsed stacks", collapsed.contains("sleepSys (run_155.bds:14);run_155.bds:10;[sys] "));
+		Assert.assertTrue("Missing function 'sleepSys' in table", table.contains("\tsleepSys\n"));
+	}
+
+	@Test
+	public void test156_task_journal() {
+		Gpr.debug("Test");
+
+		String journalFile = "test/run_156.bds" + TaskJournal.JOURNAL_EXT;
+		new File(journalFile).delete();
+		String args[] = { "-journal" };
+
+		// First run fails after some tasks finished: Journal is kept
+		String argsFail[] = { "-fail" };
+		BdsTest bdsTest = new BdsTest("test/run_156.bds", args, argsFail, verbose, debug);
+		bdsTest.run();
+		bdsTest.checkExitCode(1);
+		Assert.assertTrue("Journal file should exist after a failed run", new File(journalFile).exists());
+
+		// Second run: Tasks from the first run are not executed again (only 'task_final' is)
+		runAndCheck("test/run_156.bds", args, "execs", "4");
+		Assert.assertFalse("Journal file should be deleted after a successful run", new File(journalFile).exists());
+	}
+
+	@Test
+	public void test157_program_cache() {
+		Gpr.debug("Test");
+
+		String cacheDir = "tmp_run_157_cache";
+		String includeFile = "test/tmp_run_157_include.bds";
+		String args[] = { "-programCache", cacheDir };
+		Gpr.toFile(includeFile, "int incValue() { return 1 }\n");
+
+		// Cold run: Program is compiled and saved to cache
+		BdsTest bdsTest = new BdsTest("test/run_157.bds", args, verbose, debug);
+		long start = System.nanoTime();
+		Assert.assertTrue(bdsTest.compile());
+		double coldMs = (System.nanoTime() - start) / 1000000.0;
+		Assert.assertFalse(bdsTest.bds.getProgramCache().isHit());
+
+		// Warm run: Program is loaded from cache
+		bdsTest = new BdsTest("test/run_157.bds", args, verbose, debug);
+		start = System.nanoTime();
+		Assert.assertTrue(bdsTest.compile());
+		double warmMs = (System.nanoTime() - start) / 1000000.0;
+		Assert.assertTrue(bdsTest.bds.getProgramCache().isHit());
+		Gpr.debug("Compile time, cold: " + coldMs + " ms, warm (cached): " + warmMs + " ms");
+
+		// Cached program runs as the compiled one
+		HashMap<String, Object> expectedValues = new HashMap<String, Object>();
+		expectedValues.put("f", "55");
+		expectedValues.put("len", "5");
+		expectedValues.put("inc", "1");
+		expectedValues.put("pm", "[2, 3, 4]");
+		expectedValues.put("ppm", "[2, 3, 4]");
+		bdsTest = new BdsTest("test/run_157.bds", args, verbose, debug);
+		bdsTest.run();
+		bdsTest.checkRunOk();
+		bdsTest.checkVariables(expectedValues);
+		Assert.assertTrue(bdsTest.bds.getProgramCache().isHit());
+
+		// Included file changed: Cache entry is not used
+		Gpr.toFile(includeFile, "int incValue() { return 2 }\n");
+		bdsTest = new BdsTest("test/run_157.bds", args, verbose, debug);
+		bdsTest.runAndCheck("inc", "2");
+		Assert.assertFalse(bdsTest.bds.getProgramCache().isHit());
+
+		new File(includeFile).delete();
+		for (File f : new File(cacheDir).listFiles())
+			f.delete();
+		new File(cacheDir).delete();
+	}
+
+	@Test
+	public void test158_include_parallel() {
+		Gpr.debug("Test");
+
+		HashMap<String, Object> expectedValues = new HashMap<String, Object>();
+		expectedValues.put("order", "cab");
+		expectedValues.put("sum", "111");
+
+		// Parsing order changes from run to run, the program must not
+		for (int i = 0; i < 10; i++)
+			runAndCheck("test/run_158.bds", expectedValues);
+	}
+
+	@Test
+	public void test159_native_lazy() {
+		Gpr.debug("Test");
+
+		HashMap<String, Object> expectedValues = new HashMap<String, Object>();
+		expectedValues.put("r", "[1, 2, 3]");
+		expectedValues.put("len", "5");
+		expectedValues.put("sz", "3");
+		runAndCheck("test/run_159.bds", expectedValues);
+
+		// Only natives used by the program were created: 'range' (three functions), 'length' and 'size'
+		NativeLibrary nativeLibrary = NativeLibrary.get();
+		int created = nativeLibrary.countCreated();
+		Gpr.debug("Natives created: " + created + " / " + nativeLibrary.size());
+		Assert.assertEquals(5, created);
+
+		// Create all natives: Names in native tables must match native's names
+		nativeLibrary.createAll();
+		Assert.assertEquals(nativeLibrary.size(), nativeLibrary.countCreated());
+	}
+
+	@Test
+	public void test160_parallel_fatal_error() {
+		Gpr.debug("Test");
+		BdsTest bdsTest = new BdsTest("test/run_160.bds", verbose, debug);
+		bdsTest.run();
+		bdsTest.checkExitCode(1);
+
+		// Only one error message and one checkpoint, even if all workers fail
+		String stderr = bdsTest.captureStderr.toString();
+		Assert.assertEquals(1, stderr.split("Fatal error:", -1).length - 1);
+		Assert.assertEquals(1, stderr.split("Creating checkpoint file", -1).length - 1);
+		Assert.assertTrue(stderr.contains("line 7"));
+		new File("test/run_160.bds.line_10.chp").delete();
+	}
+
+	@Test
+	public void test161_include_syntax_error() {
+		Gpr.debug("Test");
+		BdsTest bdsTest = new BdsTest("test/run_161.bds", verbose, debug);
+		Assert.assertFalse(bdsTest.compile());
+
+		// Syntax errors are printed only once
+		String stderr = bdsTest.captureStderr.toString();
+		Assert.assertEquals(stderr, 1, stderr.split("line 2:9 ", -1).length - 1);
+	}
+
 }
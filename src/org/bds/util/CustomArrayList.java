@@ -0,0 +1,439 @@
+package org.bds.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Base class for lists that use their own storage.
+ *
+ * Note: It extends ArrayList because lists are ArrayLists everywhere in
+ * bds, but the ArrayList's own storage is never used. Sub-classes only
+ * need to implement 'size', 'get', 'set', 'add', 'add(index)', 'remove(index)'
+ * and 'clear'; all other methods are implemented on top of those.
+ *
+ * Large lists that are searched repeatedly (e.g. 'if( !seen.has(x) )' in
+ * a loop) build a hash index (element to first position), so that
+ * 'indexOf' and 'contains' are O(1). The index is kept up to date when
+ * elements are appended and dropped on any other change.
+ *
+ * The index is not thread safe: It is only built and used by the thread
+ * that created the list. Other threads (e.g. parallel function workers
+ * reading a global list) use a linear scan.
+ *
+ * @author pcingola
+ */
+public abstract class CustomArrayList<T> extends ArrayList<T> {
+
+	private static final long serialVersionUID = -3365300306151853727L;
+
+	public static final int INDEX_MIN_SIZE = 32; // Smaller lists are always scanned
+	public static final int INDEX_MIN_SCANS = 4; // Linear scans before building an index
+
+	private transient HashMap<Object, Integer> index; // Element => first position (null if there is no index)
+	private transient int indexModCount; // 'modCount' when the index was last updated
+	private transient int indexScans; // Linear scans since the index was dropped
+	private transient final Thread indexOwner = Thread.currentThread(); // Only this thread builds and uses the index
+
+	/**
+	 * Iterator (and list iterator) on elements
+	 */
+	class Itr implements ListIterator<T> {
+
+		int cursor, lastRet = -1, expectedModCount = modCount;
+
+		Itr(int index) {
+			cursor = index;
+		}
+
+		@Override
+		public void add(T e) {
+			checkModCount();
+			CustomArrayList.this.add(cursor++, e);
+			lastRet = -1;
+			expectedModCount = modCount;
+		}
+
+		void checkModCount() {
+			if (modCount != expectedModCount) throw new ConcurrentModificationException();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return cursor < size();
+		}
+
+		@Override
+		public boolean hasPrevious() {
+			return cursor > 0;
+		}
+
+		@Override
+		public T next() {
+			checkModCount();
+			if (cursor >= size()) throw new NoSuchElementException();
+			lastRet = cursor++;
+			return get(lastRet);
+		}
+
+		@Override
+		public int nextIndex() {
+			return cursor;
+		}
+
+		@Override
+		public T previous() {
+			checkModCount();
+			if (cursor <= 0) throw new NoSuchElementException();
+			lastRet = --cursor;
+			return get(lastRet);
+		}
+
+		@Override
+		public int previousIndex() {
+			return cursor - 1;
+		}
+
+		@Override
+		public void remove() {
+			if (lastRet < 0) throw new IllegalStateException();
+			checkModCount();
+			CustomArrayList.this.remove(lastRet);
+			cursor = lastRet;
+			lastRet = -1;
+			expectedModCount = modCount;
+		}
+
+		@Override
+		public void set(T e) {
+			if (lastRet < 0) throw new IllegalStateException();
+			checkModCount();
+			CustomArrayList.this.set(lastRet, e);
+		}
+	}
+
+	public CustomArrayList() {
+		super(0);
+	}
+
+	@Override
+	public abstract boolean add(T e);
+
+	@Override
+	public abstract void add(int index, T element);
+
+	@Override
+	public boolean addAll(Collection<? extends T> c) {
+		if (c == this) c = new ArrayList<T>(this); // Appending to itself
+		for (T e : c)
+			add(e);
+		return !c.isEmpty();
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends T> c) {
+		checkIndexAdd(index);
+		if (c == this) c = new ArrayList<T>(this); // Inserting itself
+		for (T e : c)
+			add(index++, e);
+		return !c.isEmpty();
+	}
+
+	void checkIndex(int index) {
+		if (index < 0 || index >= size()) throw outOfBounds(index);
+	}
+
+	void checkIndexAdd(int index) {
+		if (index < 0 || index > size()) throw outOfBounds(index);
+	}
+
+	@Override
+	public abstract void clear();
+
+	@Override
+	public abstract Object clone();
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	@Override
+	public void ensureCapacity(int minCapacity) {
+		// Nothing to do
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) return true;
+		if (!(o instanceof List)) return false;
+
+		List<?> list = (List<?>) o;
+		if (list.size() != size()) return false;
+
+		Iterator<T> it = iterator();
+		for (Object e : list)
+			if (!eq(it.next(), e)) return false;
+		return true;
+	}
+
+	static boolean eq(Object o1, Object o2) {
+		return o1 == null ? o2 == null : o1.equals(o2);
+	}
+
+	@Override
+	public void forEach(Consumer<? super T> action) {
+		for (T e : this)
+			action.accept(e);
+	}
+
+	@Override
+	public abstract T get(int index);
+
+	@Override
+	public int hashCode() {
+		int hashCode = 1;
+		for (T e : this)
+			hashCode = 31 * hashCode + (e == null ? 0 : e.hashCode());
+		return hashCode;
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		HashMap<Object, Integer> index = index();
+		if (index != null) {
+			Integer idx = index.get(o);
+			return idx != null ? idx : -1;
+		}
+		return indexOfScan(o);
+	}
+
+	/**
+	 * Get a valid index or null if there is no index (it is
+	 * built if the list is large and has been scanned repeatedly)
+	 */
+	HashMap<Object, Integer> index() {
+		if (Thread.currentThread() != indexOwner) return null; // Do not read or write the index from other threads
+
+		if (index != null) {
+			if (indexModCount == modCount) return index;
+			index = null; // List changed: Index is no longer valid
+			indexScans = 0;
+		}
+
+		int size = size();
+		if (size < INDEX_MIN_SIZE || ++indexScans < INDEX_MIN_SCANS) return null;
+
+		// Build index
+		HashMap<Object, Integer> idx = new HashMap<Object, Integer>(2 * size);
+		int i = 0;
+		for (T e : this)
+			idx.putIfAbsent(e, i++);
+
+		indexModCount = modCount;
+		index = idx;
+		return idx;
+	}
+
+	/**
+	 * An element was appended: Update the index (if it was valid)
+	 * Sub-classes call this method after updating 'modCount'
+	 */
+	protected void indexAppended(T e) {
+		if (index == null || Thread.currentThread() != indexOwner) return; // Note: 'modCount' changed, so the owner drops the index
+		if (indexModCount + 1 == modCount) {
+			index.putIfAbsent(e, size() - 1);
+			indexModCount = modCount;
+		} else index = null;
+	}
+
+	/**
+	 * Drop the index (sub-classes call this method when
+	 * elements change without updating 'modCount')
+	 */
+	protected void indexInvalidate() {
+		index = null;
+		indexScans = 0;
+	}
+
+	/**
+	 * Find an element using a linear scan
+	 */
+	protected int indexOfScan(Object o) {
+		int i = 0;
+		for (T e : this) {
+			if (eq(e, o)) return i;
+			i++;
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return new Itr(0);
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		for (int i = size() - 1; i >= 0; i--)
+			if (eq(get(i), o)) return i;
+		return -1;
+	}
+
+	@Override
+	public ListIterator<T> listIterator() {
+		return new Itr(0);
+	}
+
+	@Override
+	public ListIterator<T> listIterator(int index) {
+		checkIndexAdd(index);
+		return new Itr(index);
+	}
+
+	IndexOutOfBoundsException outOfBounds(int index) {
+		return new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+	}
+
+	@Override
+	public abstract T remove(int index);
+
+	@Override
+	public boolean remove(Object o) {
+		int idx = indexOf(o);
+		if (idx < 0) return false;
+		remove(idx);
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		return removeAll(c, true);
+	}
+
+	/**
+	 * Remove all elements contained (or not contained) in 'c'
+	 */
+	boolean removeAll(Collection<?> c, boolean contained) {
+		ArrayList<T> keep = new ArrayList<T>();
+		for (T e : this)
+			if (c.contains(e) != contained) keep.add(e);
+		return replaceWith(keep);
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super T> filter) {
+		ArrayList<T> keep = new ArrayList<T>();
+		for (T e : this)
+			if (!filter.test(e)) keep.add(e);
+		return replaceWith(keep);
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		for (int i = fromIndex; i < toIndex; i++)
+			remove(fromIndex);
+	}
+
+	@Override
+	public void replaceAll(UnaryOperator<T> operator) {
+		for (ListIterator<T> it = listIterator(); it.hasNext();)
+			it.set(operator.apply(it.next()));
+	}
+
+	/**
+	 * Replace all elements by 'elements' (if the size changed)
+	 * @return true if the list changed
+	 */
+	boolean replaceWith(List<T> elements) {
+		if (elements.size() == size()) return false;
+		clear();
+		addAll(elements);
+		return true;
+	}
+
+	@Override
+	public abstract T set(int index, T element);
+
+	@Override
+	public abstract int size();
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void sort(Comparator<? super T> c) {
+		T elements[] = (T[]) toArray();
+		Arrays.sort(elements, (Comparator<Object>) c);
+		for (int i = 0; i < elements.length; i++)
+			set(i, elements[i]);
+		modCount++;
+	}
+
+	@Override
+	public Spliterator<T> spliterator() {
+		return Spliterators.spliterator(this, Spliterator.ORDERED);
+	}
+
+	/**
+	 * Note: Unlike ArrayList, this returns a read-only copy (not a view),
+	 * so that writing to it fails instead of silently not changing this list
+	 */
+	@Override
+	public List<T> subList(int fromIndex, int toIndex) {
+		if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size());
+		ArrayList<T> list = new ArrayList<T>(toIndex - fromIndex);
+		for (int i = fromIndex; i < toIndex; i++)
+			list.add(get(i));
+		return Collections.unmodifiableList(list);
+	}
+
+	@Override
+	public Object[] toArray() {
+		Object elements[] = new Object[size()];
+		int i = 0;
+		for (T e : this)
+			elements[i++] = e;
+		return elements;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <E> E[] toArray(E[] a) {
+		int size = size();
+		if (a.length < size) a = (E[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
+		int i = 0;
+		for (T e : this)
+			a[i++] = (E) e;
+		if (a.length > size) a[size] = null;
+		return a;
+	}
+
+	@Override
+	public void trimToSize() {
+		// Nothing to do
+	}
+
+	/**
+	 * Serialize as a plain ArrayList
+	 */
+	protected Object writeReplace() {
+		return new ArrayList<T>(this);
+	}
+}
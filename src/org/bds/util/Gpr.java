@@ -22,6 +22,11 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.net.JarURLConnection;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.sql.Date;
 import java.text.CharacterIterator;
 import java.text.SimpleDateFormat;
@@ -108,6 +113,11 @@ public class Gpr {
 	// User's home directory
 	public static final String HOME = System.getProperty("user.home");
 
+	// Reading files using memory mapped buffers
+	public static final int MAP_MIN_SIZE = 1024 * 1024; // Smaller files are not mapped
+	public static final int MAP_CHUNK_SIZE = 256 * 1024 * 1024; // Large files are mapped in chunks of this size
+	public static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8; // Largest array (or string) the JVM can allocate
+
 	/**
 	 * Return file's name (without the path)
 	 * @param file
@@ -613,6 +623,49 @@ public class Gpr {
 		return strb.toString();
 	}
 
+	/**
+	 * Read a file as a String using a memory mapped file.
+	 *
+	 * The mapped file is copied into a single byte array that is decoded
+	 * into the string, so the peak memory is about the file's size plus the
+	 * string (using a reader and a StringBuffer it is about three times that).
+	 * Large files are mapped in chunks of MAP_CHUNK_SIZE bytes.
+	 *
+	 * Note: Compressed files and files that do not exist are read using 'readFile()'
+	 *
+	 * @param fileName : File to read
+	 * @param showExceptions : show exceptions if true (otherwise return an empty string on error)
+	 */
+	public static String readFileMapped(String fileName, boolean showExceptions) {
+		File file = new File(fileName);
+		if (fileName.endsWith(".gz") || !file.isFile()) return readFile(fileName, showExceptions);
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > MAX_ARRAY_SIZE) throw new RuntimeException("File '" + fileName + "' is too large to be read into a string (" + size + " bytes)");
+
+			byte bytes[] = new byte[(int) size];
+			if (size < MAP_MIN_SIZE) {
+				// Small file: Mapping is not worth it
+				ByteBuffer buffer = ByteBuffer.wrap(bytes);
+				while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+					// Keep reading
+				}
+			} else {
+				// Map file in chunks
+				for (long pos = 0; pos < size; pos += MAP_CHUNK_SIZE) {
+					int len = (int) Math.min(MAP_CHUNK_SIZE, size - pos);
+					channel.map(MapMode.READ_ONLY, pos, len).get(bytes, (int) pos, len);
+				}
+			}
+
+			return new String(bytes, Charset.defaultCharset());
+		} catch (IOException e) {
+			if (showExceptions) throw new RuntimeException(e);
+			return "";
+		}
+	}
+
 	/**
 	 * Read an object from a file (supposing an object was previously serialized to that file)
 	 * @param fileName
@@ -0,0 +1,253 @@
+package org.bds.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A read-only list whose elements are generated on demand (e.g. a
+ * range of numbers or the lines in a file).
+ *
+ * Iterating the list does not create the elements in memory. The list is
+ * 'materialized' (i.e. all elements are added to the underlying ArrayList)
+ * transparently the first time it is mutated, randomly accessed or serialized.
+ *
+ * Note: It extends ArrayList because lists are ArrayLists everywhere in bds.
+ *
+ * @author pcingola
+ */
+public abstract class LazyList<T> extends ArrayList<T> {
+
+	private static final long serialVersionUID = 6330128839926931845L;
+
+	private volatile boolean materialized;
+
+	public LazyList() {
+		super(0);
+	}
+
+	@Override
+	public boolean add(T e) {
+		materialize();
+		return super.add(e);
+	}
+
+	@Override
+	public void add(int index, T element) {
+		materialize();
+		super.add(index, element);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends T> c) {
+		materialize();
+		return super.addAll(c);
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends T> c) {
+		materialize();
+		return super.addAll(index, c);
+	}
+
+	@Override
+	public void clear() {
+		materialize();
+		super.clear();
+	}
+
+	@Override
+	public Object clone() {
+		materialize();
+		return super.clone();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		materialize();
+		return super.contains(o);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		materialize();
+		return super.equals(o);
+	}
+
+	@Override
+	public void forEach(Consumer<? super T> action) {
+		if (materialized) super.forEach(action);
+		else for (Iterator<T> it = iteratorLazy(); it.hasNext();)
+			action.accept(it.next());
+	}
+
+	@Override
+	public T get(int index) {
+		materialize();
+		return super.get(index);
+	}
+
+	@Override
+	public int hashCode() {
+		materialize();
+		return super.hashCode();
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		materialize();
+		return super.indexOf(o);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		materialize();
+		return super.isEmpty();
+	}
+
+	public boolean isMaterialized() {
+		return materialized;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		if (materialized) return super.iterator();
+		return iteratorLazy();
+	}
+
+	/**
+	 * Iterate over all elements without materializing the list
+	 * Note: The iterator is read-only and it may implement Closeable
+	 */
+	public abstract Iterator<T> iteratorLazy();
+
+	@Override
+	public int lastIndexOf(Object o) {
+		materialize();
+		return super.lastIndexOf(o);
+	}
+
+	@Override
+	public ListIterator<T> listIterator() {
+		materialize();
+		return super.listIterator();
+	}
+
+	@Override
+	public ListIterator<T> listIterator(int index) {
+		materialize();
+		return super.listIterator(index);
+	}
+
+	/**
+	 * Add all elements to the underlying ArrayList
+	 */
+	public synchronized void materialize() {
+		if (materialized) return;
+
+		ArrayList<T> elements = new ArrayList<T>();
+		for (Iterator<T> it = iteratorLazy(); it.hasNext();)
+			elements.add(it.next());
+
+		super.addAll(elements);
+		materialized = true;
+	}
+
+	@Override
+	public T remove(int index) {
+		materialize();
+		return super.remove(index);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		materialize();
+		return super.remove(o);
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		materialize();
+		return super.removeAll(c);
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super T> filter) {
+		materialize();
+		return super.removeIf(filter);
+	}
+
+	@Override
+	public void replaceAll(UnaryOperator<T> operator) {
+		materialize();
+		super.replaceAll(operator);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		materialize();
+		return super.retainAll(c);
+	}
+
+	@Override
+	public T set(int index, T element) {
+		materialize();
+		return super.set(index, element);
+	}
+
+	@Override
+	public int size() {
+		materialize();
+		return super.size();
+	}
+
+	@Override
+	public void sort(Comparator<? super T> c) {
+		materialize();
+		super.sort(c);
+	}
+
+	@Override
+	public Spliterator<T> spliterator() {
+		materialize();
+		return super.spliterator();
+	}
+
+	@Override
+	public List<T> subList(int fromIndex, int toIndex) {
+		materialize();
+		return super.subList(fromIndex, toIndex);
+	}
+
+	@Override
+	public Object[] toArray() {
+		materialize();
+		return super.toArray();
+	}
+
+	@Override
+	public <E> E[] toArray(E[] a) {
+		materialize();
+		return super.toArray(a);
+	}
+
+	@Override
+	public void trimToSize() {
+		materialize();
+		super.trimToSize();
+	}
+
+	/**
+	 * Serialize as a plain ArrayList
+	 */
+	protected Object writeReplace() {
+		return new ArrayList<T>(this);
+	}
+}
@@ -0,0 +1,239 @@
+package org.bds.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lines in a file (or in a string), read on demand.
+ *
+ * Lines are split exactly as 'str.split("\n")' would, i.e. only '\n' is
+ * a line separator, trailing empty lines are dropped and an empty
+ * file has a single empty line.
+ *
+ * Only the first 'fileLength' bytes (the file's size when the list is
+ * created) are read, as if the whole file had been read at that point.
+ * Otherwise, a loop appending to the file it iterates would never end.
+ *
+ * @author pcingola
+ */
+public class LazyListLines extends LazyList<String> {
+
+	private static final long serialVersionUID = -4323051002617856713L;
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Read at most 'limit' bytes from a stream
+	 */
+	static class BoundedInputStream extends FilterInputStream {
+
+		long remaining;
+
+		BoundedInputStream(InputStream in, long limit) {
+			super(in);
+			remaining = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) return -1;
+			int c = super.read();
+			if (c >= 0) remaining--;
+			return c;
+		}
+
+		@Override
+		public int read(byte b[], int off, int len) throws IOException {
+			if (remaining <= 0) return -1;
+			int count = super.read(b, off, (int) Math.min(len, remaining));
+			if (count > 0) remaining -= count;
+			return count;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long count = super.skip(Math.min(n, remaining));
+			remaining -= count;
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(super.available(), remaining);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+
+	/**
+	 * Read-only iterator on lines. The reader is closed when the
+	 * last line is read (or when 'close()' is invoked)
+	 */
+	class LinesIterator implements Iterator<String>, Closeable {
+
+		BufferedReader reader;
+		char buffer[] = new char[BUFFER_SIZE];
+		int bufPos, bufLen;
+		boolean eof;
+		long countChars;
+		int pendingEmpty; // Number of empty lines before 'pendingLine'
+		String pendingLine, next;
+
+		LinesIterator() {
+			reader = open();
+			eof = (reader == null);
+			advance();
+		}
+
+		/**
+		 * Find next line
+		 */
+		void advance() {
+			if (pendingEmpty > 0) {
+				pendingEmpty--;
+				next = "";
+				return;
+			}
+
+			if (pendingLine != null) {
+				next = pendingLine;
+				pendingLine = null;
+				return;
+			}
+
+			// Empty lines are only returned if followed by a non-empty line
+			int countEmpty = 0;
+			while (!eof) {
+				String line = readLine();
+				if (!line.isEmpty()) {
+					pendingEmpty = countEmpty;
+					pendingLine = line;
+					advance();
+					return;
+				}
+				countEmpty++;
+			}
+
+			// Empty file: A single empty line
+			if (countChars == 0 && next == null && countEmpty > 0) next = "";
+			else next = null;
+			close();
+		}
+
+		@Override
+		public void close() {
+			eof = true;
+			try {
+				if (reader != null) reader.close();
+			} catch (IOException e) {
+				// Nothing to do
+			}
+			reader = null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public String next() {
+			if (next == null) throw new NoSuchElementException();
+			String line = next;
+			advance();
+			return line;
+		}
+
+		/**
+		 * Read characters up to the next '\n' (or end of file)
+		 */
+		String readLine() {
+			StringBuilder sb = new StringBuilder();
+			try {
+				while (true) {
+					// Fill buffer
+					if (bufPos >= bufLen) {
+						bufLen = reader.read(buffer);
+						bufPos = 0;
+						if (bufLen < 0) break;
+					}
+
+					// Find end of line
+					int start = bufPos;
+					while (bufPos < bufLen && buffer[bufPos] != '\n')
+						bufPos++;
+
+					sb.append(buffer, start, bufPos - start);
+					countChars += bufPos - start;
+					if (bufPos < bufLen) {
+						bufPos++; // Skip '\n'
+						countChars++;
+						return sb.toString();
+					}
+				}
+			} catch (IOException e) {
+				close();
+				throw new RuntimeException("Error reading file '" + fileName + "'", e);
+			}
+
+			eof = true;
+			return sb.toString();
+		}
+	}
+
+	final String fileName; // Read lines from this file (if not null)
+	final long fileLength; // File size when the list was created
+	final String str; // Read lines from this string (if not null)
+
+	/**
+	 * Lines in a local file
+	 */
+	public static LazyListLines file(String fileName) {
+		return new LazyListLines(fileName, new File(fileName).length(), null);
+	}
+
+	/**
+	 * Lines in a string
+	 */
+	public static LazyListLines string(String str) {
+		return new LazyListLines(null, 0, str);
+	}
+
+	LazyListLines(String fileName, long fileLength, String str) {
+		this.fileName = fileName;
+		this.fileLength = fileLength;
+		this.str = str;
+	}
+
+	@Override
+	public Iterator<String> iteratorLazy() {
+		return new LinesIterator();
+	}
+
+	/**
+	 * Open a reader
+	 */
+	BufferedReader open() {
+		if (str != null) return new BufferedReader(new StringReader(str));
+		if (fileName.endsWith(".gz") || !Gpr.exists(fileName)) return Gpr.reader(fileName, false, false); // Compressed (or missing) file
+
+		// Do not read past the file's original length (lines may be appended while iterating)
+		try {
+			return new BufferedReader(new InputStreamReader(new BoundedInputStream(new FileInputStream(fileName), fileLength)));
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening file '" + fileName + "'", e);
+		}
+	}
+
+}
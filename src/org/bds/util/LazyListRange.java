@@ -0,0 +1,70 @@
+package org.bds.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An arithmetic range of integers: [min, min + step, ..., max]
+ *
+ * Size and random access are computed, so the list is only
+ * materialized when it is mutated (or serialized)
+ *
+ * @author pcingola
+ */
+public class LazyListRange extends LazyList<Long> {
+
+	private static final long serialVersionUID = -2497232419563582577L;
+
+	final long min, max, step;
+	final int size;
+
+	public LazyListRange(long min, long max, long step) {
+		if (step <= 0) throw new RuntimeException("Range step must be positive: " + step);
+		this.min = min;
+		this.max = max;
+		this.step = step;
+
+		long len = (max < min ? 0 : (max - min) / step + 1);
+		if (len > Integer.MAX_VALUE) throw new RuntimeException("Range too large: [" + min + ", " + max + "], step " + step);
+		size = (int) len;
+	}
+
+	@Override
+	public Long get(int index) {
+		if (isMaterialized()) return super.get(index);
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		return min + index * step;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		if (isMaterialized()) return super.isEmpty();
+		return size == 0;
+	}
+
+	@Override
+	public Iterator<Long> iteratorLazy() {
+		return new Iterator<Long>() {
+
+			int idx = 0;
+
+			@Override
+			public boolean hasNext() {
+				return idx < size;
+			}
+
+			@Override
+			public Long next() {
+				if (idx >= size) throw new NoSuchElementException();
+				return min + (idx++) * step;
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		if (isMaterialized()) return super.size();
+		return size;
+	}
+
+}
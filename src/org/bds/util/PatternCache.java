@@ -0,0 +1,69 @@
+package org.bds.util;
+
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * A cache of compiled regular expressions and glob path matchers,
+ * shared by all native functions / methods (and all threads).
+ *
+ * The cache is bounded: when it grows beyond MAX_SIZE entries it is
+ * cleared (programs use few distinct patterns, so this rarely happens).
+ *
+ * @author pcingola
+ */
+public class PatternCache {
+
+	public static final int MAX_SIZE = 1024;
+
+	// Characters that make a one character 'split' regex a real regex
+	public static final String REGEX_META_CHARS = ".$|()[{^?*+\\";
+
+	private static final ConcurrentHashMap<String, Pattern> patterns = new ConcurrentHashMap<String, Pattern>();
+	private static final ConcurrentHashMap<String, PathMatcher> pathMatchers = new ConcurrentHashMap<String, PathMatcher>();
+
+	/**
+	 * Get a (cached) glob path matcher
+	 */
+	public static PathMatcher pathMatcher(String glob) {
+		PathMatcher matcher = pathMatchers.get(glob);
+		if (matcher == null) {
+			matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+			if (pathMatchers.size() >= MAX_SIZE) pathMatchers.clear();
+			pathMatchers.put(glob, matcher);
+		}
+		return matcher;
+	}
+
+	/**
+	 * Get a (cached) compiled regular expression
+	 */
+	public static Pattern pattern(String regex) {
+		Pattern pattern = patterns.get(regex);
+		if (pattern == null) {
+			pattern = Pattern.compile(regex);
+			if (patterns.size() >= MAX_SIZE) patterns.clear();
+			patterns.put(regex, pattern);
+		}
+		return pattern;
+	}
+
+	/**
+	 * Same as 'str.replaceAll(regex, repl)', using a cached pattern
+	 */
+	public static String replaceAll(String str, String regex, String repl) {
+		return pattern(regex).matcher(str).replaceAll(repl);
+	}
+
+	/**
+	 * Same as 'str.split(regex, limit)', using a cached pattern
+	 */
+	public static String[] split(String str, String regex, int limit) {
+		// One character, not a regex? String.split does not compile a pattern
+		if (regex.length() == 1 && REGEX_META_CHARS.indexOf(regex.charAt(0)) < 0) return str.split(regex, limit);
+		return pattern(regex).split(str, limit);
+	}
+
+}
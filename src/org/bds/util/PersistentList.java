@@ -0,0 +1,378 @@
+package org.bds.util;
+
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A persistent vector: A 32-way trie of elements plus a 'tail' buffer
+ * (as in Clojure's PersistentVector), with an offset to the first element.
+ *
+ * Copies share structure with the original list, so that copying is O(1);
+ * appending, setting and removing the first or last element are O(log32 n).
+ *
+ * The list is mutable (as every other list in bds): Nodes created by a
+ * list are 'owned' by it and can be updated in place. Once a list is
+ * copied, neither list owns the shared nodes, so any update copies
+ * only the path to the updated element.
+ *
+ * @author pcingola
+ */
+public class PersistentList<T> extends CustomArrayList<T> {
+
+	private static final long serialVersionUID = -8734123001539727466L;
+
+	public static final int BITS = 5;
+	public static final int WIDTH = 1 << BITS;
+	public static final int MASK = WIDTH - 1;
+
+	/**
+	 * A node in the trie (leaf nodes contain elements)
+	 */
+	static class Node {
+		final Object owner; // Only the list with this 'owner' token can update the node in place
+		final Object array[];
+
+		Node(Object owner, Object array[]) {
+			this.owner = owner;
+			this.array = array;
+		}
+	}
+
+	Object owner; // Ownership token
+	int count; // Number of elements in trie and tail (including removed elements before 'start')
+	int start; // Index of first element
+	int shift; // Number of bits to shift at root level
+	Node root; // Trie
+	Node tail; // Last elements
+
+	public PersistentList() {
+		clearNodes();
+	}
+
+	@Override
+	public boolean add(T e) {
+		append(e);
+		modCount++;
+		indexAppended(e);
+		return true;
+	}
+
+	@Override
+	public void add(int index, T element) {
+		checkIndexAdd(index);
+		if (index == size()) {
+			add(element);
+			return;
+		}
+
+		// Insert: Rebuild list
+		Object elements[] = toArray();
+		clearNodes();
+		for (int i = 0; i < elements.length; i++) {
+			if (i == index) append(element);
+			append(elements[i]);
+		}
+		modCount++;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends T> c) {
+		if (c == this) c = copy(); // Appending to itself
+		return super.addAll(c);
+	}
+
+	/**
+	 * Append element at the end
+	 */
+	void append(Object value) {
+		int tailLen = count - tailOffset();
+
+		// Room in tail?
+		if (tailLen < WIDTH) {
+			tail = editable(tail);
+			tail.array[tailLen] = value;
+			count++;
+			return;
+		}
+
+		// Tail is full: Push it into the trie
+		Node tailNode = tail;
+		if ((count >>> BITS) > (1 << shift)) {
+			// Root overflow: Add a new level
+			Node newRoot = newNode();
+			newRoot.array[0] = root;
+			newRoot.array[1] = newPath(shift, tailNode);
+			root = newRoot;
+			shift += BITS;
+		} else {
+			root = pushTail(shift, root, tailNode);
+		}
+
+		tail = newNode();
+		tail.array[0] = value;
+		count++;
+	}
+
+	/**
+	 * Absolute index to leaf array
+	 */
+	Object[] arrayFor(int idx) {
+		if (idx >= tailOffset()) return tail.array;
+		return nodeFor(idx).array;
+	}
+
+	@Override
+	public void clear() {
+		clearNodes();
+		modCount++;
+	}
+
+	void clearNodes() {
+		owner = new Object();
+		count = start = 0;
+		shift = BITS;
+		root = newNode();
+		tail = newNode();
+	}
+
+	@Override
+	public Object clone() {
+		return copy();
+	}
+
+	/**
+	 * Rebuild the trie, dropping elements removed from the beginning (see 'remove(0)')
+	 */
+	void compact() {
+		Object elements[] = toArray();
+		clearNodes();
+		for (Object e : elements)
+			append(e);
+	}
+
+	/**
+	 * Create a copy of this list, sharing structure (O(1))
+	 */
+	public PersistentList<T> copy() {
+		PersistentList<T> list = new PersistentList<T>();
+		list.count = count;
+		list.start = start;
+		list.shift = shift;
+		list.root = root;
+		list.tail = tail;
+
+		owner = new Object(); // Nodes are now shared: Neither list owns them
+		return list;
+	}
+
+	/**
+	 * Get a node we can update in place
+	 */
+	Node editable(Node node) {
+		if (node.owner == owner) return node;
+		return new Node(owner, node.array.clone());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T get(int index) {
+		checkIndex(index);
+		int idx = start + index;
+		return (T) arrayFor(idx)[idx & MASK];
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		// Iterate leaf by leaf
+		return new Iterator<T>() {
+
+			int expectedModCount = modCount;
+			int idx = start;
+			int leafStart = -1;
+			Object leaf[];
+
+			@Override
+			public boolean hasNext() {
+				return idx < count;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public T next() {
+				if (modCount != expectedModCount) throw new ConcurrentModificationException();
+				if (idx >= count) throw new NoSuchElementException();
+				if (leaf == null || idx - leafStart >= WIDTH) {
+					leaf = arrayFor(idx);
+					leafStart = idx & ~MASK;
+				}
+				return (T) leaf[(idx++) & MASK];
+			}
+		};
+	}
+
+	Node newNode() {
+		return new Node(owner, new Object[WIDTH]);
+	}
+
+	/**
+	 * Create a path of 'level' nodes up to 'node'
+	 */
+	Node newPath(int level, Node node) {
+		if (level == 0) return node;
+		Node ret = newNode();
+		ret.array[0] = newPath(level - BITS, node);
+		return ret;
+	}
+
+	/**
+	 * Absolute index to leaf node (in the trie)
+	 */
+	Node nodeFor(int idx) {
+		Node node = root;
+		for (int level = shift; level > 0; level -= BITS)
+			node = (Node) node.array[(idx >>> level) & MASK];
+		return node;
+	}
+
+	/**
+	 * Remove last element
+	 */
+	void popLast() {
+		if (count - start <= 1) {
+			clearNodes();
+			return;
+		}
+
+		int tailLen = count - tailOffset();
+		if (tailLen > 1) {
+			tail = editable(tail);
+			tail.array[tailLen - 1] = null;
+			count--;
+			return;
+		}
+
+		// Only one element in tail: Last leaf in the trie becomes the new tail
+		Node newTail = nodeFor(count - 2);
+		Node newRoot = popTail(shift, root);
+		if (newRoot == null) newRoot = newNode();
+		if (shift > BITS && newRoot.array[1] == null) {
+			newRoot = (Node) newRoot.array[0];
+			shift -= BITS;
+		}
+
+		root = newRoot;
+		tail = newTail;
+		count--;
+	}
+
+	/**
+	 * Remove last leaf from the trie
+	 */
+	Node popTail(int level, Node node) {
+		int subidx = ((count - 2) >>> level) & MASK;
+		if (level > BITS) {
+			Node newChild = popTail(level - BITS, (Node) node.array[subidx]);
+			if (newChild == null && subidx == 0) return null;
+			Node ret = editable(node);
+			ret.array[subidx] = newChild;
+			return ret;
+		}
+
+		if (subidx == 0) return null;
+		Node ret = editable(node);
+		ret.array[subidx] = null;
+		return ret;
+	}
+
+	/**
+	 * Add a (full) tail node to the trie
+	 */
+	Node pushTail(int level, Node parent, Node tailNode) {
+		Node ret = editable(parent);
+		int subidx = ((count - 1) >>> level) & MASK;
+
+		Node nodeToInsert;
+		if (level == BITS) nodeToInsert = tailNode;
+		else {
+			Node child = (Node) parent.array[subidx];
+			nodeToInsert = (child != null ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode));
+		}
+
+		ret.array[subidx] = nodeToInsert;
+		return ret;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T remove(int index) {
+		checkIndex(index);
+		T old = get(index);
+
+		if (index == 0) {
+			// Remove first: Move start (the element is not removed from the trie)
+			start++;
+			if (start >= count) clearNodes();
+			else if (start > count / 2) compact(); // Most of the trie are removed elements
+		} else if (index == size() - 1) {
+			popLast();
+		} else {
+			// Remove from the middle: Rebuild list
+			Object elements[] = toArray();
+			clearNodes();
+			for (int i = 0; i < elements.length; i++)
+				if (i != index) append(elements[i]);
+		}
+
+		modCount++;
+		return old;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T set(int index, T element) {
+		checkIndex(index);
+		int idx = start + index;
+
+		T old;
+		if (idx >= tailOffset()) {
+			tail = editable(tail);
+			old = (T) tail.array[idx & MASK];
+			tail.array[idx & MASK] = element;
+		} else {
+			old = (T) nodeFor(idx).array[idx & MASK];
+			root = setInTrie(shift, root, idx, element);
+		}
+
+		indexInvalidate();
+		return old;
+	}
+
+	/**
+	 * Set a value in the trie, copying nodes not owned by this list
+	 */
+	Node setInTrie(int level, Node node, int idx, Object value) {
+		Node ret = editable(node);
+		if (level == 0) ret.array[idx & MASK] = value;
+		else {
+			int subidx = (idx >>> level) & MASK;
+			ret.array[subidx] = setInTrie(level - BITS, (Node) node.array[subidx], idx, value);
+		}
+		return ret;
+	}
+
+	@Override
+	public int size() {
+		return count - start;
+	}
+
+	/**
+	 * Absolute index of the first element in the tail
+	 */
+	int tailOffset() {
+		if (count < WIDTH) return 0;
+		return ((count - 1) >>> BITS) << BITS;
+	}
+
+}
@@ -0,0 +1,151 @@
+package org.bds.util;
+
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * A list backed by a primitive array (e.g. long[] for 'int[]' lists)
+ * instead of an array of boxed objects.
+ *
+ * @author pcingola
+ */
+public abstract class PrimitiveList<T> extends CustomArrayList<T> {
+
+	private static final long serialVersionUID = -4125069418522290185L;
+
+	public static final int DEFAULT_CAPACITY = 10;
+
+	protected int size;
+
+	@Override
+	public boolean add(T e) {
+		ensureCapacity(size + 1);
+		setElement(size++, e);
+		modCount++;
+		indexAppended(e);
+		return true;
+	}
+
+	@Override
+	public void add(int index, T element) {
+		checkIndexAdd(index);
+		ensureCapacity(size + 1);
+		System.arraycopy(array(), index, array(), index + 1, size - index);
+		setElement(index, element);
+		size++;
+		modCount++;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends T> c) {
+		ensureCapacity(size + c.size());
+		return super.addAll(c);
+	}
+
+	/**
+	 * Primitive array
+	 */
+	protected abstract Object array();
+
+	/**
+	 * Primitive array's length
+	 */
+	protected abstract int capacity();
+
+	@Override
+	public void clear() {
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public Object clone() {
+		PrimitiveList<T> list = newList(size);
+		list.addAll(this);
+		return list;
+	}
+
+	@Override
+	public void ensureCapacity(int minCapacity) {
+		int capacity = capacity();
+		if (minCapacity <= capacity) return;
+		resize(Math.max(minCapacity, Math.max(DEFAULT_CAPACITY, capacity + (capacity >> 1))));
+	}
+
+	@Override
+	public T get(int index) {
+		checkIndex(index);
+		return getElement(index);
+	}
+
+	/**
+	 * Get an element (no bounds check)
+	 */
+	protected abstract T getElement(int index);
+
+	/**
+	 * Create a new (empty) list of the same type
+	 */
+	protected abstract PrimitiveList<T> newList(int capacity);
+
+	@Override
+	public T remove(int index) {
+		checkIndex(index);
+		T old = getElement(index);
+		System.arraycopy(array(), index + 1, array(), index, size - index - 1);
+		size--;
+		modCount++;
+		return old;
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		System.arraycopy(array(), toIndex, array(), fromIndex, size - toIndex);
+		size -= toIndex - fromIndex;
+		modCount++;
+	}
+
+	/**
+	 * Resize primitive array
+	 */
+	protected abstract void resize(int capacity);
+
+	@Override
+	public T set(int index, T element) {
+		checkIndex(index);
+		T old = getElement(index);
+		setElement(index, element);
+		indexInvalidate();
+		return old;
+	}
+
+	/**
+	 * Set an element (no bounds check)
+	 */
+	protected abstract void setElement(int index, T element);
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void sort(Comparator<? super T> c) {
+		if (c != null) super.sort(c);
+		else {
+			sortNatural();
+			modCount++;
+		}
+	}
+
+	/**
+	 * Sort using elements' natural order (primitive sort)
+	 */
+	protected abstract void sortNatural();
+
+	@Override
+	public void trimToSize() {
+		if (capacity() > size) resize(size);
+	}
+
+}
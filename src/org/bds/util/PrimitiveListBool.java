@@ -0,0 +1,67 @@
+package org.bds.util;
+
+import java.util.Arrays;
+
+/**
+ * A list of 'bool' (i.e. Boolean) backed by a boolean[]
+ *
+ * @author pcingola
+ */
+public class PrimitiveListBool extends PrimitiveList<Boolean> {
+
+	private static final long serialVersionUID = 4658212440932215092L;
+
+	boolean values[];
+
+	public PrimitiveListBool() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public PrimitiveListBool(int capacity) {
+		values = new boolean[capacity];
+	}
+
+	@Override
+	protected Object array() {
+		return values;
+	}
+
+	@Override
+	protected int capacity() {
+		return values.length;
+	}
+
+	@Override
+	protected Boolean getElement(int index) {
+		return values[index];
+	}
+
+	@Override
+	protected PrimitiveList<Boolean> newList(int capacity) {
+		return new PrimitiveListBool(capacity);
+	}
+
+	@Override
+	protected void resize(int capacity) {
+		values = Arrays.copyOf(values, capacity);
+	}
+
+	@Override
+	protected void setElement(int index, Boolean element) {
+		values[index] = element;
+	}
+
+	/**
+	 * Natural order: 'false' before 'true'
+	 */
+	@Override
+	protected void sortNatural() {
+		int countFalse = 0;
+		for (int i = 0; i < size; i++)
+			if (!values[i]) countFalse++;
+
+		Arrays.fill(values, 0, countFalse, false);
+		Arrays.fill(values, countFalse, size, true);
+	}
+
+}
@@ -0,0 +1,82 @@
+package org.bds.util;
+
+import java.util.Arrays;
+
+/**
+ * A list of 'int' (i.e. Long) backed by a long[]
+ *
+ * @author pcingola
+ */
+public class PrimitiveListInt extends PrimitiveList<Long> {
+
+	private static final long serialVersionUID = 1934871306622716442L;
+
+	long values[];
+
+	public PrimitiveListInt() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public PrimitiveListInt(int capacity) {
+		values = new long[capacity];
+	}
+
+	@Override
+	protected Object array() {
+		return values;
+	}
+
+	@Override
+	protected int capacity() {
+		return values.length;
+	}
+
+	@Override
+	protected Long getElement(int index) {
+		return values[index];
+	}
+
+	public long getLong(int index) {
+		checkIndex(index);
+		return values[index];
+	}
+
+	@Override
+	protected int indexOfScan(Object o) {
+		if (!(o instanceof Long)) return -1;
+		long val = (Long) o;
+		for (int i = 0; i < size; i++)
+			if (values[i] == val) return i;
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		if (!(o instanceof Long)) return -1;
+		long val = (Long) o;
+		for (int i = size - 1; i >= 0; i--)
+			if (values[i] == val) return i;
+		return -1;
+	}
+
+	@Override
+	protected PrimitiveList<Long> newList(int capacity) {
+		return new PrimitiveListInt(capacity);
+	}
+
+	@Override
+	protected void resize(int capacity) {
+		values = Arrays.copyOf(values, capacity);
+	}
+
+	@Override
+	protected void setElement(int index, Long element) {
+		values[index] = element;
+	}
+
+	@Override
+	protected void sortNatural() {
+		Arrays.sort(values, 0, size);
+	}
+
+}
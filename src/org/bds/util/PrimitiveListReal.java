@@ -0,0 +1,64 @@
+package org.bds.util;
+
+import java.util.Arrays;
+
+/**
+ * A list of 'real' (i.e. Double) backed by a double[]
+ *
+ * @author pcingola
+ */
+public class PrimitiveListReal extends PrimitiveList<Double> {
+
+	private static final long serialVersionUID = -6020985236446436127L;
+
+	double values[];
+
+	public PrimitiveListReal() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public PrimitiveListReal(int capacity) {
+		values = new double[capacity];
+	}
+
+	@Override
+	protected Object array() {
+		return values;
+	}
+
+	@Override
+	protected int capacity() {
+		return values.length;
+	}
+
+	@Override
+	protected Double getElement(int index) {
+		return values[index];
+	}
+
+	public double getDouble(int index) {
+		checkIndex(index);
+		return values[index];
+	}
+
+	@Override
+	protected PrimitiveList<Double> newList(int capacity) {
+		return new PrimitiveListReal(capacity);
+	}
+
+	@Override
+	protected void resize(int capacity) {
+		values = Arrays.copyOf(values, capacity);
+	}
+
+	@Override
+	protected void setElement(int index, Double element) {
+		values[index] = element;
+	}
+
+	@Override
+	protected void sortNatural() {
+		Arrays.sort(values, 0, size);
+	}
+
+}
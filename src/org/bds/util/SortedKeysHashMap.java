@@ -0,0 +1,139 @@
+package org.bds.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A HashMap that caches its keys in sorted order, so that
+ * iterating over 'map.keys()' in a loop does not sort the
+ * keys every time.
+ *
+ * The key set only changes when the map's size changes (a key
+ * is added or removed), so the cache is dropped whenever a method
+ * changes the map's size. Keys can only be added through the methods
+ * below; keys removed through 'keySet()' / 'entrySet()' views are
+ * detected by comparing the cache's size to the map's size.
+ *
+ * @author pcingola
+ */
+public class SortedKeysHashMap<K, V> extends HashMap<K, V> {
+
+	private static final long serialVersionUID = 4398230117358202467L;
+
+	private transient Object sortedKeys[]; // Sorted keys (null if not available). Note: Never modified, so it can be shared by clones
+
+	public SortedKeysHashMap() {
+		super();
+	}
+
+	public SortedKeysHashMap(int initialCapacity) {
+		super(initialCapacity);
+	}
+
+	/**
+	 * Drop sorted keys if the size changed
+	 */
+	void check(int sizeBefore) {
+		if (size() != sizeBefore) sortedKeys = null;
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		sortedKeys = null;
+	}
+
+	@Override
+	public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		int size = size();
+		V v = super.compute(key, remappingFunction);
+		check(size);
+		return v;
+	}
+
+	@Override
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		int size = size();
+		V v = super.computeIfAbsent(key, mappingFunction);
+		check(size);
+		return v;
+	}
+
+	@Override
+	public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		int size = size();
+		V v = super.computeIfPresent(key, remappingFunction);
+		check(size);
+		return v;
+	}
+
+	@Override
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		int size = size();
+		V v = super.merge(key, value, remappingFunction);
+		check(size);
+		return v;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		int size = size();
+		V v = super.put(key, value);
+		check(size);
+		return v;
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		int size = size();
+		super.putAll(m);
+		check(size);
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value) {
+		int size = size();
+		V v = super.putIfAbsent(key, value);
+		check(size);
+		return v;
+	}
+
+	@Override
+	public V remove(Object key) {
+		int size = size();
+		V v = super.remove(key);
+		check(size);
+		return v;
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		int size = size();
+		boolean removed = super.remove(key, value);
+		check(size);
+		return removed;
+	}
+
+	/**
+	 * Keys in sorted order (a new list)
+	 */
+	@SuppressWarnings("unchecked")
+	public ArrayList<K> sortedKeys() {
+		Object keys[] = sortedKeys;
+		if (keys == null || keys.length != size()) {
+			keys = keySet().toArray();
+			Arrays.sort(keys);
+			sortedKeys = keys;
+		}
+
+		ArrayList<K> list = new ArrayList<K>(keys.length);
+		for (Object k : keys)
+			list.add((K) k);
+		return list;
+	}
+
+}